@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A target that is changed while the run is in progress, e.g. by
+ * {@link ThroughputSearch}. Any backlog built up at the previous rate is
+ * dropped when the rate changes, so each rate starts from a clean schedule.
+ */
+public class AdjustableTargetProfile extends TargetProfile
+{
+  private volatile double _rate;
+  private volatile long _changedNs;
+
+  public AdjustableTargetProfile(double opsPerSecond)
+  {
+    super(constantSegment(opsPerSecond));
+    setRate(opsPerSecond);
+  }
+
+  private static List<Segment> constantSegment(double opsPerSecond)
+  {
+    List<Segment> segments = new ArrayList<Segment>();
+    segments.add(new Constant(opsPerSecond, 1));
+    return segments;
+  }
+
+  /**
+   * Change the target, effective immediately for all client threads.
+   */
+  public void setRate(double opsPerSecond)
+  {
+    if (opsPerSecond <= 0)
+    {
+      throw new IllegalArgumentException("Target must be positive, got " + opsPerSecond);
+    }
+    _rate = opsPerSecond;
+    _changedNs = System.nanoTime();
+  }
+
+  public double getRate()
+  {
+    return _rate;
+  }
+
+  @Override
+  public double rateAt(long nowNs)
+  {
+    return _rate;
+  }
+
+  @Override
+  public long nextArrival(long previousNs, double share, boolean poisson)
+  {
+    return super.nextArrival(Math.max(previousNs, _changedNs), share, poisson);
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An open-loop arrival schedule shared by all client threads. Arrival times are
+ * handed out at the rate of a {@link TargetProfile}, evenly spaced or with
+ * exponentially distributed gaps for a Poisson process, regardless of how long
+ * earlier operations took. Whichever
+ * client thread is free claims the next arrival, waits for it, and issues the
+ * operation with the arrival time as its intended start time. When every thread
+ * is busy, arrivals keep accumulating and the time they spend waiting for a
+ * free thread shows up in the intended latency instead of being silently
+ * dropped (coordinated omission).
+ */
+public class ArrivalSchedule
+{
+  /** Arrivals are evenly spaced. */
+  public static final String FIXED = "fixed";
+
+  /** Arrivals form a Poisson process with the target mean rate. */
+  public static final String POISSON = "poisson";
+
+  private final TargetProfile _profile;
+  private final boolean _poisson;
+
+  /** The next unclaimed arrival time, or 0 before the first claim. */
+  private final AtomicLong _next = new AtomicLong(0);
+
+  /**
+   * @param opsPerSecond The mean arrival rate across all client threads.
+   * @param distribution Either {@link #FIXED} or {@link #POISSON}.
+   */
+  public ArrivalSchedule(double opsPerSecond, String distribution)
+  {
+    this(TargetProfile.constant(opsPerSecond), distribution);
+  }
+
+  /**
+   * @param profile The mean arrival rate across all client threads, over time.
+   * @param distribution Either {@link #FIXED} or {@link #POISSON}.
+   */
+  public ArrivalSchedule(TargetProfile profile, String distribution)
+  {
+    _profile = profile;
+    if (FIXED.equals(distribution))
+    {
+      _poisson = false;
+    }
+    else if (POISSON.equals(distribution))
+    {
+      _poisson = true;
+    }
+    else
+    {
+      throw new IllegalArgumentException("Unknown arrival distribution \"" + distribution + "\"");
+    }
+  }
+
+  /**
+   * Claim the next arrival. The schedule starts at the first claim, so time
+   * spent initializing the DB is not counted against the first operations.
+   *
+   * @return The arrival time, in {@link System#nanoTime()} units.
+   */
+  public long claim()
+  {
+    while (true)
+    {
+      long current = _next.get();
+      if (current == 0)
+      {
+        long now = System.nanoTime();
+        if (_next.compareAndSet(0, _profile.nextArrival(now, 1.0, _poisson)))
+        {
+          return now;
+        }
+        continue;
+      }
+      if (_next.compareAndSet(current, _profile.nextArrival(current, 1.0, _poisson)))
+      {
+        return current;
+      }
+    }
+  }
+}
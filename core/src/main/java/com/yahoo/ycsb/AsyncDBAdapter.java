@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Exposes a blocking {@link DB} through the {@link AsyncDB} interface. Each
+ * operation runs to completion on the calling thread and the callback is
+ * invoked before the method returns, so bindings that only implement the
+ * blocking API keep working when the client runs in asynchronous mode.
+ */
+public class AsyncDBAdapter extends AsyncDB {
+  private final DB _db;
+
+  public AsyncDBAdapter(DB db) {
+    _db = db;
+  }
+
+  @Override
+  public void setProperties(Properties p) {
+    _db.setProperties(p);
+  }
+
+  @Override
+  public Properties getProperties() {
+    return _db.getProperties();
+  }
+
+  @Override
+  public void init() throws DBException {
+    _db.init();
+  }
+
+  @Override
+  public void cleanup() throws DBException {
+    _db.cleanup();
+  }
+
+  @Override
+  public void read(String table, String key, Set<String> fields,
+      HashMap<String, ByteIterator> result, AsyncCallback callback) {
+    callback.completed(_db.read(table, key, fields, result));
+  }
+
+  @Override
+  public void scan(String table, String startkey, int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result, AsyncCallback callback) {
+    callback.completed(_db.scan(table, startkey, recordcount, fields, result));
+  }
+
+  @Override
+  public void update(String table, String key, HashMap<String, ByteIterator> values,
+      AsyncCallback callback) {
+    callback.completed(_db.update(table, key, values));
+  }
+
+  @Override
+  public void insert(String table, String key, HashMap<String, ByteIterator> values,
+      AsyncCallback callback) {
+    callback.completed(_db.insert(table, key, values));
+  }
+
+  @Override
+  public void delete(String table, String key, AsyncCallback callback) {
+    callback.completed(_db.delete(table, key));
+  }
+}
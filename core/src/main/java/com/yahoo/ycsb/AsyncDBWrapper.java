@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.MeasurementHandle;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Wrapper around a "real" AsyncDB that measures latencies and counts return
+ * codes. The start times are taken when the operation is issued and the
+ * latency is recorded when its callback fires, so the measurement covers the
+ * full time the operation was in flight. Like {@link DBWrapper}, latency is
+ * reported separately for OK, failed and NOT_FOUND operations.
+ */
+public class AsyncDBWrapper extends AsyncDB
+{
+  private AsyncDB _db;
+  private Measurements _measurements;
+  private final OperationReporter _reporter;
+
+  /**
+   * Handles on the measurements of each operation. Callbacks that fire on the
+   * client thread measure into that thread's own recorders; others use the
+   * shared ones.
+   */
+  private final MeasurementHandle _read, _scan, _update, _insert, _delete;
+
+  public AsyncDBWrapper(AsyncDB db)
+  {
+    _db=db;
+    _measurements=Measurements.getMeasurements();
+    _reporter=new OperationReporter(_measurements);
+    _read=_measurements.getHandle("READ");
+    _scan=_measurements.getHandle("SCAN");
+    _update=_measurements.getHandle("UPDATE");
+    _insert=_measurements.getHandle("INSERT");
+    _delete=_measurements.getHandle("DELETE");
+  }
+
+  /**
+   * Records the latency and return code of one operation when it completes,
+   * then hands the status on to the caller's callback. Operations issued
+   * during the warm-up count towards it even if they complete after it.
+   */
+  private class MeasuringCallback implements AsyncCallback
+  {
+    private final MeasurementHandle _op;
+    private final boolean _warmup;
+    private final long _ist;
+    private final long _st;
+    private final AsyncCallback _callback;
+
+    MeasuringCallback(MeasurementHandle op, AsyncCallback callback)
+    {
+      _op=op;
+      _callback=callback;
+      _warmup=_measurements.isWarmingUp();
+      _ist=_measurements.getIntendedtartTimeNs();
+      _st=System.nanoTime();
+    }
+
+    @Override
+    public void completed(Status status)
+    {
+      long en=System.nanoTime();
+      _reporter.report(_op, status, _warmup, _ist, _st, en);
+      _callback.completed(status);
+    }
+  }
+
+  /**
+   * Set the properties for this DB.
+   */
+  public void setProperties(Properties p)
+  {
+    _db.setProperties(p);
+  }
+
+  /**
+   * Get the set of properties for this DB.
+   */
+  public Properties getProperties()
+  {
+    return _db.getProperties();
+  }
+
+  /**
+   * Initialize any state for this DB.
+   * Called once per DB instance; there is one DB instance per client thread.
+   */
+  public void init() throws DBException
+  {
+    _db.init();
+    _reporter.init(getProperties(), "AsyncDBWrapper");
+  }
+
+  /**
+   * Cleanup any state for this DB.
+   * Called once per DB instance; there is one DB instance per client thread.
+   */
+  public void cleanup() throws DBException
+  {
+    long ist=_measurements.getIntendedtartTimeNs();
+    long st = System.nanoTime();
+    _db.cleanup();
+    long en=System.nanoTime();
+    _reporter.measure(_measurements.getHandle("CLEANUP"), Status.OK, ist, st, en);
+  }
+
+  public void read(String table, String key, Set<String> fields,
+      HashMap<String,ByteIterator> result, AsyncCallback callback)
+  {
+    _db.read(table,key,fields,result,new MeasuringCallback(_read, callback));
+  }
+
+  public void scan(String table, String startkey, int recordcount,
+      Set<String> fields, Vector<HashMap<String,ByteIterator>> result,
+      AsyncCallback callback)
+  {
+    _db.scan(table,startkey,recordcount,fields,result,
+        new MeasuringCallback(_scan, callback));
+  }
+
+  public void update(String table, String key,
+      HashMap<String,ByteIterator> values, AsyncCallback callback)
+  {
+    _db.update(table,key,values,new MeasuringCallback(_update, callback));
+  }
+
+  public void insert(String table, String key,
+      HashMap<String,ByteIterator> values, AsyncCallback callback)
+  {
+    _db.insert(table,key,values,new MeasuringCallback(_insert, callback));
+  }
+
+  public void delete(String table, String key, AsyncCallback callback)
+  {
+    _db.delete(table,key,new MeasuringCallback(_delete, callback));
+  }
+}
@@ -20,18 +20,22 @@ package com.yahoo.ycsb;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
 
 import com.yahoo.ycsb.measurements.Measurements;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
@@ -222,191 +226,6 @@ class RemainingFormatter {
 	}
 }
 
-/**
- * A thread for executing transactions or data inserts to the database.
- *
- * @author cooperb
- *
- */
-class ClientThread extends Thread
-{
-  /** Counts down each of the clients completing. */
-  private final CountDownLatch _completeLatch;
-
-  private static boolean _spinSleep;
-  DB _db;
-  boolean _dotransactions;
-  Workload _workload;
-  int _opcount;
-  double _targetOpsPerMs;
-
-  int _opsdone;
-  int _threadid;
-  int _threadcount;
-  Object _workloadstate;
-  Properties _props;
-  long _targetOpsTickNs;
-  final Measurements _measurements;
-
-  /**
-   * Constructor.
-   *
-   * @param db the DB implementation to use
-   * @param dotransactions true to do transactions, false to insert data
-   * @param workload the workload to use
-   * @param props the properties defining the experiment
-   * @param opcount the number of operations (transactions or inserts) to do
-   * @param targetperthreadperms target number of operations per thread per ms
-   * @param completeLatch The latch tracking the completion of all clients.
-   */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch)
-  {
-    _db=db;
-    _dotransactions=dotransactions;
-    _workload=workload;
-    _opcount=opcount;
-    _opsdone=0;
-    if(targetperthreadperms > 0){
-      _targetOpsPerMs=targetperthreadperms;
-      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
-    }
-    _props=props;
-    _measurements = Measurements.getMeasurements();
-    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
-    _completeLatch=completeLatch;
-  }
-
-  public int getOpsDone()
-  {
-    return _opsdone;
-  }
-
-  @Override
-  public void run()
-  {
-    try
-    {
-      _db.init();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    try
-    {
-      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
-    }
-    catch (WorkloadException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-
-    //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
-    // and the client thread have the same view on time.
-
-    //spread the thread operations out so they don't all hit the DB at the same time
-    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
-    // and the sleep() doesn't make sense for granularities < 1 ms anyway
-    if ((_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
-    {
-      long randomMinorDelay = Utils.random().nextInt((int) _targetOpsTickNs);
-      sleepUntil(System.nanoTime() + randomMinorDelay);
-    }
-    try
-    {
-      if (_dotransactions)
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doTransaction(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-      else
-      {
-        long startTimeNanos = System.nanoTime();
-
-        while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
-        {
-
-          if (!_workload.doInsert(_db,_workloadstate))
-          {
-            break;
-          }
-
-          _opsdone++;
-
-          throttleNanos(startTimeNanos);
-        }
-      }
-    }
-    catch (Exception e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      System.exit(0);
-    }
-
-    try
-    {
-      _measurements.setIntendedStartTimeNs(0);
-      _db.cleanup();
-    }
-    catch (DBException e)
-    {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      return;
-    }
-    finally
-    {
-      _completeLatch.countDown();
-    }
-  }
-
-  static void sleepUntil(long deadline) {
-    long now = System.nanoTime();
-    while((now = System.nanoTime()) < deadline) {
-      if (!_spinSleep) {
-        LockSupport.parkNanos(deadline - now);
-      }
-    }
-  }
-  private void throttleNanos(long startTimeNanos) {
-    //throttle the operations
-    if (_targetOpsPerMs > 0)
-    {
-      // delay until next tick
-      long deadline = startTimeNanos + _opsdone*_targetOpsTickNs;
-      sleepUntil(deadline);
-      _measurements.setIntendedStartTimeNs(deadline);
-    }
-  }
-  
-  /**
-   * the total amount of work this thread is still expected to do
-   */
-  public int getOpsTodo()
-  {
-    int todo = _opcount - _opsdone;
-    return todo < 0 ? 0 : todo;
-  }
-}
-
 /**
  * Main class for executing YCSB.
  */
@@ -469,6 +288,155 @@ public class Client
    */
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
+  /**
+   * The maximum number of operations each client thread keeps in flight. When greater than 0 the
+   * client threads drive the DB through the {@link AsyncDB} interface; bindings that only implement
+   * {@link DB} are adapted. The default of 0 keeps the blocking, one-operation-per-thread behavior.
+   */
+  public static final String ASYNC_WINDOW_PROPERTY = "async.window";
+
+  /**
+   * If true, operations are issued on an open-loop schedule at the "target" rate, independent of how quickly
+   * earlier operations complete, and intended latencies are measured from the scheduled arrival time. Pair it
+   * with measurement.interval=intended (or both) to report them.
+   */
+  public static final String OPEN_LOOP_PROPERTY = "openloop";
+
+  /**
+   * The spacing of open-loop arrivals: "fixed" (default) or "poisson".
+   */
+  public static final String OPEN_LOOP_ARRIVALS_PROPERTY = "openloop.arrivals";
+
+  /**
+   * How a closed-loop "target" is enforced: "perthread" gives each thread an equal, fixed share, "shared" has
+   * all threads draw permits from one {@link RateLimiter} so the others make up for a stalled thread.
+   */
+  public static final String THROTTLE_PROPERTY = "throttle";
+  public static final String THROTTLE_PER_THREAD = "perthread";
+  public static final String THROTTLE_SHARED = "shared";
+
+  /** The number of permits of unused capacity the shared rate limiter lets threads catch up on. */
+  public static final String THROTTLE_BURST_PROPERTY = "throttle.burst";
+
+  /**
+   * How each client is run: "platform" (default) for one OS thread per client, or "virtual" for one
+   * virtual thread per client, which allows a much larger threadcount on Java 21 or newer.
+   */
+  public static final String THREAD_MODE_PROPERTY = "threadmode";
+
+  /**
+   * A comma separated list of phases to run one after the other in this JVM, e.g. "load,a,b". Each phase runs with
+   * the properties of the whole run overridden by its "phase.&lt;name&gt;.propertyfile" and then by any
+   * "phase.&lt;name&gt;.&lt;property&gt;" settings. The DB instances, and the workload if the next phase uses
+   * the same class, are kept from one phase to the next; measurements are reset and exported for each phase.
+   * Settings of a later phase that the DB instances looked up when they were set up don't reach them, and are
+   * reported as ignored when the phase starts.
+   */
+  public static final String PHASES_PROPERTY = "phases";
+  public static final String PHASE_PREFIX = "phase.";
+
+  /** A property file with the settings of one phase, as "phase.&lt;name&gt;.propertyfile". */
+  public static final String PHASE_FILE_PROPERTY = "propertyfile";
+
+  /** If true the phase loads data, as with -load, given as "phase.&lt;name&gt;.load". */
+  public static final String PHASE_LOAD_PROPERTY = "load";
+
+  /**
+   * The properties the DB instances are created with. Since the instances are kept from one phase to the next,
+   * this remembers which properties they look up, so that a later phase changing one of them can be warned that
+   * the change doesn't reach the DBs.
+   */
+  static class DBProperties
+  {
+    private final Set<String> _lookedup=Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+
+    /** A copy of the phase properties that records the keys looked up in it. */
+    private final Properties _props=new Properties()
+    {
+      private static final long serialVersionUID=1L;
+
+      @Override
+      public String getProperty(String key)
+      {
+        _lookedup.add(key);
+        return super.getProperty(key);
+      }
+
+      @Override
+      public String getProperty(String key, String defaultValue)
+      {
+        String value=getProperty(key);
+        return value==null ? defaultValue : value;
+      }
+    };
+
+    DBProperties(Properties props)
+    {
+      _props.putAll(props);
+    }
+
+    /**
+     * @return The properties to create the DB instances with.
+     */
+    Properties forDB()
+    {
+      return _props;
+    }
+
+    /**
+     * @return The value the DBs see for the given key, without counting it as looked up.
+     */
+    String kept(String key)
+    {
+      return (String)_props.get(key);
+    }
+
+    /**
+     * @return The properties the DBs have looked up that the given phase properties set differently.
+     */
+    List<String> changedBy(Properties phaseprops)
+    {
+      List<String> changed=new ArrayList<String>();
+      for (String key : _lookedup)
+      {
+        String value=kept(key);
+        String phasevalue=phaseprops.getProperty(key);
+        if (phasevalue==null ? value!=null : !phasevalue.equals(value))
+        {
+          changed.add(key);
+        }
+      }
+      Collections.sort(changed);
+      return changed;
+    }
+  }
+
+  /**
+   * What is kept from one phase of a run to the next.
+   */
+  static class RunState
+  {
+    final int threadcount;
+    final String dbname;
+    final int asyncwindow;
+    final List<DB> dbs=new ArrayList<DB>();
+    final List<AsyncDB> asyncdbs=new ArrayList<AsyncDB>();
+    /** The properties of the phase the DB instances were created in. */
+    DBProperties dbprops;
+    Workload workload;
+    String workloadclassname;
+
+    /** Set when this process is one worker of a run spread over several. */
+    CoordinatorConnection coordinator;
+
+    RunState(Properties props)
+    {
+      threadcount=Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY,"1"));
+      dbname=props.getProperty(DB_PROPERTY,"com.yahoo.ycsb.BasicDB");
+      asyncwindow=Integer.parseInt(props.getProperty(ASYNC_WINDOW_PROPERTY,"0"));
+    }
+  }
+
 
   public static void usageMessage()
   {
@@ -515,7 +483,8 @@ public class Client
    * loaded from conf.
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
+  private static void exportMeasurements(Properties props, String phase, long opcount, long runtime,
+      ThroughputSearch search, Warmup warmup, long warmupopcount, RateLimiter limiter)
       throws IOException
   {
     MeasurementsExporter exporter = null;
@@ -527,8 +496,26 @@ public class Client
       if (exportFile == null)
       {
         out = System.out;
+        if (phase != null)
+        {
+          System.out.println("Phase " + phase + ":");
+          // later phases still need stdout once the exporter closes its stream
+          out = new FilterOutputStream(System.out)
+          {
+            @Override
+            public void close() throws IOException
+            {
+              flush();
+            }
+          };
+        }
       } else
       {
+        if (phase != null)
+        {
+          // each phase gets its own file
+          exportFile = exportFile + "." + phase;
+        }
         out = new FileOutputStream(exportFile);
       }
 
@@ -549,6 +536,23 @@ public class Client
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
+      if (warmup != null)
+      {
+        exporter.write("WARMUP", "RunTime(ms)", warmup.getRunTimeMillis());
+        exporter.write("WARMUP", "Operations", warmupopcount);
+      }
+
+      if (limiter != null)
+      {
+        exporter.write("THROTTLE", "Permits", limiter.getIssuedPermits());
+        exporter.write("THROTTLE", "LatePermits", limiter.getLatePermits());
+      }
+
+      if (search != null)
+      {
+        search.exportResults(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally
     {
@@ -562,12 +566,9 @@ public class Client
   @SuppressWarnings("unchecked")
   public static void main(String[] args)
   {
-    String dbname;
     Properties props=new Properties();
     Properties fileprops=new Properties();
     boolean dotransactions=true;
-    int threadcount=1;
-    int target=0;
     boolean status=false;
     String label="";
 
@@ -734,28 +735,152 @@ public class Client
       System.exit(0);
     }
 
-    long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+    System.out.println("YCSB Client 0.1");
+    System.out.print("Command line:");
+    for (int i=0; i<args.length; i++)
+    {
+      System.out.print(" "+args[i]);
+    }
+    System.out.println();
+
+    String phaselist=props.getProperty(PHASES_PROPERTY);
 
-    //get number of threads, target and db
-    threadcount=Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY,"1"));
-    dbname=props.getProperty(DB_PROPERTY,"com.yahoo.ycsb.BasicDB");
-    target=Integer.parseInt(props.getProperty(TARGET_PROPERTY,"0"));
+    CoordinatorConnection coordinator=null;
+    String coordinatoraddress=props.getProperty(Coordinator.COORDINATOR_PROPERTY);
+    if (coordinatoraddress!=null)
+    {
+      if (phaselist!=null)
+      {
+        System.out.println(PHASES_PROPERTY+" cannot be combined with "+Coordinator.COORDINATOR_PROPERTY);
+        System.exit(0);
+      }
+      try
+      {
+        System.err.println("Registering with the coordinator at "+coordinatoraddress);
+        coordinator=CoordinatorConnection.connect(coordinatoraddress);
+        Properties assignment=coordinator.receiveAssignment();
+        System.err.println("Assigned "+assignment);
+        props.putAll(assignment);
+      }
+      catch (IOException e)
+      {
+        System.out.println("Could not register with the coordinator: "+e.getMessage());
+        System.exit(0);
+      }
+    }
+
+    RunState state=new RunState(props);
+    state.coordinator=coordinator;
+    if (phaselist==null)
+    {
+      runPhase(null,props,dotransactions,status,label,state,true);
+    }
+    else
+    {
+      String[] phases=phaselist.split(",");
+      for (int i=0; i<phases.length; i++)
+      {
+        String phase=phases[i].trim();
+        System.err.println("Starting phase "+phase+" ("+(i+1)+" of "+phases.length+")");
+        Properties phaseprops=null;
+        try
+        {
+          phaseprops=getPhaseProperties(props,phase);
+        }
+        catch (IOException e)
+        {
+          System.out.println(e.getMessage());
+          System.exit(0);
+        }
+        boolean phasetransactions=!Boolean.parseBoolean(props.getProperty(PHASE_PREFIX+phase+"."+PHASE_LOAD_PROPERTY,
+            String.valueOf(!dotransactions)));
+        runPhase(phase,phaseprops,phasetransactions,status,label,state,i==phases.length-1);
+      }
+    }
+
+    System.exit(0);
+  }
+
+  /**
+   * Run one phase: the whole run, or one of the "phases" of a multi-phase run.
+   *
+   * @param phase The name of the phase, or null for a single-phase run.
+   * @param props The properties of this phase.
+   * @param dotransactions true to do transactions, false to insert data
+   * @param status true to report status periodically
+   * @param label the label prefixed to status lines
+   * @param state The DB instances and workload carried over from the previous phase, if any.
+   * @param last true if this is the last phase, after which the DB instances and workload are cleaned up.
+   */
+  private static void runPhase(String phase, Properties props, boolean dotransactions, boolean status,
+      String label, RunState state, boolean last)
+  {
+    if (!checkRequiredProperties(props))
+    {
+      System.exit(0);
+    }
+
+    long maxExecutionTime = Long.parseLong(props.getProperty(MAX_EXECUTION_TIME, "0"));
+
+    //get number of threads, target and db; the connections are kept across phases, so these are fixed
+    int threadcount=state.threadcount;
+    String dbname=state.dbname;
+    int target=Integer.parseInt(props.getProperty(TARGET_PROPERTY,"0"));
+    int asyncwindow=state.asyncwindow;
+
+    TargetProfile profile=null;
+    try
+    {
+      profile=TargetProfile.fromProperties(props);
+    }
+    catch (IOException e)
+    {
+      System.out.println("Could not read target profile: "+e.getMessage());
+      System.exit(0);
+    }
+
+    // the SLA search drives the target itself
+    AdjustableTargetProfile searchprofile=null;
+    if (Boolean.parseBoolean(props.getProperty(ThroughputSearch.SEARCH_PROPERTY,"false")))
+    {
+      if (profile!=null)
+      {
+        System.err.println("Ignoring "+TargetProfile.PROFILE_PROPERTY+" during "+ThroughputSearch.SEARCH_PROPERTY);
+      }
+      searchprofile=new AdjustableTargetProfile(Double.parseDouble(
+          props.getProperty(ThroughputSearch.START_PROPERTY,ThroughputSearch.START_PROPERTY_DEFAULT)));
+      profile=searchprofile;
+    }
 
     //compute the target throughput
     double targetperthreadperms=-1;
-    if (target>0)
+    ArrivalSchedule schedule=null;
+    RateLimiter limiter=null;
+    if (Boolean.parseBoolean(props.getProperty(OPEN_LOOP_PROPERTY,"false")))
+    {
+      if (profile==null && target<=0)
+      {
+        System.out.println("Open-loop mode requires a positive \""+TARGET_PROPERTY+"\" or a \""+TargetProfile.PROFILE_PROPERTY+"\"");
+        System.exit(0);
+      }
+      schedule=new ArrivalSchedule(profile!=null ? profile : TargetProfile.constant(target),
+          props.getProperty(OPEN_LOOP_ARRIVALS_PROPERTY,ArrivalSchedule.FIXED));
+    }
+    else if (THROTTLE_SHARED.equals(props.getProperty(THROTTLE_PROPERTY,THROTTLE_PER_THREAD)))
+    {
+      if (profile!=null || target>0)
+      {
+        limiter=new RateLimiter(profile!=null ? profile : TargetProfile.constant(target),
+            Double.parseDouble(props.getProperty(THROTTLE_BURST_PROPERTY,String.valueOf(threadcount))));
+      }
+    }
+    // with a profile and no shared throttle, each thread follows its share of it, see ClientThread.setTargetProfile
+    else if (profile==null && target>0)
     {
       double targetperthread=((double)target)/((double)threadcount);
       targetperthreadperms=targetperthread/1000.0;
     }
 
-    System.out.println("YCSB Client 0.1");
-    System.out.print("Command line:");
-    for (int i=0; i<args.length; i++)
-    {
-      System.out.print(" "+args[i]);
-    }
-    System.out.println();
     System.err.println("Loading workload...");
 
     //show a warning message that creating the workload is taking a while
@@ -780,37 +905,61 @@ public class Client
 
     warningthread.start();
 
-    //set up measurements
-    Measurements.setProperties(props);
-
-    //load the workload
-    ClassLoader classLoader = Client.class.getClassLoader();
+    //set up measurements; later phases start from empty ones
+    if (state.workload==null)
+    {
+      Measurements.setProperties(props);
+    }
+    else
+    {
+      Measurements.getMeasurements().reset();
+    }
 
-    Workload workload=null;
+    //load the workload, or carry the previous phase's one over if it is of the same class
+    String workloadclassname=props.getProperty(WORKLOAD_PROPERTY);
+    Workload workload=state.workload;
 
     try
     {
-      Class workloadclass = classLoader.loadClass(props.getProperty(WORKLOAD_PROPERTY));
+      if (workload!=null && workloadclassname.equals(state.workloadclassname))
+      {
+        workload.clearStopRequest();
+        workload.initPhase(props);
+      }
+      else
+      {
+        if (workload!=null)
+        {
+          workload.cleanup();
+        }
+
+        ClassLoader classLoader = Client.class.getClassLoader();
+        Class workloadclass = classLoader.loadClass(workloadclassname);
 
-      workload=(Workload)workloadclass.newInstance();
+        workload=(Workload)workloadclass.newInstance();
+        workload.init(props);
+      }
     }
-    catch (Exception e)
+    catch (WorkloadException e)
     {
       e.printStackTrace();
       e.printStackTrace(System.out);
       System.exit(0);
     }
-
-    try
-    {
-      workload.init(props);
-    }
-    catch (WorkloadException e)
+    catch (Exception e)
     {
       e.printStackTrace();
       e.printStackTrace(System.out);
       System.exit(0);
     }
+    state.workload=workload;
+    state.workloadclassname=workloadclassname;
+
+    if (state.coordinator!=null && !Measurements.getMeasurements().hasHdrHistograms())
+    {
+      System.out.println(Coordinator.COORDINATOR_PROPERTY+" needs an hdrhistogram "+Measurements.MEASUREMENT_TYPE_PROPERTY);
+      System.exit(0);
+    }
 
     warningthread.interrupt();
 
@@ -818,20 +967,42 @@ public class Client
 
     System.err.println("Starting test.");
 
-    int opcount;
+    long opcount;
     if (dotransactions)
     {
-      opcount=Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
+      opcount=Long.parseLong(props.getProperty(OPERATION_COUNT_PROPERTY,"0"));
     }
     else
     {
       if (props.containsKey(INSERT_COUNT_PROPERTY))
       {
-        opcount=Integer.parseInt(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
+        opcount=Long.parseLong(props.getProperty(INSERT_COUNT_PROPERTY,"0"));
       }
       else
       {
-        opcount=Integer.parseInt(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+        opcount=Long.parseLong(props.getProperty(RECORD_COUNT_PROPERTY, DEFAULT_RECORD_COUNT));
+      }
+    }
+
+    Warmup warmup=Warmup.fromProperties(props);
+    if (warmup!=null && !dotransactions)
+    {
+      System.err.println("Ignoring the warm-up settings while loading");
+      warmup=null;
+    }
+
+    //the DB instances keep the settings of the phase they were created in
+    if (state.dbprops==null)
+    {
+      state.dbprops=new DBProperties(props);
+    }
+    else
+    {
+      for (String key : state.dbprops.changedBy(props))
+      {
+        String kept=state.dbprops.kept(key);
+        System.err.println("Phase "+phase+": ignoring "+key+"="+props.getProperty(key)+" for the DB instances, "
+            +"which keep "+(kept==null ? "its default" : key+"="+kept)+" from the phase they were created in");
       }
     }
 
@@ -840,9 +1011,26 @@ public class Client
     for (int threadid=0; threadid<threadcount; threadid++)
     {
       DB db=null;
+      AsyncDB asyncdb=null;
+      boolean newdb=threadid>=(asyncwindow>0 ? state.asyncdbs.size() : state.dbs.size());
       try
       {
-        db=DBFactory.newDB(dbname,props);
+        if (asyncwindow>0)
+        {
+          if (newdb)
+          {
+            state.asyncdbs.add(DBFactory.newAsyncDB(dbname,state.dbprops.forDB()));
+          }
+          asyncdb=state.asyncdbs.get(threadid);
+        }
+        else
+        {
+          if (newdb)
+          {
+            state.dbs.add(DBFactory.newDB(dbname,state.dbprops.forDB()));
+          }
+          db=state.dbs.get(threadid);
+        }
       }
       catch (UnknownDBException e)
       {
@@ -851,7 +1039,7 @@ public class Client
       }
 
 
-      int threadopcount = opcount/threadcount;
+      long threadopcount = opcount/threadcount;
 
       // ensure correct number of operations, in case opcount is not a multiple of threadcount
       if (threadid<opcount%threadcount)
@@ -859,11 +1047,50 @@ public class Client
         ++threadopcount;
       }
 
-      ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+      ClientThread t;
+      if (asyncdb!=null)
+      {
+        t=new ClientThread(asyncdb,asyncwindow,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+      }
+      else
+      {
+        t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+      }
+      if (schedule!=null)
+      {
+        t.setArrivalSchedule(schedule);
+      }
+      else if (limiter!=null)
+      {
+        t.setRateLimiter(limiter);
+      }
+      else if (profile!=null)
+      {
+        t.setTargetProfile(profile, 1.0/threadcount);
+      }
+      if (warmup!=null)
+      {
+        t.setWarmup(warmup);
+      }
+      t.setDBLifecycle(newdb,last);
 
       clients.add(t);
     }
 
+    ThroughputSearch search=null;
+    if (searchprofile!=null)
+    {
+      try
+      {
+        search=new ThroughputSearch(searchprofile,props,clients,completeLatch,workload);
+      }
+      catch (IllegalArgumentException e)
+      {
+        System.out.println(e.getMessage());
+        System.exit(0);
+      }
+    }
+
     StatusThread statusthread=null;
 
     if (status)
@@ -878,33 +1105,76 @@ public class Client
       statusthread.start();
     }
 
+    ThreadFactory threadfactory=ClientThreadFactory.forMode(props.getProperty(THREAD_MODE_PROPERTY,ClientThreadFactory.PLATFORM));
+    final List<Thread> threads=new ArrayList<Thread>(threadcount);
+    for (ClientThread c : clients)
+    {
+      threads.add(threadfactory.newThread(c));
+    }
+
+    if (state.coordinator!=null)
+    {
+      try
+      {
+        state.coordinator.awaitStart();
+      }
+      catch (IOException e)
+      {
+        System.out.println("Lost the coordinator: "+e.getMessage());
+        System.exit(0);
+      }
+    }
+
     long st=System.currentTimeMillis();
 
-    for (Thread t : clients)
+    if (warmup!=null)
+    {
+      warmup.start();
+    }
+
+    if (profile!=null)
+    {
+      profile.start(System.nanoTime());
+    }
+
+    for (Thread t : threads)
     {
       t.start();
     }
 
+    if (search != null) {
+      search.start();
+    }
+
+    if (state.coordinator != null) {
+      state.coordinator.startReporting(clients);
+    }
+
     Thread terminator = null;
 
     if (maxExecutionTime > 0) {
-      terminator = new TerminatorThread(maxExecutionTime, clients, workload);
+      terminator = new TerminatorThread(maxExecutionTime, threads, workload);
       terminator.start();
     }
 
-    int opsDone = 0;
+    long opsDone = 0;
+    long warmupOpsDone = 0;
 
-    for (Thread t : clients)
+    for (Thread t : threads)
     {
       try
       {
         t.join();
-        opsDone += ((ClientThread)t).getOpsDone();
       }
       catch (InterruptedException e)
       {
       }
     }
+    for (ClientThread c : clients)
+    {
+      opsDone += c.getOpsDone();
+      warmupOpsDone += c.getWarmupOpsDone();
+    }
 
     long en=System.currentTimeMillis();
 
@@ -912,6 +1182,14 @@ public class Client
       terminator.interrupt();
     }
 
+    if (search != null) {
+      // returns promptly now that the clients are done
+      try {
+        search.join();
+      } catch (InterruptedException e) {
+      }
+    }
+
     if (status)
     {
       // wake up status thread if it's asleep
@@ -923,20 +1201,53 @@ public class Client
       }
     }
 
-    try
+    if (last)
+    {
+      try
+      {
+        workload.cleanup();
+      }
+      catch (WorkloadException e)
+      {
+        e.printStackTrace();
+        e.printStackTrace(System.out);
+        System.exit(0);
+      }
+    }
+
+    if (warmup != null && warmup.isActive())
     {
-      workload.cleanup();
+      System.err.println("WARNING: the run ended during the warm-up; only warm-up measurements were taken.");
     }
-    catch (WorkloadException e)
+    // only what ran after the warm-up counts towards the overall throughput
+    long measuredOps = opsDone;
+    long runtime = en - st;
+    if (warmup != null && warmup.getEndTimeMillis() != 0)
     {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
-      System.exit(0);
+      measuredOps = opsDone - warmupOpsDone;
+      runtime = en - warmup.getEndTimeMillis();
+    }
+
+    if (state.coordinator != null)
+    {
+      try
+      {
+        state.coordinator.finish(runtime);
+      }
+      catch (IOException e)
+      {
+        System.err.println("Could not send the final report to the coordinator: " + e.getMessage());
+      }
     }
 
     try
     {
-      exportMeasurements(props, opsDone, en - st);
+      exportMeasurements(props, phase, measuredOps, runtime, search, warmup, warmupOpsDone, limiter);
+      if (last)
+      {
+        // the export flushed what the measurements buffered, so the files they stream to are complete
+        Measurements.getMeasurements().close();
+      }
     } catch (IOException e)
     {
       System.err.println("Could not export measurements, error: " + e.getMessage());
@@ -944,6 +1255,60 @@ public class Client
       System.exit(-1);
     }
 
-    System.exit(0);
+  }
+
+  /**
+   * The properties of one phase of a multi-phase run: the run's own properties, then the phase's property file,
+   * if any, then any "phase.&lt;name&gt;.*" properties with the prefix removed.
+   */
+  static Properties getPhaseProperties(Properties props, String phase) throws IOException
+  {
+    Properties phaseprops=new Properties();
+    phaseprops.putAll(props);
+
+    String prefix=PHASE_PREFIX+phase+".";
+    String propfile=props.getProperty(prefix+PHASE_FILE_PROPERTY);
+    if (propfile!=null)
+    {
+      Properties fileprops=new Properties();
+      FileInputStream in=new FileInputStream(propfile);
+      try
+      {
+        fileprops.load(in);
+      }
+      finally
+      {
+        in.close();
+      }
+      phaseprops.putAll(fileprops);
+    }
+
+    for (Enumeration e=props.propertyNames(); e.hasMoreElements(); )
+    {
+      String prop=(String)e.nextElement();
+      if (prop.startsWith(prefix))
+      {
+        phaseprops.setProperty(prop.substring(prefix.length()),props.getProperty(prop));
+      }
+    }
+
+    for (String fixed : new String[] {THREAD_COUNT_PROPERTY, DB_PROPERTY, ASYNC_WINDOW_PROPERTY})
+    {
+      String value=props.getProperty(fixed);
+      String phasevalue=phaseprops.getProperty(fixed);
+      if (phasevalue!=null && !phasevalue.equals(value))
+      {
+        System.err.println("Phase "+phase+": ignoring "+fixed+"="+phasevalue+", it is fixed for the whole run");
+        if (value==null)
+        {
+          phaseprops.remove(fixed);
+        }
+        else
+        {
+          phaseprops.setProperty(fixed,value);
+        }
+      }
+    }
+    return phaseprops;
   }
 }
@@ -0,0 +1,456 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OperationOverhead;
+
+/**
+ * A logical client executing transactions or data inserts to the database. Each one runs on its own
+ * platform or virtual thread, as created by {@link ClientThreadFactory}.
+ *
+ * @author cooperb
+ *
+ */
+class ClientThread implements Runnable, OperationCounts
+{
+  /** Counts down each of the clients completing. */
+  private final CountDownLatch _completeLatch;
+
+  private static boolean _spinSleep;
+  DB _db;
+  AsyncDB _asyncdb;
+  boolean _dotransactions;
+  Workload _workload;
+  long _opcount;
+  double _targetOpsPerMs;
+
+  /** Only written by this thread; volatile so the status, search and coordinator threads see whole, current values. */
+  volatile long _opsdone;
+  int _threadid;
+  int _threadcount;
+  Object _workloadstate;
+  Properties _props;
+  long _targetOpsTickNs;
+  final Measurements _measurements;
+
+  /** Set when the client overhead of each operation is being accounted. */
+  final OperationOverhead _overhead;
+
+  /** Bounds the number of operations in flight when running against an {@link AsyncDB}. */
+  Semaphore _window;
+  int _windowsize;
+  volatile boolean _insertfailed;
+
+  /** When set, operations follow this open-loop schedule instead of the per-thread throttle. */
+  ArrivalSchedule _schedule;
+
+  /** When set, operations wait for a permit from this limiter shared with the other client threads. */
+  RateLimiter _limiter;
+
+  /** When set, the per-thread throttle follows this share of a time-varying target. */
+  TargetProfile _profile;
+  double _profileShare;
+  long _nextDeadlineNs;
+
+  /** Whether this thread initializes and cleans up its DB; in a multi-phase run the DB outlives the thread. */
+  boolean _initdb=true;
+  boolean _cleanupdb=true;
+
+  /** When set, operations issued while it is active are warm-up operations. */
+  Warmup _warmup;
+  /** Only written by this thread, like _opsdone. */
+  volatile long _warmupopsdone;
+
+  /**
+   * The callback of one operation of this thread. Releases the operation's window slot exactly once, whether
+   * the operation completes or the workload gives up without issuing it.
+   */
+  private final class Completion implements AsyncCallback
+  {
+    /** Set by whichever of the callback and abandon() gets there first. */
+    private final AtomicBoolean _released = new AtomicBoolean();
+
+    @Override
+    public void completed(Status status)
+    {
+      if (_released.compareAndSet(false, true))
+      {
+        if (!_dotransactions && !Status.OK.equals(status))
+        {
+          _insertfailed=true;
+        }
+        _window.release();
+      }
+    }
+
+    /**
+     * Release the slot of an operation the workload stopped at, unless its callback already has.
+     */
+    void abandon()
+    {
+      if (_released.compareAndSet(false, true))
+      {
+        _window.release();
+      }
+    }
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param db the DB implementation to use
+   * @param dotransactions true to do transactions, false to insert data
+   * @param workload the workload to use
+   * @param props the properties defining the experiment
+   * @param opcount the number of operations (transactions or inserts) to do
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch The latch tracking the completion of all clients.
+   */
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, long opcount, double targetperthreadperms, CountDownLatch completeLatch)
+  {
+    _db=db;
+    _dotransactions=dotransactions;
+    _workload=workload;
+    _opcount=opcount;
+    _opsdone=0;
+    if(targetperthreadperms > 0){
+      _targetOpsPerMs=targetperthreadperms;
+      _targetOpsTickNs=(long)(1000000/_targetOpsPerMs);
+    }
+    _props=props;
+    _measurements = Measurements.getMeasurements();
+    _overhead = _measurements.getOverhead();
+    _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
+    _completeLatch=completeLatch;
+  }
+
+  /**
+   * Constructor for a thread that keeps up to windowsize operations in flight against an asynchronous DB.
+   *
+   * @param db the AsyncDB implementation to use
+   * @param windowsize the maximum number of outstanding operations
+   * @param dotransactions true to do transactions, false to insert data
+   * @param workload the workload to use
+   * @param props the properties defining the experiment
+   * @param opcount the number of operations (transactions or inserts) to do
+   * @param targetperthreadperms target number of operations per thread per ms
+   * @param completeLatch The latch tracking the completion of all clients.
+   */
+  public ClientThread(AsyncDB db, int windowsize, boolean dotransactions, Workload workload, Properties props, long opcount, double targetperthreadperms, CountDownLatch completeLatch)
+  {
+    this((DB)null,dotransactions,workload,props,opcount,targetperthreadperms,completeLatch);
+    _asyncdb=db;
+    _windowsize=windowsize;
+    _window=new Semaphore(windowsize);
+  }
+
+  /**
+   * Issue operations at the arrival times handed out by a schedule shared with the other client threads.
+   */
+  void setArrivalSchedule(ArrivalSchedule schedule)
+  {
+    _schedule=schedule;
+  }
+
+  /**
+   * Draw permits from a rate limiter shared with the other client threads instead of throttling alone.
+   */
+  void setRateLimiter(RateLimiter limiter)
+  {
+    _limiter=limiter;
+  }
+
+  /**
+   * Throttle this thread to the given share of a target that changes over time.
+   */
+  void setTargetProfile(TargetProfile profile, double share)
+  {
+    _profile=profile;
+    _profileShare=share;
+  }
+
+  /**
+   * Choose whether this thread initializes its DB before its first operation and cleans it up after its last.
+   */
+  void setDBLifecycle(boolean initdb, boolean cleanupdb)
+  {
+    _initdb=initdb;
+    _cleanupdb=cleanupdb;
+  }
+
+  /**
+   * Run a warm-up before the measured transactions; its operations are not counted towards opcount.
+   */
+  void setWarmup(Warmup warmup)
+  {
+    _warmup=warmup;
+  }
+
+  public long getOpsDone()
+  {
+    return _opsdone;
+  }
+
+  /**
+   * @return The operations done while the warm-up was active; these are included in {@link #getOpsDone()}.
+   */
+  public long getWarmupOpsDone()
+  {
+    return _warmupopsdone;
+  }
+
+  @Override
+  public void run()
+  {
+    try
+    {
+      if (_initdb)
+      {
+        if (_asyncdb != null)
+        {
+          _asyncdb.init();
+        }
+        else
+        {
+          _db.init();
+        }
+      }
+    }
+    catch (DBException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return;
+    }
+
+    try
+    {
+      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+    }
+    catch (WorkloadException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return;
+    }
+
+    //NOTE: Switching to using nanoTime and parkNanos for time management here such that the measurements
+    // and the client thread have the same view on time.
+
+    //spread the thread operations out so they don't all hit the DB at the same time
+    // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
+    // and the sleep() doesn't make sense for granularities < 1 ms anyway
+    if ((_targetOpsPerMs > 0) && (_targetOpsPerMs <= 1.0))
+    {
+      long randomMinorDelay = Utils.random().nextInt((int) _targetOpsTickNs);
+      sleepUntil(System.nanoTime() + randomMinorDelay);
+    }
+    try
+    {
+      if (_dotransactions)
+      {
+        long startTimeNanos = System.nanoTime();
+
+        while (((_opcount == 0) || (_opsdone - _warmupopsdone < _opcount)) && !_workload.isStopRequested())
+        {
+          awaitArrival();
+
+          boolean warmingup=_warmup!=null && _warmup.isActive();
+
+          if (_asyncdb != null)
+          {
+            _window.acquireUninterruptibly();
+            Completion completion=new Completion();
+            if (!_workload.doTransactionAsync(_asyncdb,_workloadstate,completion))
+            {
+              completion.abandon();
+              break;
+            }
+          }
+          else
+          {
+            if (_overhead != null)
+            {
+              _overhead.begin();
+            }
+            if (!_workload.doTransaction(_db,_workloadstate))
+            {
+              break;
+            }
+            if (_overhead != null)
+            {
+              _overhead.end();
+            }
+          }
+
+          _opsdone++;
+          if (warmingup)
+          {
+            _warmupopsdone++;
+            _warmup.opDone();
+          }
+
+          throttleNanos(startTimeNanos);
+        }
+      }
+      else
+      {
+        long startTimeNanos = System.nanoTime();
+
+        while (((_opcount == 0) || (_opsdone < _opcount)) && !_insertfailed && !_workload.isStopRequested())
+        {
+          awaitArrival();
+
+          if (_asyncdb != null)
+          {
+            _window.acquireUninterruptibly();
+            Completion completion=new Completion();
+            if (!_workload.doInsertAsync(_asyncdb,_workloadstate,completion))
+            {
+              completion.abandon();
+              break;
+            }
+          }
+          else
+          {
+            if (_overhead != null)
+            {
+              _overhead.begin();
+            }
+            if (!_workload.doInsert(_db,_workloadstate))
+            {
+              break;
+            }
+            if (_overhead != null)
+            {
+              _overhead.end();
+            }
+          }
+
+          _opsdone++;
+
+          throttleNanos(startTimeNanos);
+        }
+      }
+    }
+    catch (Exception e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      System.exit(0);
+    }
+
+    if (_asyncdb != null)
+    {
+      // wait for everything still in flight before tearing the DB down
+      _window.acquireUninterruptibly(_windowsize);
+    }
+
+    try
+    {
+      _measurements.setIntendedStartTimeNs(0);
+      if (_cleanupdb)
+      {
+        if (_asyncdb != null)
+        {
+          _asyncdb.cleanup();
+        }
+        else
+        {
+          _db.cleanup();
+        }
+      }
+    }
+    catch (DBException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+      return;
+    }
+    finally
+    {
+      _completeLatch.countDown();
+    }
+  }
+
+  static void sleepUntil(long deadline) {
+    long now = System.nanoTime();
+    while((now = System.nanoTime()) < deadline) {
+      if (!_spinSleep) {
+        LockSupport.parkNanos(deadline - now);
+      }
+    }
+  }
+  /**
+   * In open-loop mode, wait for the next scheduled arrival, or with a shared rate limiter for the next permit,
+   * and record it as the intended start time of the operation about to be issued.
+   */
+  private void awaitArrival() {
+    if (_schedule != null)
+    {
+      long arrival = _schedule.claim();
+      sleepUntil(arrival);
+      _measurements.setIntendedStartTimeNs(arrival);
+    }
+    else if (_limiter != null)
+    {
+      long permit = _limiter.acquire();
+      sleepUntil(permit);
+      _measurements.setIntendedStartTimeNs(permit);
+    }
+  }
+
+  private void throttleNanos(long startTimeNanos) {
+    if (_profile != null)
+    {
+      // the tick length follows the profile, so step from one deadline to the next
+      if (_nextDeadlineNs == 0)
+      {
+        _nextDeadlineNs = startTimeNanos;
+      }
+      _nextDeadlineNs = _profile.nextArrival(_nextDeadlineNs, _profileShare, false);
+      sleepUntil(_nextDeadlineNs);
+      _measurements.setIntendedStartTimeNs(_nextDeadlineNs);
+      return;
+    }
+    //throttle the operations
+    if (_targetOpsPerMs > 0)
+    {
+      // delay until next tick
+      long deadline = startTimeNanos + _opsdone*_targetOpsTickNs;
+      sleepUntil(deadline);
+      _measurements.setIntendedStartTimeNs(deadline);
+    }
+  }
+  
+  /**
+   * the total amount of work this thread is still expected to do; warm-up operations don't count towards it
+   */
+  public long getOpsTodo()
+  {
+    long todo = _dotransactions ? _opcount - (_opsdone - _warmupopsdone) : _opcount - _opsdone;
+    return todo < 0 ? 0 : todo;
+  }
+}
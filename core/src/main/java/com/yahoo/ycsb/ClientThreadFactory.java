@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the threads that run each logical client. In "platform" mode every
+ * client gets an ordinary OS thread, as YCSB always has. In "virtual" mode each
+ * client runs on a virtual thread, which lets a single load generator simulate
+ * tens of thousands of concurrent sessions; this needs a Java 21 or newer
+ * runtime. The virtual thread API is looked up reflectively so the client
+ * still builds and runs on older JVMs, where "virtual" falls back to platform
+ * threads with a warning.
+ */
+public final class ClientThreadFactory
+{
+  /** One OS thread per client (the default). */
+  public static final String PLATFORM = "platform";
+
+  /** One virtual thread per client, when the runtime supports it. */
+  public static final String VIRTUAL = "virtual";
+
+  private ClientThreadFactory()
+  {
+  }
+
+  /**
+   * @param mode Either {@link #PLATFORM} or {@link #VIRTUAL}.
+   * @return A factory for client threads in the requested mode.
+   */
+  public static ThreadFactory forMode(String mode)
+  {
+    if (PLATFORM.equals(mode))
+    {
+      return platform();
+    }
+    if (!VIRTUAL.equals(mode))
+    {
+      throw new IllegalArgumentException("Unknown thread mode \"" + mode + "\"");
+    }
+    ThreadFactory factory = virtual();
+    if (factory == null)
+    {
+      System.err.println("Virtual threads are not supported by this JVM ("
+          + System.getProperty("java.version") + "); using platform threads.");
+      return platform();
+    }
+    return factory;
+  }
+
+  /**
+   * @return True if this JVM can run clients on virtual threads.
+   */
+  public static boolean virtualThreadsSupported()
+  {
+    return virtual() != null;
+  }
+
+  private static ThreadFactory platform()
+  {
+    return new ThreadFactory()
+    {
+      @Override
+      public Thread newThread(Runnable r)
+      {
+        return new Thread(r);
+      }
+    };
+  }
+
+  /**
+   * Equivalent to Thread.ofVirtual().factory(), or null if the API is not available.
+   */
+  private static ThreadFactory virtual()
+  {
+    try
+    {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+      return (ThreadFactory) factory.invoke(builder);
+    }
+    catch (Exception e)
+    {
+      return null;
+    }
+  }
+}
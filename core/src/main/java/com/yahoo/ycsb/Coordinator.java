@@ -0,0 +1,500 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+/**
+ * Coordinates a run spread over several client processes. Each worker is a
+ * regular {@link Client} started with -p coordinator=host:port. Workers
+ * register with the coordinator, which hands each its slice of the keys to
+ * load (insertstart/insertcount) and its share of operationcount and target,
+ * and starts them all at once when every worker is ready. While they run, the
+ * workers stream the HdrHistograms of their latencies back, so the
+ * coordinator can report exact percentiles over the whole cluster instead of
+ * per process.
+ *
+ * <pre>
+ * java com.yahoo.ycsb.Coordinator -workers 4 -P workloads/workloada -p recordcount=1000000
+ * java com.yahoo.ycsb.Client -t -db ... -P workloads/workloada -p coordinator=localhost:6000   (4 times)
+ * </pre>
+ */
+public class Coordinator
+{
+  /** Set on a worker to the host:port of the coordinator to register with. */
+  public static final String COORDINATOR_PROPERTY = "coordinator";
+
+  /** The number of workers to wait for. */
+  public static final String WORKERS_PROPERTY = "coordinator.workers";
+
+  /** The port the coordinator listens on. */
+  public static final String PORT_PROPERTY = "coordinator.port";
+  public static final String PORT_PROPERTY_DEFAULT = "6000";
+
+  /** How often, in seconds, workers report their latencies and the coordinator prints the cluster status. */
+  public static final String INTERVAL_PROPERTY = "coordinator.interval";
+  public static final String INTERVAL_PROPERTY_DEFAULT = "1";
+
+  /** Worker to coordinator: a new worker. */
+  static final String REGISTER = "REGISTER";
+  /** Coordinator to worker: the property overrides for this worker. */
+  static final String ASSIGN = "ASSIGN";
+  /** Worker to coordinator: initialized and waiting to start. */
+  static final String READY = "READY";
+  /** Coordinator to worker: go. */
+  static final String START = "START";
+  /** Worker to coordinator: the operations done so far and the latencies recorded since the last report. */
+  static final String INTERVAL = "INTERVAL";
+  /** Worker to coordinator: like INTERVAL, followed by the worker's run time; the last message. */
+  static final String DONE = "DONE";
+
+  /**
+   * One registered worker, read by its own thread.
+   */
+  static class Worker extends Thread
+  {
+    final int _index;
+    final Socket _socket;
+    final DataInputStream _in;
+    final DataOutputStream _out;
+    final Measurements _measurements;
+    final CountDownLatch _doneLatch;
+
+    volatile long _opsdone;
+    volatile long _runtime;
+    volatile boolean _failed;
+
+    Worker(int index, Socket socket, Measurements measurements, CountDownLatch doneLatch) throws IOException
+    {
+      super("Worker " + index);
+      setDaemon(true);
+      _index = index;
+      _socket = socket;
+      _in = new DataInputStream(socket.getInputStream());
+      _out = new DataOutputStream(socket.getOutputStream());
+      _measurements = measurements;
+      _doneLatch = doneLatch;
+    }
+
+    void expect(String message) throws IOException
+    {
+      String got = _in.readUTF();
+      if (!message.equals(got))
+      {
+        throw new IOException("Worker " + _index + " sent " + got + ", expected " + message);
+      }
+    }
+
+    void assign(Properties overrides, int interval) throws IOException
+    {
+      _out.writeUTF(ASSIGN);
+      _out.writeInt(overrides.size() + 1);
+      _out.writeUTF(INTERVAL_PROPERTY);
+      _out.writeUTF(String.valueOf(interval));
+      for (String name : overrides.stringPropertyNames())
+      {
+        _out.writeUTF(name);
+        _out.writeUTF(overrides.getProperty(name));
+      }
+      _out.flush();
+    }
+
+    /**
+     * Release the worker from the start barrier and start reading its reports.
+     */
+    void begin() throws IOException
+    {
+      _out.writeUTF(START);
+      _out.flush();
+      start();
+    }
+
+    @Override
+    public void run()
+    {
+      try
+      {
+        while (true)
+        {
+          String message = _in.readUTF();
+          if (INTERVAL.equals(message))
+          {
+            readReport();
+          }
+          else if (DONE.equals(message))
+          {
+            readReport();
+            _runtime = _in.readLong();
+            break;
+          }
+          else
+          {
+            throw new IOException("Unexpected message " + message);
+          }
+        }
+      }
+      catch (IOException e)
+      {
+        System.err.println("Lost worker " + _index + ": " + e.getMessage());
+        _failed = true;
+      }
+      finally
+      {
+        try
+        {
+          _socket.close();
+        }
+        catch (IOException e)
+        {
+        }
+        _doneLatch.countDown();
+      }
+    }
+
+    private void readReport() throws IOException
+    {
+      _opsdone = _in.readLong();
+      int count = _in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+        String name = _in.readUTF();
+        byte[] encoded = new byte[_in.readInt()];
+        _in.readFully(encoded);
+        try
+        {
+          _measurements.mergeHdrHistogram(name, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0));
+        }
+        catch (DataFormatException e)
+        {
+          throw new IOException("Corrupt histogram for " + name, e);
+        }
+      }
+    }
+  }
+
+  public static void usageMessage()
+  {
+    System.out.println("Usage: java com.yahoo.ycsb.Coordinator [options]");
+    System.out.println("Options:");
+    System.out.println("  -workers n: wait for n workers (can also be set as the \"" + WORKERS_PROPERTY + "\" property)");
+    System.out.println("  -port n: listen on port n (default: " + PORT_PROPERTY_DEFAULT + ")");
+    System.out.println("  -P propertyfile: load properties from the given file; use the same workload");
+    System.out.println("           properties as the workers, so the key space is split correctly");
+    System.out.println("  -p name=value:  specify a property");
+  }
+
+  public static void main(String[] args)
+  {
+    Properties props = new Properties();
+    Properties fileprops = new Properties();
+
+    for (int argindex = 0; argindex < args.length; argindex++)
+    {
+      String arg = args[argindex];
+      if (argindex + 1 >= args.length)
+      {
+        usageMessage();
+        System.exit(0);
+      }
+      String value = args[++argindex];
+      if (arg.equals("-workers"))
+      {
+        props.setProperty(WORKERS_PROPERTY, value);
+      }
+      else if (arg.equals("-port"))
+      {
+        props.setProperty(PORT_PROPERTY, value);
+      }
+      else if (arg.equals("-P"))
+      {
+        try
+        {
+          FileInputStream in = new FileInputStream(value);
+          try
+          {
+            fileprops.load(in);
+          }
+          finally
+          {
+            in.close();
+          }
+        }
+        catch (IOException e)
+        {
+          System.out.println(e.getMessage());
+          System.exit(0);
+        }
+      }
+      else if (arg.equals("-p") && value.indexOf('=') > 0)
+      {
+        int eq = value.indexOf('=');
+        props.setProperty(value.substring(0, eq), value.substring(eq + 1));
+      }
+      else
+      {
+        usageMessage();
+        System.exit(0);
+      }
+    }
+    fileprops.putAll(props);
+    props = fileprops;
+
+    if (props.getProperty(WORKERS_PROPERTY) == null)
+    {
+      System.out.println("Missing property: " + WORKERS_PROPERTY);
+      System.exit(0);
+    }
+
+    try
+    {
+      run(props);
+    }
+    catch (IOException e)
+    {
+      System.err.println("Coordinated run failed: " + e.getMessage());
+      e.printStackTrace();
+      System.exit(-1);
+    }
+    System.exit(0);
+  }
+
+  /**
+   * Split a total of count items, starting at start, into workers slices.
+   *
+   * @return The start of each slice, followed by the end of the last one.
+   */
+  static long[] split(long start, long count, int workers)
+  {
+    long[] bounds = new long[workers + 1];
+    for (int i = 0; i <= workers; i++)
+    {
+      bounds[i] = start + count * i / workers;
+    }
+    return bounds;
+  }
+
+  /**
+   * The property overrides handed to each worker.
+   */
+  static List<Properties> assignments(Properties props, int workers)
+  {
+    long recordcount = Long.parseLong(props.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+    long insertstart = Long.parseLong(props.getProperty(Workload.INSERT_START_PROPERTY,
+        Workload.INSERT_START_PROPERTY_DEFAULT));
+    long insertcount = Long.parseLong(props.getProperty(Client.INSERT_COUNT_PROPERTY,
+        String.valueOf(recordcount - insertstart)));
+    long operationcount = Long.parseLong(props.getProperty(Client.OPERATION_COUNT_PROPERTY, "0"));
+    long target = Long.parseLong(props.getProperty(Client.TARGET_PROPERTY, "0"));
+
+    long[] inserts = split(insertstart, insertcount, workers);
+    long[] operations = split(0, operationcount, workers);
+    long[] targets = split(0, target, workers);
+
+    List<Properties> assignments = new ArrayList<Properties>(workers);
+    for (int i = 0; i < workers; i++)
+    {
+      Properties p = new Properties();
+      p.setProperty(Workload.INSERT_START_PROPERTY, String.valueOf(inserts[i]));
+      p.setProperty(Client.INSERT_COUNT_PROPERTY, String.valueOf(inserts[i + 1] - inserts[i]));
+      if (operationcount > 0)
+      {
+        // at least one, as 0 would mean running forever
+        p.setProperty(Client.OPERATION_COUNT_PROPERTY, String.valueOf(Math.max(1, operations[i + 1] - operations[i])));
+      }
+      if (target > 0)
+      {
+        p.setProperty(Client.TARGET_PROPERTY, String.valueOf(Math.max(1, targets[i + 1] - targets[i])));
+      }
+      assignments.add(p);
+    }
+    return assignments;
+  }
+
+  static void run(Properties props) throws IOException
+  {
+    int port = Integer.parseInt(props.getProperty(PORT_PROPERTY, PORT_PROPERTY_DEFAULT));
+
+    Measurements.setProperties(props);
+    Measurements measurements = Measurements.getMeasurements();
+    if (!measurements.hasHdrHistograms())
+    {
+      throw new IOException("The coordinator needs an hdrhistogram " + Measurements.MEASUREMENT_TYPE_PROPERTY);
+    }
+
+    List<Worker> workers = coordinate(props, new ServerSocket(port), measurements);
+    export(props, workers, measurements);
+  }
+
+  /**
+   * Register the workers on the given server socket, which is closed once they all have, then start them and
+   * merge their latencies into the given measurements until every one of them is done.
+   *
+   * @return The workers, with their final operation counts and run times.
+   */
+  static List<Worker> coordinate(Properties props, ServerSocket server, Measurements measurements)
+      throws IOException
+  {
+    int workercount = Integer.parseInt(props.getProperty(WORKERS_PROPERTY));
+    int interval = Integer.parseInt(props.getProperty(INTERVAL_PROPERTY, INTERVAL_PROPERTY_DEFAULT));
+
+    CountDownLatch doneLatch = new CountDownLatch(workercount);
+    List<Worker> workers = new ArrayList<Worker>(workercount);
+    try
+    {
+      System.err.println("Waiting for " + workercount + " workers on port " + server.getLocalPort());
+      while (workers.size() < workercount)
+      {
+        Socket socket = server.accept();
+        Worker worker = new Worker(workers.size(), socket, measurements, doneLatch);
+        worker.expect(REGISTER);
+        workers.add(worker);
+        System.err.println("Worker " + worker._index + " registered from " + socket.getRemoteSocketAddress());
+      }
+    }
+    finally
+    {
+      server.close();
+    }
+
+    List<Properties> assignments = assignments(props, workercount);
+    for (Worker worker : workers)
+    {
+      worker.assign(assignments.get(worker._index), interval);
+    }
+    // the barrier: nobody starts until everyone has initialized
+    for (Worker worker : workers)
+    {
+      worker.expect(READY);
+    }
+    long st = System.currentTimeMillis();
+    for (Worker worker : workers)
+    {
+      worker.begin();
+    }
+    System.err.println("Started " + workercount + " workers");
+
+    long lastops = 0;
+    long lastMs = st;
+    boolean alldone = false;
+    DecimalFormat d = new DecimalFormat("#.##");
+    while (!alldone)
+    {
+      try
+      {
+        alldone = doneLatch.await(interval, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e)
+      {
+        alldone = true;
+      }
+      long ops = 0;
+      for (Worker worker : workers)
+      {
+        ops += worker._opsdone;
+      }
+      long now = System.currentTimeMillis();
+      StringBuilder msg = new StringBuilder().append((now - st) / 1000).append(" sec: ");
+      msg.append(ops).append(" operations; ");
+      if (now > lastMs)
+      {
+        msg.append(d.format(1000.0 * (ops - lastops) / (now - lastMs))).append(" current ops/sec; ");
+      }
+      msg.append(measurements.getSummary());
+      System.err.println(msg);
+      lastops = ops;
+      lastMs = now;
+    }
+    return workers;
+  }
+
+  private static void export(Properties props, List<Worker> workers, Measurements measurements) throws IOException
+  {
+    long ops = 0;
+    long runtime = 0;
+    int failed = 0;
+    for (Worker worker : workers)
+    {
+      ops += worker._opsdone;
+      runtime = Math.max(runtime, worker._runtime);
+      if (worker._failed)
+      {
+        failed++;
+      }
+    }
+
+    OutputStream out;
+    String exportFile = props.getProperty(Client.EXPORT_FILE_PROPERTY);
+    if (exportFile == null)
+    {
+      out = System.out;
+    }
+    else
+    {
+      out = new FileOutputStream(exportFile);
+    }
+    MeasurementsExporter exporter;
+    String exporterStr = props.getProperty(Client.EXPORTER_PROPERTY,
+        "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
+    try
+    {
+      exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+    }
+    catch (Exception e)
+    {
+      System.err.println("Could not find exporter " + exporterStr + ", will use default text reporter.");
+      exporter = new TextMeasurementsExporter(out);
+    }
+    try
+    {
+      exporter.write("OVERALL", "Workers", workers.size());
+      if (failed > 0)
+      {
+        exporter.write("OVERALL", "FailedWorkers", failed);
+      }
+      exporter.write("OVERALL", "RunTime(ms)", runtime);
+      exporter.write("OVERALL", "Throughput(ops/sec)", runtime > 0 ? 1000.0 * ops / runtime : 0);
+      measurements.exportMeasurements(exporter);
+    }
+    finally
+    {
+      exporter.close();
+    }
+  }
+}
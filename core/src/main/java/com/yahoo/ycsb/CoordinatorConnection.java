@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A worker's connection to the {@link Coordinator} of a multi-process run.
+ * It registers the worker, receives its share of the run, waits at the start
+ * barrier and then reports, at a fixed interval, the operations done and the
+ * latencies recorded since the previous report.
+ */
+class CoordinatorConnection
+{
+  private final Socket _socket;
+  private final DataInputStream _in;
+  private final DataOutputStream _out;
+
+  private long _intervalMs;
+  private List<? extends OperationCounts> _clients;
+  private Thread _reporter;
+
+  /** The measurements reported on; null for the ones of this process. */
+  private final Measurements _measurements;
+
+  /** The histograms as of the last report, so only what was recorded since is sent. */
+  private final Map<String,Histogram> _reported = new HashMap<String,Histogram>();
+
+  /** The reset count of the measurements the histograms in _reported were taken from. */
+  private int _reportedResets;
+
+  private CoordinatorConnection(Socket socket, Measurements measurements) throws IOException
+  {
+    _socket = socket;
+    _measurements = measurements;
+    _in = new DataInputStream(socket.getInputStream());
+    _out = new DataOutputStream(socket.getOutputStream());
+  }
+
+  /**
+   * Register with the coordinator at host:port.
+   */
+  static CoordinatorConnection connect(String address) throws IOException
+  {
+    return connect(address, null);
+  }
+
+  /**
+   * Register with the coordinator at host:port, to report on the given measurements rather than those of this
+   * process.
+   */
+  static CoordinatorConnection connect(String address, Measurements measurements) throws IOException
+  {
+    int colon = address.lastIndexOf(':');
+    if (colon < 0)
+    {
+      throw new IOException("Expected host:port, got " + address);
+    }
+    Socket socket = new Socket(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+    socket.setTcpNoDelay(true);
+    CoordinatorConnection connection = new CoordinatorConnection(socket, measurements);
+    connection._out.writeUTF(Coordinator.REGISTER);
+    connection._out.flush();
+    return connection;
+  }
+
+  /**
+   * Wait for every worker to register and return the properties this worker should override.
+   */
+  Properties receiveAssignment() throws IOException
+  {
+    expect(Coordinator.ASSIGN);
+    Properties assignment = new Properties();
+    int count = _in.readInt();
+    for (int i = 0; i < count; i++)
+    {
+      String name = _in.readUTF();
+      assignment.setProperty(name, _in.readUTF());
+    }
+    _intervalMs = TimeUnit.SECONDS.toMillis(Long.parseLong(assignment.getProperty(Coordinator.INTERVAL_PROPERTY,
+        Coordinator.INTERVAL_PROPERTY_DEFAULT)));
+    return assignment;
+  }
+
+  /**
+   * Tell the coordinator this worker is ready and wait for every other worker to be, too.
+   */
+  void awaitStart() throws IOException
+  {
+    _out.writeUTF(Coordinator.READY);
+    _out.flush();
+    expect(Coordinator.START);
+  }
+
+  /**
+   * Start reporting on the given clients in the background.
+   */
+  void startReporting(List<? extends OperationCounts> clients)
+  {
+    _clients = clients;
+    _reporter = new Thread("Coordinator reporter")
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          while (true)
+          {
+            Thread.sleep(_intervalMs);
+            report(Coordinator.INTERVAL);
+          }
+        }
+        catch (InterruptedException e)
+        {
+          // finished
+        }
+        catch (IOException e)
+        {
+          System.err.println("Lost the coordinator: " + e.getMessage());
+        }
+      }
+    };
+    _reporter.setDaemon(true);
+    _reporter.start();
+  }
+
+  /**
+   * Send the final report and disconnect.
+   *
+   * @param runtime The run time of this worker, in milliseconds.
+   */
+  void finish(long runtime) throws IOException
+  {
+    if (_reporter != null)
+    {
+      _reporter.interrupt();
+      try
+      {
+        _reporter.join();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    try
+    {
+      synchronized (this)
+      {
+        report(Coordinator.DONE);
+        _out.writeLong(runtime);
+        _out.flush();
+      }
+    }
+    finally
+    {
+      _socket.close();
+    }
+  }
+
+  synchronized void report(String message) throws IOException
+  {
+    long opsdone = 0;
+    if (_clients != null)
+    {
+      for (OperationCounts c : _clients)
+      {
+        opsdone += c.getOpsDone() - c.getWarmupOpsDone();
+      }
+    }
+    Measurements measurements = _measurements != null ? _measurements : Measurements.getMeasurements();
+    Map<String,Histogram> snapshots;
+    int resets;
+    do
+    {
+      resets = measurements.getResetCount();
+      snapshots = measurements.getHdrHistogramSnapshots();
+    }
+    while (resets != measurements.getResetCount());
+    if (resets != _reportedResets)
+    {
+      // the measurements were discarded, e.g. at the end of the warm-up, so everything in them is new
+      _reported.clear();
+      _reportedResets = resets;
+    }
+
+    _out.writeUTF(message);
+    _out.writeLong(opsdone);
+    _out.writeInt(snapshots.size());
+    for (Map.Entry<String,Histogram> entry : snapshots.entrySet())
+    {
+      Histogram delta = entry.getValue().copy();
+      Histogram previous = _reported.put(entry.getKey(), entry.getValue());
+      if (previous != null)
+      {
+        delta.subtract(previous);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(delta.getNeededByteBufferCapacity());
+      int length = delta.encodeIntoCompressedByteBuffer(buffer);
+      _out.writeUTF(entry.getKey());
+      _out.writeInt(length);
+      _out.write(buffer.array(), 0, length);
+    }
+    _out.flush();
+  }
+
+  private void expect(String message) throws IOException
+  {
+    String got = _in.readUTF();
+    if (!message.equals(got))
+    {
+      throw new IOException("Coordinator sent " + got + ", expected " + message);
+    }
+  }
+}
@@ -24,29 +24,66 @@ import java.util.Properties;
  */
 public class DBFactory
 {
-      @SuppressWarnings("unchecked")
 	public static DB newDB(String dbname, Properties properties) throws UnknownDBException
       {
-	 ClassLoader classLoader = DBFactory.class.getClassLoader();
+	 Object instance=newInstance(dbname);
+	 if (instance==null)
+	 {
+	    return null;
+	 }
 
-	 DB ret=null;
+	 DB ret=(DB)instance;
+	 ret.setProperties(properties);
+
+	 return new DBWrapper(ret);
+      }
 
-	 try 
+      /**
+       * Load the specified DB class for use by an asynchronous client thread. Classes
+       * extending {@link AsyncDB} are wrapped for measurement directly; classes that only
+       * extend {@link DB} are measured by a {@link DBWrapper} and exposed through an
+       * {@link AsyncDBAdapter}.
+       */
+      public static AsyncDB newAsyncDB(String dbname, Properties properties) throws UnknownDBException
+      {
+	 Object instance=newInstance(dbname);
+	 if (instance==null)
 	 {
-	    Class dbclass = classLoader.loadClass(dbname);
-	    //System.out.println("dbclass.getName() = " + dbclass.getName());
-	    
-	    ret=(DB)dbclass.newInstance();
-	 }
-	 catch (Exception e) 
-	 {  
-	    e.printStackTrace();
 	    return null;
 	 }
-	 
+
+	 if (instance instanceof AsyncDB)
+	 {
+	    AsyncDB ret=(AsyncDB)instance;
+	    ret.setProperties(properties);
+	    return new AsyncDBWrapper(ret);
+	 }
+
+	 DB ret=(DB)instance;
 	 ret.setProperties(properties);
 
-	 return new DBWrapper(ret);
+	 return new AsyncDBAdapter(new DBWrapper(ret));
+      }
+
+      /**
+       * Load the specified DB class and create an instance of it with its no-argument constructor.
+       *
+       * @return The instance, or null if the class couldn't be loaded or instantiated.
+       */
+      private static Object newInstance(String dbname)
+      {
+	 ClassLoader classLoader = DBFactory.class.getClassLoader();
+
+	 try
+	 {
+	    Class<?> dbclass = classLoader.loadClass(dbname);
+	    return dbclass.getDeclaredConstructor().newInstance();
+	 }
+	 catch (Exception e)
+	 {
+	    e.printStackTrace();
+	    return null;
+	 }
       }
       
 }
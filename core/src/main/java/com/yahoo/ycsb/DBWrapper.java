@@ -17,39 +17,45 @@
 
 package com.yahoo.ycsb;
 
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
 
+import com.yahoo.ycsb.measurements.MeasurementHandle;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.OperationOverhead;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
- * Also reports latency separately between OK and failed operations.
+ * Also reports latency separately between OK and failed operations. Operations
+ * on records that don't exist are not failures of the DB, so their latency is
+ * always reported apart from both, e.g. under READ-NOT_FOUND.
  */
 public class DBWrapper extends DB
 {
   private DB _db;
   private Measurements _measurements;
+  private OperationOverhead _overhead;
+  private final OperationReporter _reporter;
 
-  private boolean reportLatencyForEachError = false;
-  private HashSet<String> latencyTrackedErrors = new HashSet<String>();
-
-  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY =
-      "reportlatencyforeacherror";
-  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT =
-      "false";
-
-  private static final String LATENCY_TRACKED_ERRORS_PROPERTY =
-      "latencytrackederrors";
+  /**
+   * Handles on the measurements of each operation, so measuring doesn't look
+   * them up by name.
+   */
+  private final MeasurementHandle _read, _scan, _update, _insert, _delete;
 
   public DBWrapper(DB db)
   {
     _db=db;
     _measurements=Measurements.getMeasurements();
+    _overhead=_measurements.getOverhead();
+    _reporter=new OperationReporter(_measurements);
+    _read=_measurements.getHandle("READ");
+    _scan=_measurements.getHandle("SCAN");
+    _update=_measurements.getHandle("UPDATE");
+    _insert=_measurements.getHandle("INSERT");
+    _delete=_measurements.getHandle("DELETE");
   }
 
   /**
@@ -75,23 +81,7 @@ public class DBWrapper extends DB
   public void init() throws DBException
   {
     _db.init();
-
-    this.reportLatencyForEachError = Boolean.parseBoolean(getProperties().
-        getProperty(REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY,
-            REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT));
-
-    if (!reportLatencyForEachError) {
-      String latencyTrackedErrors = getProperties().getProperty(
-          LATENCY_TRACKED_ERRORS_PROPERTY, null);
-      if (latencyTrackedErrors != null) {
-        this.latencyTrackedErrors = new HashSet<String>(Arrays.asList(
-            latencyTrackedErrors.split(",")));
-      }
-    }
-
-    System.err.println("DBWrapper: report latency for each error is " +
-        this.reportLatencyForEachError + " and specific error codes to track" +
-        " for latency are: " + this.latencyTrackedErrors.toString());
+    _reporter.init(getProperties(), "DBWrapper");
   }
 
   /**
@@ -104,7 +94,7 @@ public class DBWrapper extends DB
     long st = System.nanoTime();
     _db.cleanup();
     long en=System.nanoTime();
-    measure("CLEANUP", Status.OK, ist, st, en);
+    _reporter.measure(_measurements.getHandle("CLEANUP"), Status.OK, ist, st, en);
   }
 
   /**
@@ -120,12 +110,12 @@ public class DBWrapper extends DB
   public Status read(String table, String key, Set<String> fields,
       HashMap<String,ByteIterator> result)
   {
+    boolean warmup=_measurements.isWarmingUp();
     long ist=_measurements.getIntendedtartTimeNs();
     long st = System.nanoTime();
     Status res=_db.read(table,key,fields,result);
     long en=System.nanoTime();
-    measure("READ", res, ist, st, en);
-    _measurements.reportStatus("READ", res);
+    report(_read, res, warmup, ist, st, en);
     return res;
   }
 
@@ -143,30 +133,25 @@ public class DBWrapper extends DB
   public Status scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
   {
+    boolean warmup=_measurements.isWarmingUp();
     long ist=_measurements.getIntendedtartTimeNs();
     long st = System.nanoTime();
     Status res=_db.scan(table,startkey,recordcount,fields,result);
     long en=System.nanoTime();
-    measure("SCAN", res, ist, st, en);
-    _measurements.reportStatus("SCAN", res);
+    report(_scan, res, warmup, ist, st, en);
     return res;
   }
 
-  private void measure(String op, Status result, long intendedStartTimeNanos,
+  /**
+   * Measure the latency and count the return code of an operation, and account for the time it took in the
+   * client overhead, if enabled.
+   */
+  private void report(MeasurementHandle op, Status result, boolean warmup, long intendedStartTimeNanos,
       long startTimeNanos, long endTimeNanos) {
-    String measurementName = op;
-    if (result != Status.OK) {
-      if (this.reportLatencyForEachError ||
-          this.latencyTrackedErrors.contains(result.getName())) {
-        measurementName = op + "-" + result.getName();
-      } else {
-        measurementName = op + "-FAILED";
-      }
+    _reporter.report(op, result, warmup, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+    if (_overhead != null) {
+      _overhead.recordDbCall(op.getOperation(), endTimeNanos - startTimeNanos, System.nanoTime() - endTimeNanos);
     }
-    _measurements.measure(measurementName,
-        (int)((endTimeNanos-startTimeNanos)/1000));
-    _measurements.measureIntended(measurementName,
-        (int)((endTimeNanos-intendedStartTimeNanos)/1000));
   }
 
   /**
@@ -181,12 +166,12 @@ public class DBWrapper extends DB
   public Status update(String table, String key,
       HashMap<String,ByteIterator> values)
   {
+    boolean warmup=_measurements.isWarmingUp();
     long ist=_measurements.getIntendedtartTimeNs();
     long st = System.nanoTime();
     Status res=_db.update(table,key,values);
     long en=System.nanoTime();
-    measure("UPDATE", res, ist, st, en);
-    _measurements.reportStatus("UPDATE", res);
+    report(_update, res, warmup, ist, st, en);
     return res;
   }
 
@@ -203,12 +188,12 @@ public class DBWrapper extends DB
   public Status insert(String table, String key,
       HashMap<String,ByteIterator> values)
   {
+    boolean warmup=_measurements.isWarmingUp();
     long ist=_measurements.getIntendedtartTimeNs();
     long st = System.nanoTime();
     Status res=_db.insert(table,key,values);
     long en=System.nanoTime();
-    measure("INSERT", res, ist, st, en);
-    _measurements.reportStatus("INSERT", res);
+    report(_insert, res, warmup, ist, st, en);
     return res;
   }
 
@@ -221,12 +206,12 @@ public class DBWrapper extends DB
    */
   public Status delete(String table, String key)
   {
+    boolean warmup=_measurements.isWarmingUp();
     long ist=_measurements.getIntendedtartTimeNs();
     long st = System.nanoTime();
     Status res=_db.delete(table,key);
     long en=System.nanoTime();
-    measure("DELETE", res, ist, st, en);
-    _measurements.reportStatus("DELETE", res);
+    report(_delete, res, warmup, ist, st, en);
     return res;
   }
 }
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+/**
+ * Turns key numbers into record keys without the temporary objects of
+ * <code>"user"+keynum</code>. Characters are written into a buffer reused by
+ * each thread, so building a String key allocates only the String itself, and
+ * {@link #encode(long, byte[], int)} allocates nothing at all, for bindings
+ * that accept keys as bytes.
+ *
+ * <p>Two formats are supported: {@link #STRING}, the prefix followed by the
+ * key number in decimal (the traditional "user1234"), and {@link #BINARY}, the
+ * prefix followed by the key number as 8 big-endian bytes, so every key has
+ * the same width and sorts in key number order. As a String, a binary key
+ * holds one char per byte (ISO-8859-1).
+ */
+public class KeyEncoder
+{
+  /** The prefix followed by the key number in decimal. */
+  public static final String STRING = "string";
+
+  /** The prefix followed by the key number as 8 big-endian bytes. */
+  public static final String BINARY = "binary";
+
+  /** Room for the sign and 19 digits of a long. */
+  private static final int MAX_DIGITS = 20;
+
+  private final char[] _prefix;
+  private final boolean _binary;
+  private final boolean _hashed;
+
+  private final ThreadLocal<char[]> _buffer = new ThreadLocal<char[]>()
+  {
+    @Override
+    protected char[] initialValue()
+    {
+      char[] buffer = new char[maxLength()];
+      System.arraycopy(_prefix, 0, buffer, 0, _prefix.length);
+      return buffer;
+    }
+  };
+
+  /**
+   * @param prefix Put before every key number, e.g. "user".
+   * @param format Either {@link #STRING} or {@link #BINARY}.
+   * @param hashed If true, key numbers are hashed with {@link Utils#hash(long)} first, so that consecutive
+   *        key numbers are spread over the key space.
+   */
+  public KeyEncoder(String prefix, String format, boolean hashed)
+  {
+    if (STRING.equals(format))
+    {
+      _binary = false;
+    }
+    else if (BINARY.equals(format))
+    {
+      _binary = true;
+    }
+    else
+    {
+      throw new IllegalArgumentException("Unknown key format \"" + format + "\"");
+    }
+    for (int i = 0; i < prefix.length(); i++)
+    {
+      if (prefix.charAt(i) > 0x7f)
+      {
+        throw new IllegalArgumentException("Key prefix must be ASCII: " + prefix);
+      }
+    }
+    _prefix = prefix.toCharArray();
+    _hashed = hashed;
+  }
+
+  /**
+   * @return The length of the longest key, in chars or bytes.
+   */
+  public int maxLength()
+  {
+    return _prefix.length + (_binary ? 8 : MAX_DIGITS);
+  }
+
+  /**
+   * Build the key for a key number.
+   */
+  public String encode(long keynum)
+  {
+    char[] buffer = _buffer.get();
+    int length = fill(keynum, buffer);
+    return new String(buffer, 0, length);
+  }
+
+  /**
+   * Write the key for a key number into dest, as ASCII for {@link #STRING} keys.
+   *
+   * @return The number of bytes written; dest must have room for {@link #maxLength()}.
+   */
+  public int encode(long keynum, byte[] dest, int offset)
+  {
+    char[] buffer = _buffer.get();
+    int length = fill(keynum, buffer);
+    for (int i = 0; i < length; i++)
+    {
+      dest[offset + i] = (byte) buffer[i];
+    }
+    return length;
+  }
+
+  /**
+   * Write the key after the prefix already in the buffer.
+   *
+   * @return The length of the key.
+   */
+  private int fill(long keynum, char[] buffer)
+  {
+    if (_hashed)
+    {
+      keynum = Utils.hash(keynum);
+    }
+    int pos = _prefix.length;
+    if (_binary)
+    {
+      for (int shift = 56; shift >= 0; shift -= 8)
+      {
+        buffer[pos++] = (char) ((keynum >>> shift) & 0xff);
+      }
+      return pos;
+    }
+
+    // count the digits, then write them from the right; working on the negated value also covers Long.MIN_VALUE
+    long n = keynum < 0 ? keynum : -keynum;
+    int digits = 1;
+    for (long m = n; m <= -10; m /= 10)
+    {
+      digits++;
+    }
+    if (keynum < 0)
+    {
+      buffer[pos++] = '-';
+    }
+    int end = pos + digits;
+    for (int i = end - 1; i >= pos; i--)
+    {
+      buffer[i] = (char) ('0' - (n % 10));
+      n /= 10;
+    }
+    return end;
+  }
+}
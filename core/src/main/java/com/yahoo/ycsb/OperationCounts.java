@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+/**
+ * The operation counts of a client, as reported to the coordinator.
+ */
+interface OperationCounts
+{
+  /**
+   * @return The operations done so far, including the warm-up ones.
+   */
+  long getOpsDone();
+
+  /**
+   * @return The operations done while the warm-up was active.
+   */
+  long getWarmupOpsDone();
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.yahoo.ycsb.measurements.MeasurementHandle;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Measures the latency and counts the return code of each operation of a
+ * {@link DBWrapper} or {@link AsyncDBWrapper}. Latency is reported separately
+ * for OK and failed operations, and operations on records that don't exist
+ * always apart from both, e.g. under READ-NOT_FOUND.
+ */
+class OperationReporter
+{
+  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY =
+      "reportlatencyforeacherror";
+  private static final String REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT =
+      "false";
+
+  private static final String LATENCY_TRACKED_ERRORS_PROPERTY =
+      "latencytrackederrors";
+
+  private final Measurements _measurements;
+
+  /**
+   * Handles on the measurements of the failures of each operation, created as
+   * they occur. Callbacks of asynchronous operations may look them up from any
+   * thread.
+   */
+  private final ConcurrentHashMap<String,MeasurementHandle> _failureHandles =
+      new ConcurrentHashMap<String,MeasurementHandle>();
+
+  private boolean reportLatencyForEachError = false;
+  private HashSet<String> latencyTrackedErrors = new HashSet<String>();
+
+  OperationReporter(Measurements measurements)
+  {
+    _measurements = measurements;
+  }
+
+  /**
+   * Read which errors to report latency for from the DB's properties.
+   *
+   * @param wrapper The name of the wrapper, for the message saying what is tracked.
+   */
+  void init(Properties props, String wrapper)
+  {
+    this.reportLatencyForEachError = Boolean.parseBoolean(props.
+        getProperty(REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY,
+            REPORT_LATENCY_FOR_EACH_ERROR_PROPERTY_DEFAULT));
+
+    if (!reportLatencyForEachError) {
+      String latencyTrackedErrors = props.getProperty(
+          LATENCY_TRACKED_ERRORS_PROPERTY, null);
+      if (latencyTrackedErrors != null) {
+        this.latencyTrackedErrors = new HashSet<String>(Arrays.asList(
+            latencyTrackedErrors.split(",")));
+      }
+    }
+
+    System.err.println(wrapper + ": report latency for each error is " +
+        this.reportLatencyForEachError + " and specific error codes to track" +
+        " for latency are: " + this.latencyTrackedErrors.toString());
+  }
+
+  /**
+   * Measure the latency of an operation and count its return code.
+   *
+   * @param warmup Whether the warm-up was running when the operation was
+   *        issued. If it has ended since, the operation is still recorded as
+   *        part of it.
+   */
+  void report(MeasurementHandle op, Status result, boolean warmup,
+      long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+    if (warmup && !_measurements.isWarmingUp()) {
+      _measurements.measureWarmupNanos(handle(op, result).getOperation(),
+          endTimeNanos-startTimeNanos, endTimeNanos-intendedStartTimeNanos);
+      _measurements.reportWarmupStatus(op.getOperation(), result);
+      return;
+    }
+    measure(op, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+    op.reportStatus(result);
+  }
+
+  /**
+   * Measure the latency of an operation, under the name of its failure if it
+   * failed.
+   */
+  void measure(MeasurementHandle op, Status result, long intendedStartTimeNanos,
+      long startTimeNanos, long endTimeNanos) {
+    MeasurementHandle measurement = handle(op, result);
+    measurement.measureNanos(endTimeNanos-startTimeNanos);
+    measurement.measureIntendedNanos(endTimeNanos-intendedStartTimeNanos);
+  }
+
+  /**
+   * @return The handle to measure the latency of an operation with the given
+   *         result under.
+   */
+  private MeasurementHandle handle(MeasurementHandle op, Status result) {
+    MeasurementHandle measurement = op;
+    if (result != Status.OK) {
+      String measurementName;
+      if (this.reportLatencyForEachError || Status.NOT_FOUND.equals(result) ||
+          this.latencyTrackedErrors.contains(result.getName())) {
+        measurementName = op.getOperation() + "-" + result.getName();
+      } else {
+        measurementName = op.getOperation() + "-FAILED";
+      }
+      measurement = _failureHandles.get(measurementName);
+      if (measurement == null) {
+        measurement = _measurements.getHandle(measurementName);
+        MeasurementHandle other = _failureHandles.putIfAbsent(measurementName, measurement);
+        if (other != null) {
+          measurement = other;
+        }
+      }
+    }
+    return measurement;
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * A large off-heap region of random printable bytes, filled once, from which
+ * values are sliced at random offsets. Handing out a value costs one random
+ * number instead of one per six bytes, as {@link RandomByteIterator} does, so
+ * write-heavy workloads with large values are not held back by the client.
+ *
+ * The region is never written after it is filled, so one pool is shared by
+ * all client threads. Values drawn from it overlap, but with a pool much
+ * larger than the values two of them are rarely alike.
+ */
+public class RandomValuePool {
+  private static final int FILL_CHUNK = 64 * 1024;
+
+  private final ByteBuffer pool;
+  private final int size;
+
+  /**
+   * @param size The size of the pool in bytes; values longer than this are
+   *        generated with a {@link RandomByteIterator} instead.
+   */
+  public RandomValuePool(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Value pool size must be positive, got " + size);
+    }
+    this.size = size;
+    pool = ByteBuffer.allocateDirect(size);
+    byte[] chunk = new byte[FILL_CHUNK];
+    Random random = Utils.random();
+    while (pool.hasRemaining()) {
+      int n = Math.min(chunk.length, pool.remaining());
+      for (int i = 0; i < n; i += 6) {
+        int bytes = random.nextInt();
+        // the same printable alphabet as RandomByteIterator
+        for (int j = 0; j < 6 && i + j < n; j++) {
+          int bits = bytes >> (5 * j);
+          chunk[i + j] = (byte) ((bits & (j % 3 == 0 ? 31 : j % 3 == 1 ? 63 : 95)) + ' ');
+        }
+      }
+      pool.put(chunk, 0, n);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return A value of the given length, starting at a random offset in the pool.
+   */
+  public ByteIterator next(int len) {
+    if (len > size) {
+      return new RandomByteIterator(len);
+    }
+    int off = Utils.random().nextInt(size - len + 1);
+    return new ByteBufferByteIterator(pool, off, len);
+  }
+}
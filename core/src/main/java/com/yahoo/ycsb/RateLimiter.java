@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rate limiter shared by all client threads. Permits are handed out at the
+ * rate of a {@link TargetProfile} to whichever thread asks next, so when one
+ * thread stalls on a slow operation the others take over its share instead of
+ * the throughput dropping. Permits are claimed with a single compare-and-set
+ * on the next permit time, without locking.
+ *
+ * <p>Capacity left unused while every thread was busy is kept for up to
+ * "burst" permits and handed out immediately afterwards; anything older is
+ * forfeited. A permit claimed after its scheduled time is counted as late,
+ * which shows how often the threads, rather than the limiter, held the
+ * throughput back. Each thread counts its own permits, so the CAS is the only
+ * write to memory shared between threads.
+ */
+public class RateLimiter
+{
+  private final TargetProfile _profile;
+  private final double _burst;
+
+  /** The scheduled time of the next permit, or 0 before the first one. */
+  private final AtomicLong _next = new AtomicLong(0);
+
+  /** The permits claimed by one thread. Only written by that thread. */
+  private static final class Tally
+  {
+    long issued;
+    long late;
+  }
+
+  private final CopyOnWriteArrayList<Tally> _tallies = new CopyOnWriteArrayList<Tally>();
+  private final ThreadLocal<Tally> _tally = new ThreadLocal<Tally>()
+  {
+    @Override
+    protected Tally initialValue()
+    {
+      Tally tally = new Tally();
+      _tallies.add(tally);
+      return tally;
+    }
+  };
+
+  /**
+   * @param profile The total rate, over time, across all threads.
+   * @param burst The number of permits of unused capacity that may be caught up on.
+   */
+  public RateLimiter(TargetProfile profile, double burst)
+  {
+    if (burst < 0)
+    {
+      throw new IllegalArgumentException("burst must not be negative, got " + burst);
+    }
+    _profile = profile;
+    _burst = burst;
+  }
+
+  /**
+   * Claim the next permit. The caller should wait until the returned time before issuing its operation.
+   *
+   * @return The time the permit is scheduled for, in {@link System#nanoTime()} units.
+   */
+  public long acquire()
+  {
+    Tally tally = _tally.get();
+    while (true)
+    {
+      long current = _next.get();
+      long now = System.nanoTime();
+      long permit;
+      if (current == 0)
+      {
+        permit = now;
+      }
+      else
+      {
+        long horizon = now - (long) (_burst * 1e9 / Math.max(_profile.rateAt(now), 1e-9));
+        permit = Math.max(current, horizon);
+      }
+      if (_next.compareAndSet(current, _profile.nextArrival(permit, 1.0, false)))
+      {
+        tally.issued++;
+        if (current != 0 && current < now)
+        {
+          tally.late++;
+        }
+        return permit;
+      }
+    }
+  }
+
+  /**
+   * @return The number of permits handed out. Exact once the threads that claimed them have finished.
+   */
+  public long getIssuedPermits()
+  {
+    long issued = 0;
+    for (Tally tally : _tallies)
+    {
+      issued += tally.issued;
+    }
+    return issued;
+  }
+
+  /**
+   * @return The number of permits that were claimed after their scheduled time. Exact once the threads that
+   *         claimed them have finished.
+   */
+  public long getLatePermits()
+  {
+    long late = 0;
+    for (Tally tally : _tallies)
+    {
+      late += tally.late;
+    }
+    return late;
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of resources, typically connections, shared by every DB
+ * instance in the client that asks for the same pool name. YCSB creates one DB
+ * instance per logical client, so with thousands of clients (see the
+ * "threadmode" property of {@link Client}) a binding that opens a connection in
+ * each init() would overwhelm the server. Such a binding can instead call
+ * {@link #acquire} in init(), {@link #borrow}/{@link #giveBack} around each
+ * operation, and {@link #release} in cleanup().
+ *
+ * Resources are created lazily, at most "connectionpool.size" of them, and are
+ * closed when the last DB instance releases the pool. Waiting for a resource
+ * uses java.util.concurrent primitives, so it does not pin virtual threads.
+ *
+ * @param <T> The type of pooled resource.
+ */
+public final class SharedPool<T>
+{
+  /**
+   * The maximum number of resources in each shared pool.
+   */
+  public static final String POOL_SIZE_PROPERTY = "connectionpool.size";
+
+  /**
+   * The default pool size.
+   */
+  public static final String POOL_SIZE_PROPERTY_DEFAULT = "16";
+
+  /**
+   * Creates and closes the pooled resources.
+   *
+   * @param <T> The type of pooled resource.
+   */
+  public interface Factory<T>
+  {
+    /** Open a new resource. */
+    T create() throws DBException;
+
+    /** Close a resource that is no longer needed. */
+    void close(T resource);
+  }
+
+  private static final ConcurrentHashMap<String, SharedPool<?>> POOLS =
+      new ConcurrentHashMap<String, SharedPool<?>>();
+
+  private final String _name;
+  private final Factory<T> _factory;
+  private final Semaphore _available;
+  private final ConcurrentLinkedQueue<T> _idle = new ConcurrentLinkedQueue<T>();
+  private final AtomicInteger _users = new AtomicInteger(0);
+
+  private SharedPool(String name, int size, Factory<T> factory)
+  {
+    _name = name;
+    _factory = factory;
+    _available = new Semaphore(size);
+  }
+
+  /**
+   * Join the pool with the given name, creating it on first use. Every call must be matched by a call
+   * to {@link #release()}.
+   *
+   * @param name Identifies the pool; DB instances using the same name share resources.
+   * @param props The properties to read the pool size from.
+   * @param factory Used to open resources if this call creates the pool.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> SharedPool<T> acquire(String name, Properties props, Factory<T> factory)
+  {
+    while (true)
+    {
+      SharedPool<T> pool = (SharedPool<T>) POOLS.get(name);
+      if (pool == null)
+      {
+        int size = Integer.parseInt(props.getProperty(POOL_SIZE_PROPERTY, POOL_SIZE_PROPERTY_DEFAULT));
+        SharedPool<T> created = new SharedPool<T>(name, size, factory);
+        pool = (SharedPool<T>) POOLS.putIfAbsent(name, created);
+        if (pool == null)
+        {
+          pool = created;
+        }
+      }
+      // a pool whose last user is closing it has no users; wait for it to leave the map
+      int users = pool._users.get();
+      if (users >= 0 && pool._users.compareAndSet(users, users + 1))
+      {
+        return pool;
+      }
+      Thread.yield();
+    }
+  }
+
+  /**
+   * Take a resource from the pool, opening a new one if none is idle, and waiting if the pool is at its
+   * size limit.
+   */
+  public T borrow() throws DBException
+  {
+    _available.acquireUninterruptibly();
+    T resource = _idle.poll();
+    if (resource != null)
+    {
+      return resource;
+    }
+    try
+    {
+      return _factory.create();
+    }
+    catch (DBException e)
+    {
+      _available.release();
+      throw e;
+    }
+    catch (RuntimeException e)
+    {
+      _available.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Return a resource obtained from {@link #borrow()}.
+   */
+  public void giveBack(T resource)
+  {
+    _idle.offer(resource);
+    _available.release();
+  }
+
+  /**
+   * Leave the pool. The last user to leave closes all idle resources.
+   */
+  public void release()
+  {
+    if (_users.decrementAndGet() != 0)
+    {
+      return;
+    }
+    if (!_users.compareAndSet(0, -1))
+    {
+      // somebody joined again in the meantime
+      return;
+    }
+    POOLS.remove(_name, this);
+    T resource;
+    while ((resource = _idle.poll()) != null)
+    {
+      _factory.close(resource);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Exposes an {@link AsyncDB} through the blocking {@link DB} interface by
+ * waiting for each operation's callback before returning. Used to run
+ * workloads that only implement the blocking API against an asynchronous
+ * binding.
+ */
+public class SyncDBAdapter extends DB {
+  private final AsyncDB _db;
+
+  public SyncDBAdapter(AsyncDB db) {
+    _db = db;
+  }
+
+  /**
+   * Captures the status of a single operation and lets the caller wait for it.
+   */
+  static class Waiter implements AsyncCallback {
+    private final CountDownLatch _done = new CountDownLatch(1);
+    private volatile Status _status;
+
+    @Override
+    public void completed(Status status) {
+      _status = status;
+      _done.countDown();
+    }
+
+    Status await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          _done.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return _status;
+    }
+  }
+
+  @Override
+  public void setProperties(Properties p) {
+    _db.setProperties(p);
+  }
+
+  @Override
+  public Properties getProperties() {
+    return _db.getProperties();
+  }
+
+  @Override
+  public void init() throws DBException {
+    _db.init();
+  }
+
+  @Override
+  public void cleanup() throws DBException {
+    _db.cleanup();
+  }
+
+  @Override
+  public Status read(String table, String key, Set<String> fields,
+      HashMap<String, ByteIterator> result) {
+    Waiter w = new Waiter();
+    _db.read(table, key, fields, result, w);
+    return w.await();
+  }
+
+  @Override
+  public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    Waiter w = new Waiter();
+    _db.scan(table, startkey, recordcount, fields, result, w);
+    return w.await();
+  }
+
+  @Override
+  public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+    Waiter w = new Waiter();
+    _db.update(table, key, values, w);
+    return w.await();
+  }
+
+  @Override
+  public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+    Waiter w = new Waiter();
+    _db.insert(table, key, values, w);
+    return w.await();
+  }
+
+  @Override
+  public Status delete(String table, String key) {
+    Waiter w = new Waiter();
+    _db.delete(table, key, w);
+    return w.await();
+  }
+}
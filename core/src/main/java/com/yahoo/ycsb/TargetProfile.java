@@ -0,0 +1,379 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A target throughput that changes over the course of a run. The profile is a
+ * sequence of segments, each lasting a number of seconds; once the last segment
+ * ends, the rate it finished at is held for the rest of the run. All client
+ * threads read the same profile, so a change in rate applies to every thread
+ * at the same moment.
+ *
+ * Segments are written as colon separated fields, separated by ";" in the
+ * "target.profile" property or one per line in the "target.profile.file" file
+ * (blank lines and lines starting with "#" are ignored). Rates are in
+ * operations per second for the whole client, durations are in seconds:
+ * <ul>
+ * <li><b>constant:RATE:SECONDS</b> a fixed rate
+ * <li><b>ramp:FROM:TO:SECONDS</b> a linear ramp
+ * <li><b>step:FROM:INCREMENT:STEPSECONDS:STEPS</b> a staircase of STEPS steps starting at FROM
+ * <li><b>sine:MEAN:AMPLITUDE:PERIODSECONDS:SECONDS</b> a sine wave, e.g. a compressed diurnal cycle
+ * <li><b>burst:BASE:PEAK:PERIODSECONDS:BURSTSECONDS:SECONDS</b> BASE, with PEAK for the first BURSTSECONDS of every period
+ * </ul>
+ * For example, "ramp:1000:20000:300;constant:20000:600" ramps up over five
+ * minutes and then holds for ten.
+ */
+public class TargetProfile
+{
+  /**
+   * The profile specification, as ";" separated segments.
+   */
+  public static final String PROFILE_PROPERTY = "target.profile";
+
+  /**
+   * A file containing the profile specification, one segment per line.
+   */
+  public static final String PROFILE_FILE_PROPERTY = "target.profile.file";
+
+  /** How far to skip ahead when the rate is zero. */
+  private static final long IDLE_STEP_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * One piece of the profile.
+   */
+  abstract static class Segment
+  {
+    final long _durationNs;
+
+    Segment(double seconds)
+    {
+      if (seconds <= 0)
+      {
+        throw new IllegalArgumentException("Profile segment duration must be positive, got " + seconds);
+      }
+      _durationNs = (long) (seconds * 1e9);
+    }
+
+    /**
+     * @param offsetNs Time since the segment began, in [0, duration].
+     * @return The target in operations per second at that time.
+     */
+    abstract double rateAt(long offsetNs);
+  }
+
+  static class Constant extends Segment
+  {
+    private final double _rate;
+
+    Constant(double rate, double seconds)
+    {
+      super(seconds);
+      _rate = rate;
+    }
+
+    @Override
+    double rateAt(long offsetNs)
+    {
+      return _rate;
+    }
+  }
+
+  static class Ramp extends Segment
+  {
+    private final double _from;
+    private final double _to;
+
+    Ramp(double from, double to, double seconds)
+    {
+      super(seconds);
+      _from = from;
+      _to = to;
+    }
+
+    @Override
+    double rateAt(long offsetNs)
+    {
+      return _from + (_to - _from) * offsetNs / _durationNs;
+    }
+  }
+
+  static class Sine extends Segment
+  {
+    private final double _mean;
+    private final double _amplitude;
+    private final double _periodNs;
+
+    Sine(double mean, double amplitude, double periodSeconds, double seconds)
+    {
+      super(seconds);
+      _mean = mean;
+      _amplitude = amplitude;
+      _periodNs = periodSeconds * 1e9;
+    }
+
+    @Override
+    double rateAt(long offsetNs)
+    {
+      return _mean + _amplitude * Math.sin(2 * Math.PI * offsetNs / _periodNs);
+    }
+  }
+
+  static class Burst extends Segment
+  {
+    private final double _base;
+    private final double _peak;
+    private final long _periodNs;
+    private final long _burstNs;
+
+    Burst(double base, double peak, double periodSeconds, double burstSeconds, double seconds)
+    {
+      super(seconds);
+      _base = base;
+      _peak = peak;
+      _periodNs = (long) (periodSeconds * 1e9);
+      _burstNs = (long) (burstSeconds * 1e9);
+      if (_periodNs <= 0)
+      {
+        throw new IllegalArgumentException("Burst period must be positive, got " + periodSeconds);
+      }
+    }
+
+    @Override
+    double rateAt(long offsetNs)
+    {
+      return (offsetNs % _periodNs) < _burstNs ? _peak : _base;
+    }
+  }
+
+  static class Step extends Segment
+  {
+    private final double _from;
+    private final double _increment;
+    private final long _stepNs;
+    private final int _steps;
+
+    Step(double from, double increment, double stepSeconds, int steps)
+    {
+      super(stepSeconds * steps);
+      _from = from;
+      _increment = increment;
+      _stepNs = _durationNs / steps;
+      _steps = steps;
+    }
+
+    @Override
+    double rateAt(long offsetNs)
+    {
+      long step = Math.min(offsetNs / _stepNs, _steps - 1);
+      return _from + _increment * step;
+    }
+  }
+
+  private final Segment[] _segments;
+  private final double _finalRate;
+  private volatile long _startNs;
+
+  TargetProfile(List<Segment> segments)
+  {
+    if (segments.isEmpty())
+    {
+      throw new IllegalArgumentException("Empty target profile");
+    }
+    _segments = segments.toArray(new Segment[segments.size()]);
+    Segment last = _segments[_segments.length - 1];
+    _finalRate = last.rateAt(last._durationNs - 1);
+    if (_finalRate <= 0)
+    {
+      throw new IllegalArgumentException("Target profile must end at a positive rate, got " + _finalRate);
+    }
+    _startNs = System.nanoTime();
+  }
+
+  /**
+   * A profile holding a single rate for the whole run.
+   */
+  public static TargetProfile constant(double opsPerSecond)
+  {
+    List<Segment> segments = new ArrayList<Segment>();
+    segments.add(new Constant(opsPerSecond, 1));
+    return new TargetProfile(segments);
+  }
+
+  /**
+   * Parse a profile from its specification.
+   *
+   * @param spec Segments separated by ";" or newlines.
+   */
+  public static TargetProfile parse(String spec)
+  {
+    List<Segment> segments = new ArrayList<Segment>();
+    for (String line : spec.split("[;\n]"))
+    {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#"))
+      {
+        continue;
+      }
+      segments.add(parseSegment(line));
+    }
+    return new TargetProfile(segments);
+  }
+
+  /**
+   * Build the profile configured by the "target.profile" or "target.profile.file" property.
+   *
+   * @return The profile, or null if neither property is set.
+   * @throws IOException If the profile file could not be read.
+   */
+  public static TargetProfile fromProperties(Properties props) throws IOException
+  {
+    String spec = props.getProperty(PROFILE_PROPERTY);
+    String file = props.getProperty(PROFILE_FILE_PROPERTY);
+    if (file != null)
+    {
+      StringBuilder sb = new StringBuilder();
+      BufferedReader in = new BufferedReader(new FileReader(file));
+      try
+      {
+        String line;
+        while ((line = in.readLine()) != null)
+        {
+          sb.append(line).append('\n');
+        }
+      }
+      finally
+      {
+        in.close();
+      }
+      spec = sb.toString();
+    }
+    return spec == null ? null : parse(spec);
+  }
+
+  private static Segment parseSegment(String text)
+  {
+    String[] f = text.split(":");
+    String type = f[0].trim();
+    try
+    {
+      if (type.equals("constant") && f.length == 3)
+      {
+        return new Constant(d(f[1]), d(f[2]));
+      }
+      if (type.equals("ramp") && f.length == 4)
+      {
+        return new Ramp(d(f[1]), d(f[2]), d(f[3]));
+      }
+      if (type.equals("step") && f.length == 5)
+      {
+        double from = d(f[1]);
+        double increment = d(f[2]);
+        double stepSeconds = d(f[3]);
+        int steps = Integer.parseInt(f[4].trim());
+        if (steps <= 0)
+        {
+          throw new IllegalArgumentException("Step count must be positive in \"" + text + "\"");
+        }
+        return new Step(from, increment, stepSeconds, steps);
+      }
+      if (type.equals("sine") && f.length == 5)
+      {
+        return new Sine(d(f[1]), d(f[2]), d(f[3]), d(f[4]));
+      }
+      if (type.equals("burst") && f.length == 6)
+      {
+        return new Burst(d(f[1]), d(f[2]), d(f[3]), d(f[4]), d(f[5]));
+      }
+    }
+    catch (NumberFormatException e)
+    {
+      throw new IllegalArgumentException("Bad number in target profile segment \"" + text + "\"", e);
+    }
+    throw new IllegalArgumentException("Unknown target profile segment \"" + text + "\"");
+  }
+
+  private static double d(String s)
+  {
+    return Double.parseDouble(s.trim());
+  }
+
+  /**
+   * Restart the profile's clock. Called once, just before the client threads start.
+   */
+  public void start(long nowNs)
+  {
+    _startNs = nowNs;
+  }
+
+  /**
+   * @param nowNs A {@link System#nanoTime()} timestamp.
+   * @return The target for the whole client, in operations per second, at that time.
+   */
+  public double rateAt(long nowNs)
+  {
+    long offset = nowNs - _startNs;
+    if (offset < 0)
+    {
+      offset = 0;
+    }
+    for (Segment s : _segments)
+    {
+      if (offset < s._durationNs)
+      {
+        return s.rateAt(offset);
+      }
+      offset -= s._durationNs;
+    }
+    return _finalRate;
+  }
+
+  /**
+   * Compute when the next operation should start.
+   *
+   * @param previousNs When the previous operation was scheduled to start.
+   * @param share The fraction of the total target this caller is responsible for.
+   * @param poisson If true the gap is exponentially distributed around the mean, otherwise it is exact.
+   * @return The next start time, in {@link System#nanoTime()} units.
+   */
+  public long nextArrival(long previousNs, double share, boolean poisson)
+  {
+    long t = previousNs;
+    double rate = rateAt(t) * share;
+    while (rate <= 0)
+    {
+      // idle until the profile comes back up; it always ends at a positive rate
+      t += IDLE_STEP_NS;
+      rate = rateAt(t) * share;
+    }
+    double gapNs = 1e9 / rate;
+    if (poisson)
+    {
+      // 1 - nextDouble() is in (0, 1], so the log is finite
+      gapNs *= -Math.log(1.0 - Utils.random().nextDouble());
+    }
+    return t + Math.max(1, (long) gapNs);
+  }
+}
@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Searches for the highest target throughput at which a latency percentile
+ * stays within an SLA. The client threads run against an
+ * {@link AdjustableTargetProfile}; this thread runs a series of short trials,
+ * changing the target between them. Each trial passes if the chosen percentile
+ * of the latencies recorded during it is within the SLA and the client
+ * actually achieved close to the target. The target is doubled until a trial
+ * fails and then bisected between the best passing and the lowest failing
+ * target until they are within the configured tolerance. When the search ends
+ * the workload is asked to stop, and the trials are exported along with the
+ * regular measurements.
+ */
+class ThroughputSearch extends Thread
+{
+  /** Enables the search. */
+  public static final String SEARCH_PROPERTY = "sla.search";
+
+  /** The latency limit, in microseconds. Required. */
+  public static final String LATENCY_PROPERTY = "sla.latency";
+
+  /** The percentile the limit applies to. */
+  public static final String PERCENTILE_PROPERTY = "sla.percentile";
+  public static final String PERCENTILE_PROPERTY_DEFAULT = "99";
+
+  /** The measurements the percentile is computed over. */
+  public static final String OPERATIONS_PROPERTY = "sla.operations";
+  public static final String OPERATIONS_PROPERTY_DEFAULT = "READ,UPDATE,INSERT,SCAN,READ-MODIFY-WRITE,DELETE";
+
+  /** The length of each trial, in seconds. The first fifth of each trial is not measured. */
+  public static final String TRIAL_SECONDS_PROPERTY = "sla.trial.seconds";
+  public static final String TRIAL_SECONDS_PROPERTY_DEFAULT = "10";
+
+  /** The target of the first trial, in operations per second. */
+  public static final String START_PROPERTY = "sla.search.start";
+  public static final String START_PROPERTY_DEFAULT = "1000";
+
+  /** An upper bound for the target, or 0 for none. */
+  public static final String MAX_PROPERTY = "sla.search.max";
+  public static final String MAX_PROPERTY_DEFAULT = "0";
+
+  /** The search stops once the failing and passing targets are within this fraction of each other. */
+  public static final String TOLERANCE_PROPERTY = "sla.search.tolerance";
+  public static final String TOLERANCE_PROPERTY_DEFAULT = "0.05";
+
+  /** The maximum number of trials. */
+  public static final String MAX_TRIALS_PROPERTY = "sla.search.maxtrials";
+  public static final String MAX_TRIALS_PROPERTY_DEFAULT = "20";
+
+  /** A trial only passes if the client completed at least this fraction of the target. */
+  private static final double MIN_ACHIEVED_FRACTION = 0.95;
+
+  /** The result of one trial. */
+  static class Trial
+  {
+    final double target;
+    final double achieved;
+    final long latency;
+    final boolean passed;
+
+    Trial(double target, double achieved, long latency, boolean passed)
+    {
+      this.target = target;
+      this.achieved = achieved;
+      this.latency = latency;
+      this.passed = passed;
+    }
+  }
+
+  private final AdjustableTargetProfile _profile;
+  private final List<ClientThread> _clients;
+  private final CountDownLatch _completeLatch;
+  private final Workload _workload;
+  private final Measurements _measurements;
+
+  private final long _slaLatency;
+  private final double _percentile;
+  private final Set<String> _operations;
+  private final long _trialNs;
+  private final double _start;
+  private final double _max;
+  private final double _tolerance;
+  private final int _maxTrials;
+
+  private final List<Trial> _trials = new ArrayList<Trial>();
+  private volatile double _best = 0;
+
+  /**
+   * @param profile The target the client threads follow.
+   * @param props The properties configuring the search.
+   * @param clients The clients, used to compute the achieved throughput.
+   * @param completeLatch Counted down as clients complete; the search ends early if they all do.
+   * @param workload Asked to stop once the search is over.
+   */
+  ThroughputSearch(AdjustableTargetProfile profile, Properties props, List<ClientThread> clients,
+      CountDownLatch completeLatch, Workload workload)
+  {
+    this(profile, props, clients, completeLatch, workload, Measurements.getMeasurements());
+  }
+
+  ThroughputSearch(AdjustableTargetProfile profile, Properties props, List<ClientThread> clients,
+      CountDownLatch completeLatch, Workload workload, Measurements measurements)
+  {
+    _profile = profile;
+    _clients = clients;
+    _completeLatch = completeLatch;
+    _workload = workload;
+    _measurements = measurements;
+
+    String latency = props.getProperty(LATENCY_PROPERTY);
+    if (latency == null)
+    {
+      throw new IllegalArgumentException("Missing property: " + LATENCY_PROPERTY);
+    }
+    if (!_measurements.hasHdrHistograms())
+    {
+      throw new IllegalArgumentException(SEARCH_PROPERTY + " needs an hdrhistogram "
+          + Measurements.MEASUREMENT_TYPE_PROPERTY);
+    }
+    _slaLatency = Long.parseLong(latency);
+    _percentile = Double.parseDouble(props.getProperty(PERCENTILE_PROPERTY, PERCENTILE_PROPERTY_DEFAULT));
+    _operations = new HashSet<String>(Arrays.asList(
+        props.getProperty(OPERATIONS_PROPERTY, OPERATIONS_PROPERTY_DEFAULT).split(",")));
+    _trialNs = TimeUnit.SECONDS.toNanos(
+        Long.parseLong(props.getProperty(TRIAL_SECONDS_PROPERTY, TRIAL_SECONDS_PROPERTY_DEFAULT)));
+    _start = Double.parseDouble(props.getProperty(START_PROPERTY, START_PROPERTY_DEFAULT));
+    _max = Double.parseDouble(props.getProperty(MAX_PROPERTY, MAX_PROPERTY_DEFAULT));
+    _tolerance = Double.parseDouble(props.getProperty(TOLERANCE_PROPERTY, TOLERANCE_PROPERTY_DEFAULT));
+    _maxTrials = Integer.parseInt(props.getProperty(MAX_TRIALS_PROPERTY, MAX_TRIALS_PROPERTY_DEFAULT));
+    setDaemon(true);
+  }
+
+  @Override
+  public void run()
+  {
+    double passing = 0;
+    double failing = Double.POSITIVE_INFINITY;
+    double target = _max > 0 ? Math.min(_start, _max) : _start;
+
+    while (_trials.size() < _maxTrials)
+    {
+      Trial trial = runTrial(target);
+      if (trial == null)
+      {
+        // the clients finished before the trial did
+        break;
+      }
+      _trials.add(trial);
+
+      if (trial.passed)
+      {
+        passing = target;
+        _best = target;
+      }
+      else
+      {
+        failing = target;
+      }
+
+      if (failing == Double.POSITIVE_INFINITY)
+      {
+        if (_max > 0 && passing >= _max)
+        {
+          break;
+        }
+        target = _max > 0 ? Math.min(passing * 2, _max) : passing * 2;
+      }
+      else if (failing - passing <= _tolerance * failing)
+      {
+        break;
+      }
+      else
+      {
+        target = (passing + failing) / 2;
+      }
+    }
+
+    System.err.println("SLA search finished: sustainable throughput is " + new DecimalFormat("#.##").format(_best)
+        + " ops/sec for " + _percentile + "th percentile <= " + _slaLatency + " us");
+    _workload.requestStop();
+  }
+
+  /**
+   * Run the client at the given target for one trial.
+   *
+   * @return The outcome, or null if the clients completed first.
+   */
+  Trial runTrial(double target)
+  {
+    _profile.setRate(target);
+    long settleNs = _trialNs / 5;
+    if (waitForClients(settleNs))
+    {
+      return null;
+    }
+
+    Histogram before = _measurements.getHdrHistogramSnapshot(_operations);
+    long opsBefore = opsDone();
+    long startNs = System.nanoTime();
+
+    if (waitForClients(_trialNs - settleNs))
+    {
+      return null;
+    }
+
+    Histogram after = _measurements.getHdrHistogramSnapshot(_operations);
+    long ops = opsDone() - opsBefore;
+    long elapsedNs = System.nanoTime() - startNs;
+
+    if (after != null && before != null)
+    {
+      after.subtract(before);
+    }
+    long latency = (after == null || after.getTotalCount() == 0) ?
+        Long.MAX_VALUE : _measurements.toMicros(after.getValueAtPercentile(_percentile));
+    double achieved = ops * 1e9 / elapsedNs;
+    boolean passed = latency <= _slaLatency && achieved >= MIN_ACHIEVED_FRACTION * target;
+
+    DecimalFormat d = new DecimalFormat("#.##");
+    System.err.println("SLA search trial " + (_trials.size() + 1) + ": target=" + d.format(target)
+        + " achieved=" + d.format(achieved) + " ops/sec, " + _percentile + "th percentile="
+        + (latency == Long.MAX_VALUE ? "n/a" : Long.toString(latency)) + " us -> " + (passed ? "pass" : "fail"));
+    return new Trial(target, achieved, latency, passed);
+  }
+
+  /**
+   * @return The highest target that passed so far, in operations per second.
+   */
+  double getSustainableThroughput()
+  {
+    return _best;
+  }
+
+  List<Trial> getTrials()
+  {
+    return _trials;
+  }
+
+  private long opsDone()
+  {
+    long total = 0;
+    for (ClientThread t : _clients)
+    {
+      total += t.getOpsDone();
+    }
+    return total;
+  }
+
+  /**
+   * @return True if all clients completed within the given time.
+   */
+  private boolean waitForClients(long nanos)
+  {
+    try
+    {
+      return _completeLatch.await(nanos, TimeUnit.NANOSECONDS);
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      return true;
+    }
+  }
+
+  /**
+   * Write the result of the search, and the latency curve measured on the way, to the exporter.
+   */
+  void exportResults(MeasurementsExporter exporter) throws IOException
+  {
+    String metric = "SLA-SEARCH";
+    exporter.write(metric, "SustainableThroughput(ops/sec)", _best);
+    exporter.write(metric, "LatencyLimit(us)", (double) _slaLatency);
+    exporter.write(metric, "Percentile", _percentile);
+    for (int i = 0; i < _trials.size(); i++)
+    {
+      Trial t = _trials.get(i);
+      String prefix = "Trial" + (i + 1) + "-";
+      exporter.write(metric, prefix + "Target(ops/sec)", t.target);
+      exporter.write(metric, prefix + "Throughput(ops/sec)", t.achieved);
+      exporter.write(metric, prefix + "Latency(us)", t.latency == Long.MAX_VALUE ? -1 : (double) t.latency);
+      exporter.write(metric, prefix + "Passed", t.passed ? 1 : 0);
+    }
+  }
+}
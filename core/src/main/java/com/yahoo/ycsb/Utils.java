@@ -35,6 +35,23 @@ public class Utils
     }
     return ret;
   }
+
+  /**
+   * @return A uniformly distributed long between 0 (inclusive) and bound (exclusive), from this thread's random().
+   */
+  public static long randomLong(long bound) {
+    Random random = random();
+    if (bound <= Integer.MAX_VALUE) {
+      return random.nextInt((int) bound);
+    }
+    long bits;
+    long val;
+    do {
+      bits = random.nextLong() >>> 1;
+      val = bits % bound;
+    } while (bits - val + (bound - 1) < 0);
+    return val;
+  }
       /**
        * Generate a random ASCII string of a given length.
        */
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A warm-up at the start of the transaction phase. The client threads run at
+ * full load, but everything they measure is recorded under
+ * {@link Measurements#WARMUP_PREFIX} names. The warm-up ends once it has run
+ * for warmup.seconds and the clients have completed warmup.ops operations
+ * between them; the main measurements are then reset in one step for all
+ * threads. Warm-up operations do not count towards the operationcount.
+ */
+public class Warmup
+{
+  /** The minimum length of the warm-up, in seconds. */
+  public static final String WARMUP_SECONDS_PROPERTY = "warmup.seconds";
+
+  /** The minimum number of operations, across all threads, done during the warm-up. */
+  public static final String WARMUP_OPS_PROPERTY = "warmup.ops";
+
+  private final long _durationNs;
+  private final AtomicLong _remainingOps;
+  private final AtomicBoolean _active = new AtomicBoolean();
+  private final Measurements _measurements;
+
+  private volatile long _endNs;
+  private volatile long _startMs;
+  private volatile long _endMs;
+
+  public Warmup(long seconds, long ops)
+  {
+    this(seconds, ops, Measurements.getMeasurements());
+  }
+
+  Warmup(long seconds, long ops, Measurements measurements)
+  {
+    _durationNs = TimeUnit.SECONDS.toNanos(seconds);
+    _remainingOps = new AtomicLong(ops);
+    _measurements = measurements;
+  }
+
+  /**
+   * @return The warm-up configured by the properties, or null if there is none.
+   */
+  public static Warmup fromProperties(Properties props)
+  {
+    long seconds = Long.parseLong(props.getProperty(WARMUP_SECONDS_PROPERTY, "0"));
+    long ops = Long.parseLong(props.getProperty(WARMUP_OPS_PROPERTY, "0"));
+    if (seconds <= 0 && ops <= 0)
+    {
+      return null;
+    }
+    return new Warmup(seconds, ops);
+  }
+
+  /**
+   * Start the warm-up; called just before the client threads are.
+   */
+  public void start()
+  {
+    _startMs = System.currentTimeMillis();
+    _endNs = System.nanoTime() + _durationNs;
+    _measurements.startWarmup();
+    _active.set(true);
+  }
+
+  public boolean isActive()
+  {
+    return _active.get();
+  }
+
+  /**
+   * Count an operation issued during the warm-up, ending it if this was the last one needed.
+   */
+  public void opDone()
+  {
+    if (_remainingOps.decrementAndGet() <= 0 && System.nanoTime() >= _endNs)
+    {
+      end();
+    }
+  }
+
+  /**
+   * End the warm-up now, if it is still running. Only the first call has any effect.
+   */
+  public void end()
+  {
+    if (_active.compareAndSet(true, false))
+    {
+      _measurements.endWarmup();
+      _endMs = System.currentTimeMillis();
+      System.err.println("Warm-up finished after " + (_endMs - _startMs) + " ms");
+    }
+  }
+
+  /**
+   * @return The wall-clock time the warm-up ended, or 0 if it has not.
+   */
+  public long getEndTimeMillis()
+  {
+    return _endMs;
+  }
+
+  /**
+   * @return How long the warm-up ran, in milliseconds, or 0 if it has not ended.
+   */
+  public long getRunTimeMillis()
+  {
+    return _endMs == 0 ? 0 : _endMs - _startMs;
+  }
+}
@@ -50,6 +50,18 @@ public abstract class Workload
       {
       }
 
+      /**
+       * Prepare for the next phase of a multi-phase run, in which this workload is used again with the given
+       * properties. Called in the main client thread, between phases, instead of init(). Workloads can override
+       * this to keep state that the previous phase built up, such as the keys it inserted or generators that are
+       * expensive to construct. The default cleans up and initializes the workload from scratch.
+       */
+      public void initPhase(Properties p) throws WorkloadException
+      {
+	 cleanup();
+	 init(p);
+      }
+
       /**
        * Initialize any state for a particular client thread. Since the scenario object
        * will be shared among all threads, this is the place to create any state that is specific
@@ -94,6 +106,34 @@ public abstract class Workload
        */
       public abstract boolean doTransaction(DB db, Object threadstate);
       
+      /**
+       * Do one insert operation against an asynchronous DB. The same thread safety rules as doInsert() apply.
+       * The callback must be invoked exactly once, with the status of the insert, once it has completed; it may
+       * be invoked before this method returns. The default implementation runs doInsert() against a blocking
+       * view of the DB, so workloads that don't override it still work, with one operation in flight at a time.
+       * @return false if the workload knows it is done for this thread. Client will terminate the thread. Return true otherwise.
+       */
+      public boolean doInsertAsync(AsyncDB db, Object threadstate, AsyncCallback callback)
+      {
+	 boolean ret=doInsert(new SyncDBAdapter(db), threadstate);
+	 callback.completed(ret ? Status.OK : Status.ERROR);
+	 return ret;
+      }
+
+      /**
+       * Do one transaction operation against an asynchronous DB. The same thread safety rules as doTransaction()
+       * apply. The callback must be invoked exactly once, when every DB operation making up the transaction has
+       * completed; it may be invoked before this method returns. The default implementation runs doTransaction()
+       * against a blocking view of the DB.
+       * @return false if the workload knows it is done for this thread. Client will terminate the thread. Return true otherwise.
+       */
+      public boolean doTransactionAsync(AsyncDB db, Object threadstate, AsyncCallback callback)
+      {
+	 boolean ret=doTransaction(new SyncDBAdapter(db), threadstate);
+	 callback.completed(ret ? Status.OK : Status.ERROR);
+	 return ret;
+      }
+
       /**
        * Allows scheduling a request to stop the workload.
        */
@@ -101,6 +141,13 @@ public abstract class Workload
         stopRequested.set(true);
       }
       
+      /**
+       * Clear a stop request before the workload is used for another phase.
+       */
+      void clearStopRequest() {
+        stopRequested.set(false);
+      }
+
       /**
        * Check the status of the stop request flag.
        * @return true if stop was requested, false otherwise.
@@ -16,33 +16,42 @@
  */
 package com.yahoo.ycsb.generator;
 
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * A CounterGenerator that reports generated integers via lastInt()
+ * A CounterGenerator that reports generated integers via lastLong()
  * only after they have been acknowledged.
+ *
+ * Acknowledgements are recorded as bits in pages that are created as
+ * values are acknowledged and dropped once lastLong() has moved past them,
+ * so any number of values can be waiting for acknowledgement. Both
+ * acknowledging and advancing lastLong() are lock-free.
  */
 public class AcknowledgedCounterGenerator extends CounterGenerator
 {
-	/** The size of the window of pending id ack's. 2^20 = {@value} */
-	static final int WINDOW_SIZE = Integer.rotateLeft(1, 20);
+	/** The number of values covered by one page of acknowledgement bits. 2^16 = {@value} */
+	static final int PAGE_SIZE = 1 << 16;
+
+	private static final int PAGE_SHIFT = 16;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
 
-	/** The mask to use to turn an id into a slot in {@link #window}. */
-	private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+	/** Pages of acknowledgement bits, by page number. */
+	private final ConcurrentMap<Long, AtomicLongArray> pages;
 
-	private final ReentrantLock lock;
-	private final boolean[] window;
-	private volatile int limit;
+	/** The highest value at and below which every value has been acknowledged. */
+	private final AtomicLong limit;
 
 	/**
 	 * Create a counter that starts at countstart.
 	 */
-	public AcknowledgedCounterGenerator(int countstart)
+	public AcknowledgedCounterGenerator(long countstart)
 	{
 		super(countstart);
-		lock = new ReentrantLock();
-		window = new boolean[WINDOW_SIZE];
-		limit = countstart - 1;
+		pages = new ConcurrentHashMap<Long, AtomicLongArray>();
+		limit = new AtomicLong(countstart - 1);
 	}
 
 	/**
@@ -50,42 +59,87 @@ public class AcknowledgedCounterGenerator extends CounterGenerator
 	 * (as opposed to the highest generated counter value).
 	 */
 	@Override
-	public int lastInt()
+	public long lastLong()
 	{
-		return limit;
+		return limit.get();
 	}
 
 	/**
-	 * Make a generated counter value available via lastInt().
+	 * Make a value returned by nextInt() available via lastInt(). The value
+	 * is matched to the counter's long value nearest the limit, so this works
+	 * across the int wrapping around.
 	 */
 	public void acknowledge(int value)
 	{
-		final int currentSlot = (value & WINDOW_MASK);
-		if (window[currentSlot] == true) {
-			throw new RuntimeException("Too many unacknowledged insertion keys.");
+		long current = limit.get();
+		acknowledge(current + (value - (int) current));
+	}
+
+	/**
+	 * Make a generated counter value available via lastLong().
+	 */
+	public void acknowledge(long position)
+	{
+		AtomicLongArray page = page(position >> PAGE_SHIFT);
+		int bit = (int) (position & PAGE_MASK);
+		long mask = 1L << bit;
+		while (true) {
+			long word = page.get(bit >> 6);
+			if ((word & mask) != 0) {
+				throw new IllegalStateException("Value " + position + " acknowledged twice.");
+			}
+			if (page.compareAndSet(bit >> 6, word, word | mask)) {
+				break;
+			}
 		}
 
-		window[currentSlot] = true;
+		advance();
+	}
+
+	private AtomicLongArray page(long number)
+	{
+		AtomicLongArray page = pages.get(number);
+		if (page == null) {
+			AtomicLongArray created = new AtomicLongArray(PAGE_SIZE / 64);
+			page = pages.putIfAbsent(number, created);
+			if (page == null) {
+				page = created;
+			}
+		}
+		return page;
+	}
 
-		if (lock.tryLock()) {
-			// move a contiguous sequence from the window
-			// over to the "limit" variable
-			try {
-			  // Only loop through the entire window at most once.
-			  int beforeFirstSlot = (limit & WINDOW_MASK);
-				int index;
-				for (index = limit + 1; index != beforeFirstSlot; ++index) {
-					int slot = (index & WINDOW_MASK);
-					if (!window[slot]) {
-						break;
-					}
+	private boolean isAcknowledged(long position)
+	{
+		AtomicLongArray page = pages.get(position >> PAGE_SHIFT);
+		if (page == null) {
+			return false;
+		}
+		int bit = (int) (position & PAGE_MASK);
+		return (page.get(bit >> 6) & (1L << bit)) != 0;
+	}
 
-					window[slot] = false;
+	/**
+	 * Move the limit over the contiguous run of acknowledged values after it.
+	 * Every acknowledgement calls this after setting its bit, so a value
+	 * acknowledged while another thread is advancing is never left behind.
+	 */
+	private void advance()
+	{
+		while (true) {
+			long current = limit.get();
+			long next = current;
+			while (isAcknowledged(next + 1)) {
+				next++;
+			}
+			if (next == current) {
+				return;
+			}
+			if (limit.compareAndSet(current, next)) {
+				// every value in pages wholly at or below the limit has been acknowledged, so no one will use them again
+				for (long number = (current + 1) >> PAGE_SHIFT; number < (next + 1) >> PAGE_SHIFT; number++) {
+					pages.remove(number);
 				}
-
-				limit = index - 1;
-			} finally {
-				lock.unlock();
 			}
 		}
 	}
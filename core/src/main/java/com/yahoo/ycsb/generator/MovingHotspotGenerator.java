@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * A hotspot distribution, like {@link HotspotIntegerGenerator}, whose hot set
+ * moves over time, for measuring how quickly caches adapt to drifting traffic.
+ * The hot set is a contiguous range (wrapping around at the upper bound) that
+ * starts at an offset into the interval. The offset changes once every period,
+ * measured from the first value drawn:
+ * <ul>
+ * <li><b>step</b>: it jumps ahead by the move distance
+ * <li><b>slide</b>: it moves by the move distance over the period, continuously
+ * <li><b>random</b>: it is drawn anew, uniformly over the interval
+ * </ul>
+ * The hot set is chosen from the elapsed time alone, so threads never
+ * coordinate to move it. The first thread to draw a value, and the first to
+ * draw one in each new period, calls {@link #shifted(long, long)}, which can
+ * be overridden to record where the hot set started and when it moved.
+ */
+public class MovingHotspotGenerator extends IntegerGenerator {
+
+  /** How the hot set moves. */
+  public enum Movement { STEP, SLIDE, RANDOM }
+
+  private final long lowerBound;
+  private final long interval;
+  private final long hotInterval;
+  private final double hotOpnFraction;
+  private final Movement movement;
+  private final long periodNs;
+  private final long distance;
+  private final long seed;
+
+  private final AtomicLong startNs = new AtomicLong();
+  private final AtomicLong lastPeriod = new AtomicLong(-1);
+
+  /**
+   * @param lowerBound The lowest value generated.
+   * @param upperBound The highest value generated.
+   * @param hotsetFraction The fraction of the interval that is hot.
+   * @param hotOpnFraction The fraction of values drawn from the hot set.
+   * @param movement How the hot set moves.
+   * @param periodSeconds How often the hot set moves.
+   * @param distanceFraction How far the hot set moves each period, as a
+   *        fraction of the interval; not used by RANDOM.
+   */
+  public MovingHotspotGenerator(long lowerBound, long upperBound, double hotsetFraction, double hotOpnFraction,
+      Movement movement, double periodSeconds, double distanceFraction) {
+    if (lowerBound > upperBound) {
+      throw new IllegalArgumentException("Upper bound " + upperBound + " is below lower bound " + lowerBound);
+    }
+    if (hotsetFraction < 0.0 || hotsetFraction > 1.0 || hotOpnFraction < 0.0 || hotOpnFraction > 1.0) {
+      throw new IllegalArgumentException("Hotspot fractions must be between 0 and 1");
+    }
+    if (periodSeconds <= 0) {
+      throw new IllegalArgumentException("Hotspot move period must be positive, got " + periodSeconds);
+    }
+    this.lowerBound = lowerBound;
+    this.interval = upperBound - lowerBound + 1;
+    this.hotInterval = (long) (interval * hotsetFraction);
+    this.hotOpnFraction = hotOpnFraction;
+    this.movement = movement;
+    this.periodNs = (long) (periodSeconds * TimeUnit.SECONDS.toNanos(1));
+    this.distance = (long) (interval * distanceFraction) % interval;
+    this.seed = Utils.random().nextLong();
+  }
+
+  /**
+   * @return The offset of the hot set into the interval, elapsedNs after the start.
+   */
+  long offsetAt(long elapsedNs) {
+    long period = elapsedNs / periodNs;
+    switch (movement) {
+    case SLIDE:
+      // distance * elapsed / period without overflowing for large key spaces
+      double moved = (double) distance * elapsedNs / periodNs;
+      return (long) (moved % interval);
+    case RANDOM:
+      if (period == 0) {
+        return 0;
+      }
+      return (Utils.FNVhash64(seed + period) & Long.MAX_VALUE) % interval;
+    default:
+      return (long) ((double) distance * period % interval);
+    }
+  }
+
+  @Override
+  public int nextInt() {
+    return (int) nextLong();
+  }
+
+  @Override
+  public long nextLong() {
+    long now = System.nanoTime();
+    long start = startNs.get();
+    if (start == 0) {
+      startNs.compareAndSet(0, now);
+      start = startNs.get();
+    }
+    long elapsed = now - start;
+    long offset = offsetAt(elapsed);
+
+    long period = elapsed / periodNs;
+    long last = lastPeriod.get();
+    if (period > last && lastPeriod.compareAndSet(last, period)) {
+      shifted(period, offset);
+    }
+
+    Random random = Utils.random();
+    long value;
+    if (hotInterval > 0 && (hotInterval == interval || random.nextDouble() < hotOpnFraction)) {
+      value = Utils.randomLong(hotInterval);
+    } else {
+      value = hotInterval + Utils.randomLong(interval - hotInterval);
+    }
+    value = lowerBound + (offset + value) % interval;
+    setLastLong(value);
+    return value;
+  }
+
+  /**
+   * Called by the first thread to draw a value, with period 0, and by the
+   * first to draw one after the hot set moved, before it returns a value from
+   * the moved hot set. If no values were drawn for several periods, it is
+   * called once, for the latest.
+   *
+   * @param period The number of periods since the start.
+   * @param offset The new offset of the hot set into the interval.
+   */
+  protected void shifted(long period, long offset) {
+  }
+
+  @Override
+  public double mean() {
+    return lowerBound + (interval - 1) / 2.0;
+  }
+}
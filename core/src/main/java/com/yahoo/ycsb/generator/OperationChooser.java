@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Chooses operations, the constants of an enum, in proportion to their
+ * weights. Each choice takes constant time and allocates nothing: it uses
+ * Walker's alias method, which needs a single random number to pick a
+ * column of a precomputed table and then either the column's own operation
+ * or its alias.
+ *
+ * <p>Weights can be changed at any time, e.g. to shift the operation mix in
+ * the middle of a run. The table is immutable and is replaced as a whole, so
+ * threads choosing operations never lock or see a half-updated table.
+ *
+ * @param <E> The operations to choose from.
+ */
+public class OperationChooser<E extends Enum<E>>
+{
+  /** One immutable alias table. */
+  private static final class Table
+  {
+    final double[] weights;
+    final double total;
+    /** The probability of choosing a column's own operation rather than its alias. */
+    final double[] prob;
+    final int[] alias;
+
+    Table(double[] weights)
+    {
+      this.weights = weights;
+      int n = weights.length;
+      double sum = 0;
+      for (double w : weights)
+      {
+        sum += w;
+      }
+      total = sum;
+      prob = new double[n];
+      alias = new int[n];
+      if (sum <= 0)
+      {
+        return;
+      }
+
+      // Vose's construction: pair each under-full column with an over-full one
+      double[] scaled = new double[n];
+      int[] small = new int[n];
+      int[] large = new int[n];
+      int nsmall = 0;
+      int nlarge = 0;
+      for (int i = 0; i < n; i++)
+      {
+        scaled[i] = weights[i] * n / sum;
+        if (scaled[i] < 1)
+        {
+          small[nsmall++] = i;
+        }
+        else
+        {
+          large[nlarge++] = i;
+        }
+      }
+      while (nsmall > 0 && nlarge > 0)
+      {
+        int l = small[--nsmall];
+        int g = large[--nlarge];
+        prob[l] = scaled[l];
+        alias[l] = g;
+        scaled[g] = (scaled[g] + scaled[l]) - 1;
+        if (scaled[g] < 1)
+        {
+          small[nsmall++] = g;
+        }
+        else
+        {
+          large[nlarge++] = g;
+        }
+      }
+      // whatever is left is full, up to rounding
+      while (nlarge > 0)
+      {
+        prob[large[--nlarge]] = 1;
+      }
+      while (nsmall > 0)
+      {
+        prob[small[--nsmall]] = 1;
+      }
+    }
+  }
+
+  private final E[] _operations;
+  private final AtomicReference<Table> _table;
+
+  /**
+   * Create a chooser for the constants of the given enum, all with weight 0.
+   */
+  public OperationChooser(Class<E> type)
+  {
+    _operations = type.getEnumConstants();
+    _table = new AtomicReference<Table>(new Table(new double[_operations.length]));
+  }
+
+  /**
+   * Set the weight of one operation. Weights are relative to each other and need not add up to 1.
+   */
+  public void setWeight(E operation, double weight)
+  {
+    if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight))
+    {
+      throw new IllegalArgumentException("Invalid weight " + weight + " for " + operation);
+    }
+    while (true)
+    {
+      Table current = _table.get();
+      double[] weights = current.weights.clone();
+      weights[operation.ordinal()] = weight;
+      if (_table.compareAndSet(current, new Table(weights)))
+      {
+        return;
+      }
+    }
+  }
+
+  public double getWeight(E operation)
+  {
+    return _table.get().weights[operation.ordinal()];
+  }
+
+  /**
+   * @return The chance that the given operation is chosen next, from 0 to 1.
+   */
+  public double getProbability(E operation)
+  {
+    Table table = _table.get();
+    return table.total > 0 ? table.weights[operation.ordinal()] / table.total : 0;
+  }
+
+  /**
+   * Choose the next operation.
+   *
+   * @return The operation, or null if no operation has a positive weight.
+   */
+  public E next()
+  {
+    Table table = _table.get();
+    if (table.total <= 0)
+    {
+      return null;
+    }
+    Random random = Utils.random();
+    double u = random.nextDouble() * _operations.length;
+    int column = (int) u;
+    return (u - column) < table.prob[column] ? _operations[column] : _operations[table.alias[column]];
+  }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * A generator of a zipfian distribution that, unlike {@link ZipfianGenerator}, needs no sum over the items: setting it up
+ * takes constant time whatever the number of items, so it is suitable for key spaces of billions of records. Item i (counting
+ * from 0) is chosen with probability proportional to 1/(i+1)^s for any zipfian constant s greater than 0, including s=1 and s&gt;1.
+ *
+ * The number of items can change from call to call, as with ZipfianGenerator.nextLong(itemcount). The only value that depends
+ * on it is recomputed in constant time and without locking, so growing the item space does not stall other threads.
+ *
+ * Popular items are clustered at the bottom of the range; use {@link ScrambledZipfianGenerator} to scatter them.
+ *
+ * The algorithm is from "Rejection-inversion to generate variates from monotone discrete distributions",
+ * Wolfgang Hormann and Gerhard Derflinger, ACM TOMACS 6(3), 1996.
+ */
+public class RejectionInversionZipfianGenerator extends IntegerGenerator
+{
+	/**
+	 * The item count and the value of H(itemcount + 1/2) for it, replaced as a whole when the item count changes.
+	 */
+	private static final class Bound
+	{
+		final long items;
+		final double hintegralitems;
+
+		Bound(long items, double hintegralitems)
+		{
+			this.items=items;
+			this.hintegralitems=hintegralitems;
+		}
+	}
+
+	/**
+	 * Number of items nextLong() draws from.
+	 */
+	final long items;
+
+	/**
+	 * Min item to generate.
+	 */
+	final long base;
+
+	/**
+	 * The zipfian constant.
+	 */
+	final double exponent;
+
+	/**
+	 * Computed parameters that don't depend on the number of items.
+	 */
+	final double hintegralx1,s;
+
+	volatile Bound bound;
+
+	/**
+	 * Create a zipfian generator for the specified number of items.
+	 * @param items The number of items in the distribution.
+	 * @param zipfianconstant The zipfian constant to use.
+	 */
+	public RejectionInversionZipfianGenerator(long items, double zipfianconstant)
+	{
+		this(0,items-1,zipfianconstant);
+	}
+
+	/**
+	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant.
+	 * @param min The smallest integer to generate in the sequence.
+	 * @param max The largest integer to generate in the sequence.
+	 * @param zipfianconstant The zipfian constant to use.
+	 */
+	public RejectionInversionZipfianGenerator(long min, long max, double zipfianconstant)
+	{
+		if (!(zipfianconstant>0))
+		{
+			throw new IllegalArgumentException("Zipfian constant must be positive, got "+zipfianconstant);
+		}
+		if (max<min)
+		{
+			throw new IllegalArgumentException("Empty item range "+min+".."+max);
+		}
+		items=max-min+1;
+		base=min;
+		exponent=zipfianconstant;
+		hintegralx1=hIntegral(1.5)-1;
+		s=2-hIntegralInverse(hIntegral(2.5)-h(2));
+		bound=bound(items);
+	}
+
+	private Bound bound(long items)
+	{
+		return new Bound(items,hIntegral(items+0.5));
+	}
+
+	/**
+	 * Generate the next item as a long, from the given number of items.
+	 *
+	 * @param itemcount The number of items in the distribution.
+	 * @return The next item in the sequence.
+	 */
+	public long nextLong(long itemcount)
+	{
+		if (itemcount<1)
+		{
+			setLastLong(base);
+			return base;
+		}
+
+		Bound b=bound;
+		if (b.items!=itemcount)
+		{
+			// racing threads may each build one; any of them is correct for its own itemcount
+			b=bound(itemcount);
+			bound=b;
+		}
+
+		Random random=Utils.random();
+		while (true)
+		{
+			double u=b.hintegralitems+random.nextDouble()*(hintegralx1-b.hintegralitems);
+			double x=hIntegralInverse(u);
+			long k=(long)(x+0.5);
+			if (k<1)
+			{
+				k=1;
+			}
+			else if (k>itemcount)
+			{
+				k=itemcount;
+			}
+			if (k-x<=s || u>=hIntegral(k+0.5)-h(k))
+			{
+				long ret=base+k-1;
+				setLastLong(ret);
+				return ret;
+			}
+		}
+	}
+
+	/**
+	 * Return the next value as a long, skewed by the zipfian distribution.
+	 */
+	public long nextLong()
+	{
+		return nextLong(items);
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int)nextLong();
+	}
+
+	/**
+	 * Generate the next item from the given number of items.
+	 */
+	public int nextInt(int itemcount)
+	{
+		return (int)nextLong(itemcount);
+	}
+
+	/**
+	 * H(x), an integral of h(x) = 1/x^exponent, chosen so that H(x) - H(x-1) &gt;= h(x) around each integer.
+	 */
+	private double hIntegral(double x)
+	{
+		double logx=Math.log(x);
+		return helper2((1-exponent)*logx)*logx;
+	}
+
+	private double h(double x)
+	{
+		return Math.exp(-exponent*Math.log(x));
+	}
+
+	private double hIntegralInverse(double x)
+	{
+		double t=x*(1-exponent);
+		if (t<-1)
+		{
+			// only reached through rounding errors
+			t=-1;
+		}
+		return Math.exp(helper1(t)*x);
+	}
+
+	/**
+	 * log(1+x)/x, accurate also for x close to 0.
+	 */
+	static double helper1(double x)
+	{
+		if (Math.abs(x)>1e-8)
+		{
+			return Math.log1p(x)/x;
+		}
+		return 1-x*(0.5-x*(1.0/3.0-0.25*x));
+	}
+
+	/**
+	 * (exp(x)-1)/x, accurate also for x close to 0.
+	 */
+	static double helper2(double x)
+	{
+		if (Math.abs(x)>1e-8)
+		{
+			return Math.expm1(x)/x;
+		}
+		return 1+x*0.5*(1+x*1.0/3.0*(1+0.25*x));
+	}
+
+	/**
+	 * The mean of nextLong(), base - 1 + H(items,exponent-1)/H(items,exponent) with H the generalized harmonic numbers.
+	 */
+	@Override
+	public double mean()
+	{
+		return base-1+harmonic(items,exponent-1)/harmonic(items,exponent);
+	}
+
+	/**
+	 * The number of terms of a harmonic number summed one by one, before the rest is approximated.
+	 */
+	static final long HARMONIC_TERMS=1<<20;
+
+	/**
+	 * H(n,e), the sum of 1/i^e for i from 1 to n. Terms past HARMONIC_TERMS are approximated with the Euler-Maclaurin
+	 * formula, so this takes bounded time for any n.
+	 */
+	static double harmonic(long n, double e)
+	{
+		long m=Math.min(n,HARMONIC_TERMS);
+		double sum=0;
+		// smallest terms first, for accuracy
+		for (long i=m; i>=1; i--)
+		{
+			sum+=Math.pow(i,-e);
+		}
+		if (n>m)
+		{
+			// sum of f(i) for i from m+1 to n ~ integral of f from m to n + (f(n)-f(m))/2 + (f'(n)-f'(m))/12
+			double integral=Math.abs(1-e)<1e-12 ? Math.log((double)n/m) : (Math.pow(n,1-e)-Math.pow(m,1-e))/(1-e);
+			sum+=integral+(Math.pow(n,-e)-Math.pow(m,-e))/2-e*(Math.pow(n,-e-1)-Math.pow(m,-e-1))/12;
+		}
+		return sum;
+	}
+}
@@ -35,6 +35,7 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 	public static final long ITEM_COUNT=10000000000L;
 	
 	ZipfianGenerator gen;
+	RejectionInversionZipfianGenerator rigen;
 	long _min,_max,_itemcount;
 	
 	/******************************* Constructors **************************************/
@@ -64,22 +65,20 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 	 * @param _items The number of items in the distribution.
 	 * @param _zipfianconstant The zipfian constant to use.
 	 */
-	/*
-// not supported, as the value of zeta depends on the zipfian constant, and we have only precomputed zeta for one zipfian constant
 	public ScrambledZipfianGenerator(long _items, double _zipfianconstant)
 	{
 		this(0,_items-1,_zipfianconstant);
 	}
-*/
 	
 	/**
-	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. If you 
-	 * use a zipfian constant other than 0.99, this will take a long time to complete because we need to recompute zeta.
+	 * Create a zipfian generator for items between min and max (inclusive) for the specified zipfian constant. Zeta has
+	 * only been precomputed for a zipfian constant of 0.99; other constants use a RejectionInversionZipfianGenerator, which
+	 * needs no zeta, so construction is fast either way.
 	 * @param min The smallest integer to generate in the sequence.
 	 * @param max The largest integer to generate in the sequence.
 	 * @param _zipfianconstant The zipfian constant to use.
 	 */
-        public ScrambledZipfianGenerator(long min, long max, double _zipfianconstant)
+	public ScrambledZipfianGenerator(long min, long max, double _zipfianconstant)
 	{
 		_min=min;
 		_max=max;
@@ -88,7 +87,7 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 		{
 		    gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant,ZETAN);
 		} else {
-		    gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant);
+		    rigen=new RejectionInversionZipfianGenerator(0,ITEM_COUNT,_zipfianconstant);
 		}
 	}
 	
@@ -107,9 +106,9 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 	 */
 	public long nextLong()
 	{
-		long ret=gen.nextLong();
+		long ret=gen!=null ? gen.nextLong() : rigen.nextLong();
 		ret=_min+Utils.FNVhash64(ret)%_itemcount;
-		setLastInt((int)ret);
+		setLastLong(ret);
 		return ret;
 	}
 	
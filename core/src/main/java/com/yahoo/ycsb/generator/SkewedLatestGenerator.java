@@ -23,12 +23,21 @@ package com.yahoo.ycsb.generator;
 public class SkewedLatestGenerator extends IntegerGenerator
 {
 	CounterGenerator _basis;
-	ZipfianGenerator _zipfian;
+	RejectionInversionZipfianGenerator _zipfian;
 
 	public SkewedLatestGenerator(CounterGenerator basis)
+	{
+		this(basis,ZipfianGenerator.ZIPFIAN_CONSTANT);
+	}
+
+	/**
+	 * @param zipfianconstant The skew towards recent items.
+	 */
+	public SkewedLatestGenerator(CounterGenerator basis, double zipfianconstant)
 	{
 		_basis=basis;
-		_zipfian=new ZipfianGenerator(_basis.lastInt());
+		// the item count grows with every insert; this generator adjusts to it in constant time
+		_zipfian=new RejectionInversionZipfianGenerator(Math.max(1,_basis.lastLong()),zipfianconstant);
 		nextInt();
 	}
 
@@ -37,10 +46,16 @@ public class SkewedLatestGenerator extends IntegerGenerator
 	 */
 	public int nextInt()
 	{
-		int max=_basis.lastInt();
-		int nextint=max-_zipfian.nextInt(max);
-		setLastInt(nextint);
-		return nextint;
+		return (int)nextLong();
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long max=_basis.lastLong();
+		long next=max-_zipfian.nextLong(max);
+		setLastLong(next);
+		return next;
 	}
 
 	public static void main(String[] args)
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Records when something happened during the run, e.g. the hot set of the
+ * movinghotspot distribution moving, apart from the operation latencies so
+ * that the events neither depend on measurement.interval nor show up in the
+ * latency statistics.
+ *
+ * <p>Exported as [&lt;name&gt;], Events giving the number of events, then
+ * one line per event with the milliseconds since the time series started and
+ * the value recorded with it.
+ */
+public class EventSeries
+{
+  private final String _name;
+  private final long _start;
+  private final List<long[]> _events = new ArrayList<long[]>();
+
+  /**
+   * @param start When the time series start, in milliseconds since the epoch.
+   */
+  public EventSeries(String name, long start)
+  {
+    _name = name;
+    _start = start;
+  }
+
+  public String getName()
+  {
+    return _name;
+  }
+
+  /**
+   * Record an event that happens now.
+   */
+  public void record(long value)
+  {
+    record(System.currentTimeMillis(), value);
+  }
+
+  /**
+   * @param now When the event happened, in milliseconds since the epoch.
+   */
+  synchronized void record(long now, long value)
+  {
+    _events.add(new long[] {now - _start, value});
+  }
+
+  public synchronized int getCount()
+  {
+    return _events.size();
+  }
+
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    exporter.write(_name, "Events", _events.size());
+    for (long[] event : _events)
+    {
+      exporter.write(_name, Long.toString(event[0]), (double) event[1]);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+
+/**
+ * A measurement name resolved once, for the operations of one thread. The
+ * thread measures into recorders of its own, which the status thread and the
+ * export merge, so it neither looks the name up nor shares a lock or counter
+ * with other threads on each operation.
+ *
+ * A handle is bound to the thread that last resolved it, normally the one that
+ * obtained it; other threads that use it, e.g. to complete an asynchronous
+ * operation, fall back to {@link Measurements#measure(String, int)} and the
+ * other shared methods. It resolves itself again when the warm-up starts or
+ * ends and when the measurements are reset.
+ */
+public final class MeasurementHandle
+{
+  /**
+   * What a handle resolved to, for one thread and one generation of the
+   * measurements. Never changed, so a handle can be shared safely.
+   */
+  private static final class Resolved
+  {
+    final Thread owner;
+    final int generation;
+    /** The recorders, or null for measurements that are not taken. */
+    final OneMeasurement op;
+    final OneMeasurement intended;
+    final OneMeasurement status;
+    /** Null when the throughput is not recorded. */
+    final ThroughputTimeSeries.Recorder throughput;
+
+    Resolved(Thread owner, int generation, OneMeasurement op, OneMeasurement intended, OneMeasurement status,
+        ThroughputTimeSeries.Recorder throughput)
+    {
+      this.owner = owner;
+      this.generation = generation;
+      this.op = op;
+      this.intended = intended;
+      this.status = status;
+      this.throughput = throughput;
+    }
+  }
+
+  private final Measurements _measurements;
+  private final String _operation;
+  /** The operation without any status suffix, which its throughput is counted under. */
+  private final String _throughputOperation;
+  private volatile Resolved _resolved;
+
+  MeasurementHandle(Measurements measurements, String operation)
+  {
+    _measurements = measurements;
+    _operation = operation;
+    _throughputOperation = RawBinaryLog.splitStatus(operation)[0];
+  }
+
+  public String getOperation()
+  {
+    return _operation;
+  }
+
+  /**
+   * @return The recorders of the calling thread, or null if another thread
+   *         owns this handle.
+   */
+  private Resolved resolve()
+  {
+    Thread current = Thread.currentThread();
+    // read before resolving, so a change while resolving is noticed next time
+    int generation = _measurements.getGeneration();
+    Resolved r = _resolved;
+    if (r != null && r.generation == generation)
+    {
+      return r.owner == current ? r : null;
+    }
+    int interval = _measurements._measurementInterval;
+    OneMeasurement op = interval == 1 ? null : _measurements.getOpMeasurement(_operation).newThreadRecorder();
+    OneMeasurement intended = interval == 0 ? null :
+        _measurements.getOpIntendedMeasurement(_operation).newThreadRecorder();
+    r = new Resolved(current, generation, op, intended, interval == 1 ? intended : op,
+        _measurements.newThroughputRecorder());
+    _resolved = r;
+    return r;
+  }
+
+  /**
+   * Same as {@link Measurements#measureNanos(String, long)} for this handle's operation.
+   */
+  public void measureNanos(long nanos)
+  {
+    Resolved r = resolve();
+    if (r == null)
+    {
+      _measurements.measureNanos(_operation, nanos);
+    }
+    else if (r.op != null)
+    {
+      r.op.measure(_measurements.fromNanos(nanos));
+    }
+  }
+
+  /**
+   * Same as {@link Measurements#measureIntendedNanos(String, long)} for this handle's operation.
+   */
+  public void measureIntendedNanos(long nanos)
+  {
+    Resolved r = resolve();
+    if (r == null)
+    {
+      _measurements.measureIntendedNanos(_operation, nanos);
+    }
+    else if (r.intended != null)
+    {
+      r.intended.measure(_measurements.fromNanos(nanos));
+    }
+  }
+
+  /**
+   * Same as {@link Measurements#reportStatus(String, Status)} for this handle's operation.
+   */
+  public void reportStatus(Status status)
+  {
+    Resolved r = resolve();
+    if (r == null)
+    {
+      _measurements.reportStatus(_operation, status);
+    }
+    else
+    {
+      r.status.reportStatus(status);
+      if (r.throughput != null)
+      {
+        r.throughput.count(_throughputOperation, status.getName());
+      }
+    }
+  }
+}
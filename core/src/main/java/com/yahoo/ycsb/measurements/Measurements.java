@@ -21,9 +21,14 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.HdrHistogram.Histogram;
+
 /**
  * Collects latency measurements, and reports them when requested.
  *
@@ -41,7 +46,9 @@ public class Measurements {
     HDRHISTOGRAM_AND_HISTOGRAM,
     HDRHISTOGRAM_AND_RAW,
     TIMESERIES,
-    RAW
+    RAW,
+    RAW_BINARY,
+    HDRHISTOGRAM_AND_RAW_BINARY
   }
 
   public static final String MEASUREMENT_TYPE_PROPERTY = "measurementtype";
@@ -50,6 +57,13 @@ public class Measurements {
   public static final String MEASUREMENT_INTERVAL = "measurement.interval";
   private static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
 
+  /**
+   * The unit latencies are recorded and exported in, "us" or "ns". Nanoseconds resolve the latencies of
+   * in-memory stores, most of which would otherwise fall into the first few microseconds.
+   */
+  public static final String LATENCY_UNIT_PROPERTY = "measurement.latency.unit";
+  public static final String LATENCY_UNIT_PROPERTY_DEFAULT = "us";
+
   static Measurements singleton=null;
   static Properties measurementproperties=null;
 
@@ -72,10 +86,48 @@ public class Measurements {
 
   final ConcurrentHashMap<String,OneMeasurement> _opToMesurementMap;
   final ConcurrentHashMap<String,OneMeasurement> _opToIntendedMesurementMap;
+  final ConcurrentHashMap<String,OneMeasurement> _warmupMesurementMap;
+  final ConcurrentHashMap<String,OneMeasurement> _warmupIntendedMesurementMap;
   final MeasurementType _measurementType;
   final int _measurementInterval;
   private Properties _props;
 
+  /** The file the rawbinary measurement types stream their records to. */
+  public static final String RAW_BINARY_OUTPUT_FILE_DEFAULT = "ycsb-raw.bin";
+
+  /** Set for the rawbinary measurement types. */
+  private final RawBinaryLog _rawBinaryLog;
+
+  /** When the time series of this run, or of this phase, start; they all share it so their intervals line up. */
+  private volatile long _timeSeriesStartMs = System.currentTimeMillis();
+
+  /** Set when measurement.overhead is enabled. */
+  private final OperationOverhead _overhead;
+
+  /** Whether measurement.throughput.timeseries is enabled. */
+  private final boolean _throughputEnabled;
+
+  /** The throughput series of this run, or of this phase; null while warming up or when not enabled. */
+  private volatile ThroughputTimeSeries _throughput;
+
+  /** The events of this run, or of this phase, by name. Recorded whatever the warm-up and interval settings. */
+  private final ConcurrentHashMap<String,EventSeries> _events = new ConcurrentHashMap<String,EventSeries>();
+
+  /** Whether latencies are recorded in nanoseconds, rather than microseconds. */
+  private final boolean _nanos;
+
+  /** Prefixes the names of measurements taken during the warm-up. */
+  public static final String WARMUP_PREFIX = "WARMUP-";
+
+  /** While set, measurements are recorded under {@link #WARMUP_PREFIX} instead of their own name. */
+  private volatile boolean _warmingUp;
+
+  /** Changed whenever the measurements a name resolves to change, so handles know to resolve it again. */
+  private volatile int _generation;
+
+  /** The number of times the main measurements were discarded, by the end of the warm-up or a reset. */
+  private volatile int _resets;
+
   /**
    * Create a new object with the specified properties.
    */
@@ -83,6 +135,8 @@ public class Measurements {
   {
     _opToMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
     _opToIntendedMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+    _warmupMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+    _warmupIntendedMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
 
     _props=props;
 
@@ -111,10 +165,51 @@ public class Measurements {
     {
       _measurementType = MeasurementType.RAW;
     }
+    else if (mTypeString.equals("rawbinary"))
+    {
+      _measurementType = MeasurementType.RAW_BINARY;
+    }
+    else if (mTypeString.equals("hdrhistogram+rawbinary"))
+    {
+      _measurementType = MeasurementType.HDRHISTOGRAM_AND_RAW_BINARY;
+    }
     else {
       throw new IllegalArgumentException("unknown "+MEASUREMENT_TYPE_PROPERTY+"="+mTypeString);
     }
 
+    if (_measurementType == MeasurementType.RAW_BINARY ||
+        _measurementType == MeasurementType.HDRHISTOGRAM_AND_RAW_BINARY)
+    {
+      String path = _props.getProperty(OneMeasurementRaw.OUTPUT_FILE_PATH, OneMeasurementRaw.OUTPUT_FILE_PATH_DEFAULT);
+      if (path.isEmpty())
+      {
+        path = RAW_BINARY_OUTPUT_FILE_DEFAULT;
+      }
+      try
+      {
+        _rawBinaryLog = new RawBinaryLog(path, getLatencyUnit(_props));
+      }
+      catch (IOException e)
+      {
+        throw new RuntimeException("Failed to open raw data output file " + path, e);
+      }
+      System.out.println("Raw data measurement: will stream binary records to " + path);
+    }
+    else
+    {
+      _rawBinaryLog = null;
+    }
+
+    _nanos = getLatencyUnit(_props).equals("ns");
+
+    _throughputEnabled = Boolean.parseBoolean(_props.getProperty(
+        ThroughputTimeSeries.THROUGHPUT_TIMESERIES_PROPERTY,
+        ThroughputTimeSeries.THROUGHPUT_TIMESERIES_PROPERTY_DEFAULT));
+    _throughput = _throughputEnabled ? new ThroughputTimeSeries(_props, _timeSeriesStartMs) : null;
+
+    _overhead = Boolean.parseBoolean(_props.getProperty(OperationOverhead.OVERHEAD_PROPERTY,
+        OperationOverhead.OVERHEAD_PROPERTY_DEFAULT)) ? new OperationOverhead() : null;
+
     String mIntervalString = _props.getProperty(MEASUREMENT_INTERVAL, MEASUREMENT_INTERVAL_DEFAULT);
     if (mIntervalString.equals("op"))
     {
@@ -150,9 +245,15 @@ public class Measurements {
           new OneMeasurementHdrHistogram("Hdr"+name, _props),
           new OneMeasurementHistogram("Raw"+name, _props));
     case TIMESERIES:
-      return new OneMeasurementTimeSeries(name, _props);
+      return new OneMeasurementTimeSeries(name, _props, _timeSeriesStartMs);
     case RAW:
       return new OneMeasurementRaw(name, _props);
+    case RAW_BINARY:
+      return new OneMeasurementRawBinary(name, _rawBinaryLog, _props);
+    case HDRHISTOGRAM_AND_RAW_BINARY:
+      return new TwoInOneMeasurement(name,
+          new OneMeasurementHdrHistogram("Hdr"+name, _props),
+          new OneMeasurementRawBinary(name, _rawBinaryLog, _props));
     default:
       throw new AssertionError("Impossible to be here. Dead code reached. Bugs?");
     }
@@ -189,18 +290,64 @@ public class Measurements {
     return tlIntendedStartTime.get().startTime();
   }
 
+  /**
+   * @return The unit the given properties record latencies in, "us" or "ns".
+   */
+  public static String getLatencyUnit(Properties props)
+  {
+    String unit = props.getProperty(LATENCY_UNIT_PROPERTY, LATENCY_UNIT_PROPERTY_DEFAULT);
+    if (!unit.equals("us") && !unit.equals("ns"))
+    {
+      throw new IllegalArgumentException("unknown "+LATENCY_UNIT_PROPERTY+"="+unit);
+    }
+    return unit;
+  }
+
+  /**
+   * @return The unit latencies are recorded in, "us" or "ns".
+   */
+  public String getLatencyUnit()
+  {
+    return _nanos ? "ns" : "us";
+  }
+
+  /**
+   * Convert a latency in nanoseconds to the unit latencies are recorded in.
+   */
+  long fromNanos(long nanos)
+  {
+    return _nanos ? nanos : nanos / 1000;
+  }
+
+  /**
+   * Convert a recorded latency, e.g. one read from {@link #getHdrHistogramSnapshot(Set)}, to microseconds.
+   */
+  public long toMicros(long latency)
+  {
+    return _nanos ? latency / 1000 : latency;
+  }
+
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
-   * value.
+   * value, in microseconds.
    */
   public void measure(String operation, int latency)
+  {
+    measureNanos(operation, latency * 1000L);
+  }
+
+  /**
+   * Report a single latency, measured in nanoseconds. It is recorded with full resolution if the latency unit
+   * is nanoseconds.
+   */
+  public void measureNanos(String operation, long nanos)
   {
     if(_measurementInterval==1)
       return;
     try
     {
       OneMeasurement m = getOpMeasurement(operation);
-      m.measure(latency);
+      m.measure(fromNanos(nanos));
     }
     // This seems like a terribly hacky way to cover up for a bug in the measurement code
     catch (java.lang.ArrayIndexOutOfBoundsException e)
@@ -213,16 +360,24 @@ public class Measurements {
 
   /**
    * Report a single value of a single metric. E.g. for read latency, operation="READ" and latency is the measured
-   * value.
+   * value, in microseconds.
    */
   public void measureIntended(String operation, int latency)
+  {
+    measureIntendedNanos(operation, latency * 1000L);
+  }
+
+  /**
+   * Report a single intended latency, measured in nanoseconds.
+   */
+  public void measureIntendedNanos(String operation, long nanos)
   {
     if(_measurementInterval==0)
       return;
     try
     {
       OneMeasurement m = getOpIntendedMeasurement(operation);
-      m.measure(latency);
+      m.measure(fromNanos(nanos));
     }
     // This seems like a terribly hacky way to cover up for a bug in the measurement code
     catch (java.lang.ArrayIndexOutOfBoundsException e)
@@ -233,12 +388,47 @@ public class Measurements {
     }
   }
 
-  private OneMeasurement getOpMeasurement(String operation) {
-    OneMeasurement m = _opToMesurementMap.get(operation);
+  /**
+   * Record the latencies of an operation that was issued during the warm-up but completed after it under the
+   * warm-up measurements, so it doesn't count towards the first interval measured.
+   *
+   * @param nanos The latency from when the operation started, in nanoseconds.
+   * @param intendedNanos The latency from when it was intended to start, in nanoseconds.
+   */
+  public void measureWarmupNanos(String operation, long nanos, long intendedNanos)
+  {
+    if (_measurementInterval != 1)
+    {
+      getOpMeasurement(operation, true).measure(fromNanos(nanos));
+    }
+    if (_measurementInterval != 0)
+    {
+      getOpIntendedMeasurement(operation, true).measure(fromNanos(intendedNanos));
+    }
+  }
+
+  /**
+   * Count the return code of an operation that was issued during the warm-up but completed after it.
+   */
+  public void reportWarmupStatus(String operation, Status status)
+  {
+    OneMeasurement m = _measurementInterval==1 ?
+          getOpIntendedMeasurement(operation, true) :
+          getOpMeasurement(operation, true);
+    m.reportStatus(status);
+  }
+
+  OneMeasurement getOpMeasurement(String operation) {
+    return getOpMeasurement(operation, _warmingUp);
+  }
+
+  private OneMeasurement getOpMeasurement(String operation, boolean warmingUp) {
+    final ConcurrentHashMap<String,OneMeasurement> map = warmingUp ? _warmupMesurementMap : _opToMesurementMap;
+    OneMeasurement m = map.get(operation);
     if(m == null)
     {
-      m = constructOneMeasurement(operation);
-      OneMeasurement oldM = _opToMesurementMap.putIfAbsent(operation, m);
+      m = constructOneMeasurement(warmingUp ? WARMUP_PREFIX + operation : operation);
+      OneMeasurement oldM = map.putIfAbsent(operation, m);
       if(oldM != null)
       {
           m = oldM;
@@ -247,13 +437,23 @@ public class Measurements {
     return m;
   }
 
-  private OneMeasurement getOpIntendedMeasurement(String operation) {
-    OneMeasurement m = _opToIntendedMesurementMap.get(operation);
+  OneMeasurement getOpIntendedMeasurement(String operation) {
+    return getOpIntendedMeasurement(operation, _warmingUp);
+  }
+
+  private OneMeasurement getOpIntendedMeasurement(String operation, boolean warmingUp) {
+    final ConcurrentHashMap<String,OneMeasurement> map =
+        warmingUp ? _warmupIntendedMesurementMap : _opToIntendedMesurementMap;
+    OneMeasurement m = map.get(operation);
     if(m == null)
     {
-      final String name = _measurementInterval==1 ? operation : "Intended-" + operation;
+      String name = _measurementInterval==1 ? operation : "Intended-" + operation;
+      if (warmingUp)
+      {
+        name = WARMUP_PREFIX + name;
+      }
       m = constructOneMeasurement(name);
-      OneMeasurement oldM = _opToIntendedMesurementMap.putIfAbsent(operation, m);
+      OneMeasurement oldM = map.putIfAbsent(operation, m);
       if(oldM != null)
       {
         m = oldM;
@@ -262,6 +462,126 @@ public class Measurements {
     return m;
   }
 
+  /**
+   * Start recording everything under the {@link #WARMUP_PREFIX} names, leaving the main measurements
+   * untouched.
+   */
+  public synchronized void startWarmup()
+  {
+    _warmingUp = true;
+    _throughput = null;
+    _generation++;
+  }
+
+  /**
+   * End the warm-up. The main measurements are reset and, from the moment this returns, every thread
+   * records into them again.
+   */
+  public synchronized void endWarmup()
+  {
+    _opToMesurementMap.clear();
+    _opToIntendedMesurementMap.clear();
+    if (_overhead != null)
+    {
+      _overhead.reset();
+    }
+    _throughput = _throughputEnabled ? new ThroughputTimeSeries(_props, _timeSeriesStartMs) : null;
+    _warmingUp = false;
+    _generation++;
+    _resets++;
+  }
+
+  /**
+   * Discard everything measured so far, e.g. between the phases of a multi-phase run.
+   */
+  public synchronized void reset()
+  {
+    _opToMesurementMap.clear();
+    _opToIntendedMesurementMap.clear();
+    _warmupMesurementMap.clear();
+    _warmupIntendedMesurementMap.clear();
+    _events.clear();
+    if (_overhead != null)
+    {
+      _overhead.reset();
+    }
+    _timeSeriesStartMs = System.currentTimeMillis();
+    _throughput = _throughputEnabled ? new ThroughputTimeSeries(_props, _timeSeriesStartMs) : null;
+    _warmingUp = false;
+    _generation++;
+    _resets++;
+  }
+
+  /**
+   * @return How many times the measurements returned by {@link #getHdrHistogramSnapshots()} have been discarded
+   *         and started over, so that whoever diffs two snapshots can tell when the second no longer contains the
+   *         first.
+   */
+  public int getResetCount()
+  {
+    return _resets;
+  }
+
+  /**
+   * Record that an event happened now, e.g. the hot set moving. Events are kept apart from the operation
+   * measurements: they are recorded the same way whatever measurement.interval is set to, including during the
+   * warm-up, and add nothing to the latency statistics.
+   *
+   * @param value A number describing the event, exported with the time it happened.
+   */
+  public void recordEvent(String name, long value)
+  {
+    EventSeries events = _events.get(name);
+    if (events == null)
+    {
+      EventSeries created = new EventSeries(name, _timeSeriesStartMs);
+      events = _events.putIfAbsent(name, created);
+      if (events == null)
+      {
+        events = created;
+      }
+    }
+    events.record(value);
+  }
+
+  /**
+   * Get a handle on the given operation's measurements for the calling thread. Measuring through the handle
+   * costs no lookup by name and, for the histogram and raw measurement types, records into recorders of the
+   * thread's own that are merged at each status interval and at export, instead of ones shared by every thread.
+   */
+  public MeasurementHandle getHandle(String operation)
+  {
+    return new MeasurementHandle(this, operation);
+  }
+
+  int getGeneration()
+  {
+    return _generation;
+  }
+
+  /**
+   * @return A recorder for the calling thread to count its operations into, or null if the throughput is not
+   *         being recorded.
+   */
+  ThroughputTimeSeries.Recorder newThroughputRecorder()
+  {
+    ThroughputTimeSeries throughput = _throughput;
+    return throughput == null ? null : throughput.newRecorder();
+  }
+
+  /**
+   * @return The client overhead accounting, or null if measurement.overhead is not enabled.
+   */
+  public OperationOverhead getOverhead()
+  {
+    return _overhead;
+  }
+
+  public boolean isWarmingUp()
+  {
+    return _warmingUp;
+  }
+
   /**
    * Report a return code for a single DB operation.
    */
@@ -271,6 +591,120 @@ public class Measurements {
           getOpIntendedMeasurement(operation) :
           getOpMeasurement(operation);
     m.reportStatus(status);
+    ThroughputTimeSeries throughput = _throughput;
+    if (throughput != null)
+    {
+      throughput.count(operation, status.getName());
+    }
+  }
+
+  /**
+   * @return True if every measurement keeps an HdrHistogram, so {@link #getHdrHistogramSnapshot(Set)} is
+   *         meaningful.
+   */
+  public boolean hasHdrHistograms()
+  {
+    return _measurementType == MeasurementType.HDRHISTOGRAM ||
+        _measurementType == MeasurementType.HDRHISTOGRAM_AND_HISTOGRAM ||
+        _measurementType == MeasurementType.HDRHISTOGRAM_AND_RAW ||
+        _measurementType == MeasurementType.HDRHISTOGRAM_AND_RAW_BINARY;
+  }
+
+  /**
+   * Merge the HdrHistograms recorded so far for the given operations. Intended latencies are used when
+   * they are being measured, since they include any time an operation spent waiting to be issued.
+   *
+   * @param operations The measurement names to include, e.g. "READ", or null for all of them.
+   * @return A copy of the merged histogram, or null if nothing matching has been recorded.
+   */
+  public Histogram getHdrHistogramSnapshot(Set<String> operations)
+  {
+    Map<String,OneMeasurement> map = _measurementInterval==0 ? _opToMesurementMap : _opToIntendedMesurementMap;
+    Histogram merged = null;
+    for (Map.Entry<String,OneMeasurement> entry : map.entrySet())
+    {
+      if (operations != null && !operations.contains(entry.getKey()))
+      {
+        continue;
+      }
+      OneMeasurement m = entry.getValue();
+      if (m instanceof TwoInOneMeasurement)
+      {
+        m = ((TwoInOneMeasurement) m).thing1;
+      }
+      if (!(m instanceof OneMeasurementHdrHistogram))
+      {
+        continue;
+      }
+      Histogram h = ((OneMeasurementHdrHistogram) m).getTotalHistogramSnapshot();
+      if (merged == null)
+      {
+        merged = h;
+      }
+      else
+      {
+        merged.add(h);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Snapshot the HdrHistogram of every measurement taken so far, keyed by measurement name, e.g. "READ" or
+   * "Intended-READ". Warm-up measurements are not included.
+   */
+  public synchronized Map<String,Histogram> getHdrHistogramSnapshots()
+  {
+    Map<String,Histogram> snapshots = new HashMap<String,Histogram>();
+    for (OneMeasurement m : _opToMesurementMap.values())
+    {
+      addHdrHistogramSnapshot(m, snapshots);
+    }
+    for (OneMeasurement m : _opToIntendedMesurementMap.values())
+    {
+      addHdrHistogramSnapshot(m, snapshots);
+    }
+    return snapshots;
+  }
+
+  private static void addHdrHistogramSnapshot(OneMeasurement m, Map<String,Histogram> snapshots)
+  {
+    String name = m.getName();
+    if (m instanceof TwoInOneMeasurement)
+    {
+      m = ((TwoInOneMeasurement) m).thing1;
+    }
+    if (m instanceof OneMeasurementHdrHistogram)
+    {
+      snapshots.put(name, ((OneMeasurementHdrHistogram) m).getTotalHistogramSnapshot());
+    }
+  }
+
+  /**
+   * Add latencies recorded elsewhere, e.g. by another process, to the named measurement. They show up in the
+   * next status summary and in the exported totals as if they had been measured here.
+   */
+  public void mergeHdrHistogram(String name, Histogram histogram)
+  {
+    OneMeasurement m = _opToMesurementMap.get(name);
+    if (m == null)
+    {
+      m = constructOneMeasurement(name);
+      OneMeasurement oldM = _opToMesurementMap.putIfAbsent(name, m);
+      if (oldM != null)
+      {
+        m = oldM;
+      }
+    }
+    if (m instanceof TwoInOneMeasurement)
+    {
+      m = ((TwoInOneMeasurement) m).thing1;
+    }
+    if (!(m instanceof OneMeasurementHdrHistogram))
+    {
+      throw new IllegalStateException("Merging needs an hdrhistogram " + MEASUREMENT_TYPE_PROPERTY);
+    }
+    ((OneMeasurementHdrHistogram) m).merge(histogram);
   }
 
   /**
@@ -281,6 +715,14 @@ public class Measurements {
    */
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
+    for (OneMeasurement measurement : _warmupMesurementMap.values())
+    {
+      measurement.exportMeasurements(exporter);
+    }
+    for (OneMeasurement measurement : _warmupIntendedMesurementMap.values())
+    {
+      measurement.exportMeasurements(exporter);
+    }
     for (OneMeasurement measurement : _opToMesurementMap.values())
     {
       measurement.exportMeasurements(exporter);
@@ -289,6 +731,33 @@ public class Measurements {
     {
       measurement.exportMeasurements(exporter);
     }
+    if (_overhead != null)
+    {
+      _overhead.exportMeasurements(exporter);
+    }
+    ThroughputTimeSeries throughput = _throughput;
+    if (throughput != null)
+    {
+      throughput.exportMeasurements(exporter);
+    }
+    for (EventSeries events : _events.values())
+    {
+      events.exportMeasurements(exporter);
+    }
+  }
+
+  /**
+   * Close the file the rawbinary measurement types stream to, if any. Call after the final export; nothing can
+   * be measured afterwards.
+   *
+   * @throws IOException Thrown if the file couldn't be closed.
+   */
+  public void close() throws IOException
+  {
+    if (_rawBinaryLog != null)
+    {
+      _rawBinaryLog.close();
+    }
   }
 
   /**
@@ -297,6 +766,18 @@ public class Measurements {
   public synchronized String getSummary()
   {
     String ret="";
+    if (_warmingUp)
+    {
+      for (OneMeasurement m : _warmupMesurementMap.values())
+      {
+        ret += m.getSummary()+" ";
+      }
+      for (OneMeasurement m : _warmupIntendedMesurementMap.values())
+      {
+        ret += m.getSummary()+" ";
+      }
+      return ret;
+    }
     for (OneMeasurement m : _opToMesurementMap.values())
     {
       ret += m.getSummary()+" ";
@@ -305,6 +786,10 @@ public class Measurements {
     {
       ret += m.getSummary()+" ";
     }
+    for (EventSeries events : _events.values())
+    {
+      ret += "["+events.getName()+" Events="+events.getCount()+"] ";
+    }
     return ret;
   }
 
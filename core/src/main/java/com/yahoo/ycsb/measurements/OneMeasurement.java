@@ -21,8 +21,11 @@ import com.yahoo.ycsb.Status;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -33,6 +36,9 @@ public abstract class OneMeasurement {
   private final String _name;
   private  final ConcurrentHashMap<Status, AtomicInteger> _returncodes;
 
+  /** The recorders handed out by {@link #newThreadRecorder()}, merged in by summaries and exports. */
+  private final List<OneMeasurement> _threadRecorders;
+
   public String getName() {
     return _name;
   }
@@ -43,9 +49,45 @@ public abstract class OneMeasurement {
   public OneMeasurement(String _name) {
     this._name = _name;
     this._returncodes = new ConcurrentHashMap<Status, AtomicInteger>();
+    this._threadRecorders = new CopyOnWriteArrayList<OneMeasurement>();
   }
 
-  public abstract void measure(int latency);
+  /**
+   * Record a latency, in the unit of the measurements: microseconds unless
+   * {@link Measurements#LATENCY_UNIT_PROPERTY} is set to nanoseconds.
+   */
+  public abstract void measure(long latency);
+
+  /**
+   * Create a recorder that a single thread can measure into and report status
+   * codes to without contending with other threads. What it records is merged
+   * into this measurement whenever a summary or export is taken.
+   *
+   * @return The new recorder, or this measurement if it has no per-thread
+   *         recorders and is shared by every thread.
+   */
+  public final OneMeasurement newThreadRecorder() {
+    OneMeasurement recorder = createThreadRecorder();
+    if (recorder != this) {
+      _threadRecorders.add(recorder);
+    }
+    return recorder;
+  }
+
+  /**
+   * Measurement types that support per-thread recording return a new,
+   * unshared recorder here. The default shares this measurement.
+   */
+  protected OneMeasurement createThreadRecorder() {
+    return this;
+  }
+
+  /**
+   * @return The per-thread recorders created so far.
+   */
+  protected final List<OneMeasurement> getThreadRecorders() {
+    return _threadRecorders;
+  }
 
   public abstract String getSummary();
 
@@ -73,9 +115,44 @@ public abstract class OneMeasurement {
    */
   public abstract void exportMeasurements(MeasurementsExporter exporter) throws IOException;
 
+  /**
+   * Export a latency, as an integer like the other counts as long as it fits
+   * one, which it always does when it is in microseconds.
+   */
+  protected final void exportLatency(MeasurementsExporter exporter, String measurement, long latency)
+      throws IOException {
+    if (latency >= Integer.MIN_VALUE && latency <= Integer.MAX_VALUE) {
+      exporter.write(getName(), measurement, (int) latency);
+    } else {
+      exporter.write(getName(), measurement, (double) latency);
+    }
+  }
+
+  /**
+   * Export the count of each return code. When some operations found no record,
+   * the share of them is exported too, as a percentage of all the return codes.
+   */
   protected final void exportStatusCounts(MeasurementsExporter exporter) throws IOException {
+    Map<Status, Integer> returncodes = new LinkedHashMap<Status, Integer>();
+    addStatusCounts(returncodes);
+    long total = 0;
+    for (Map.Entry<Status, Integer> entry : returncodes.entrySet()) {
+      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue());
+      total += entry.getValue();
+    }
+    Integer notfound = returncodes.get(Status.NOT_FOUND);
+    if (notfound != null && total > 0) {
+      exporter.write(getName(), "NotFoundRate(%)", notfound * 100.0 / total);
+    }
+  }
+
+  private void addStatusCounts(Map<Status, Integer> returncodes) {
     for (Map.Entry<Status, AtomicInteger> entry : _returncodes.entrySet()) {
-      exporter.write(getName(), "Return=" + entry.getKey().getName(), entry.getValue().get());
+      Integer count = returncodes.get(entry.getKey());
+      returncodes.put(entry.getKey(), (count == null ? 0 : count) + entry.getValue().get());
+    }
+    for (OneMeasurement recorder : _threadRecorders) {
+      recorder.addStatusCounts(returncodes);
     }
   }
 }
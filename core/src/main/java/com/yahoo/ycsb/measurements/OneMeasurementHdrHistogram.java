@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramLogWriter;
 import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
@@ -48,6 +49,9 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   final Recorder histogram;
   Histogram totalHistogram;
 
+  /** Values drained from the recorder that have not yet been reported as an interval by getSummary(). */
+  private Histogram unreportedHistogram;
+
   /**
    * The name of the property for deciding what percentile values to output.
    */
@@ -60,9 +64,13 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 
   List<Integer> percentiles;
 
+  /** The unit of the latencies, "us" or "ns". */
+  final String unit;
+
   public OneMeasurementHdrHistogram(String name, Properties props) {
     super(name);
     percentiles = getPercentileValues(props.getProperty(PERCENTILES_PROPERTY, PERCENTILES_PROPERTY_DEFAULT));
+    unit = Measurements.getLatencyUnit(props);
     boolean shouldLog = Boolean.parseBoolean(props.getProperty("hdrhistogram.fileoutput", "false"));
     if (!shouldLog) {
       log = null;
@@ -86,13 +94,45 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
   }
 
   /**
-    * It appears latency is reported in micros.
+    * Latency is reported in micros, or nanos if that is the configured unit.
     * Using {@link Recorder} to support concurrent updates to histogram.
     *
-    * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+    * @see com.yahoo.ycsb.OneMeasurement#measure(long)
     */
-  public void measure(int latencyInMicros) {
-    histogram.recordValue(latencyInMicros);
+  public void measure(long latency) {
+    histogram.recordValue(latency);
+  }
+
+  /**
+   * Records the latencies of a single thread, without the atomic updates of the
+   * shared {@link Recorder}. Drained by the measurement that created it.
+   */
+  static class ThreadRecorder extends OneMeasurement {
+    final SingleWriterRecorder histogram = new SingleWriterRecorder(3);
+
+    ThreadRecorder(String name) {
+      super(name);
+    }
+
+    @Override
+    public void measure(long latency) {
+      histogram.recordValue(latency);
+    }
+
+    @Override
+    public String getSummary() {
+      return "";
+    }
+
+    @Override
+    public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+      // exported by the measurement that created it
+    }
+  }
+
+  @Override
+  protected OneMeasurement createThreadRecorder() {
+    return new ThreadRecorder(getName());
   }
 
   /**
@@ -110,12 +150,12 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
       log.close();
     }
     exporter.write(getName(), "Operations", totalHistogram.getTotalCount());
-    exporter.write(getName(), "AverageLatency(us)", totalHistogram.getMean());
-    exporter.write(getName(), "MinLatency(us)", totalHistogram.getMinValue());
-    exporter.write(getName(), "MaxLatency(us)", totalHistogram.getMaxValue());
+    exporter.write(getName(), "AverageLatency(" + unit + ")", totalHistogram.getMean());
+    exporter.write(getName(), "MinLatency(" + unit + ")", totalHistogram.getMinValue());
+    exporter.write(getName(), "MaxLatency(" + unit + ")", totalHistogram.getMaxValue());
 
     for (Integer percentile: percentiles) {
-      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(us)", totalHistogram.getValueAtPercentile(percentile));
+      exporter.write(getName(), ordinal(percentile) + "PercentileLatency(" + unit + ")", totalHistogram.getValueAtPercentile(percentile));
     }
     
     exportStatusCounts(exporter);
@@ -145,15 +185,52 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
 				+ d.format(intervalHistogram.getValueAtPercentile(99.99)) + "]";
 	}
 
-	private Histogram getIntervalHistogramAndAccumulate() {
-		Histogram intervalHistogram = histogram.getIntervalHistogram();
+	private synchronized Histogram getIntervalHistogramAndAccumulate() {
+		drainRecorder();
+		Histogram intervalHistogram = unreportedHistogram;
+		unreportedHistogram = null;
+		return intervalHistogram;
+	}
+
+	/**
+	 * Move everything recorded so far into the total histogram, keeping it
+	 * aside for the next interval report as well.
+	 */
+	private void drainRecorder() {
+		Histogram recorded = histogram.getIntervalHistogram();
+		for (OneMeasurement recorder : getThreadRecorders()) {
+			recorded.add(((ThreadRecorder) recorder).histogram.getIntervalHistogram());
+		}
 		// add this to the total time histogram.
 		if (totalHistogram == null) {
-			totalHistogram = intervalHistogram;
+			totalHistogram = recorded.copy();
 		} else {
-			totalHistogram.add(intervalHistogram);
+			totalHistogram.add(recorded);
 		}
-		return intervalHistogram;
+		if (unreportedHistogram == null) {
+			unreportedHistogram = recorded;
+		} else {
+			unreportedHistogram.add(recorded);
+		}
+	}
+
+	/**
+	 * Return a copy of everything recorded so far. Taking a snapshot does not
+	 * disturb the intervals reported by the StatusThread, so the difference of
+	 * two snapshots can be used to look at an arbitrary window of the run.
+	 */
+	public synchronized Histogram getTotalHistogramSnapshot() {
+		drainRecorder();
+		return totalHistogram.copy();
+	}
+
+	/**
+	 * Add values recorded elsewhere to this measurement.
+	 */
+	public synchronized void merge(Histogram other) {
+		drainRecorder();
+		totalHistogram.add(other);
+		unreportedHistogram.add(other);
 	}
 
     /**
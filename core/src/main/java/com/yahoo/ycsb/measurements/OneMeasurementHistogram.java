@@ -76,12 +76,21 @@ public class OneMeasurementHistogram extends OneMeasurement
   int windowoperations;
   long windowtotallatency;
 
-  int min;
-  int max;
+  long min;
+  long max;
+
+  private final Properties _props;
+
+  /** The unit of the latencies, "us" or "ns", and how many of it make up the millisecond of a bucket. */
+  private final String _unit;
+  private final long _perBucket;
 
   public OneMeasurementHistogram(String name, Properties props)
   {
     super(name);
+    _props=props;
+    _unit=Measurements.getLatencyUnit(props);
+    _perBucket=_unit.equals("ns") ? 1000000 : 1000;
     _buckets=Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
     histogram=new int[_buckets];
     histogramoverflow=0;
@@ -95,18 +104,18 @@ public class OneMeasurementHistogram extends OneMeasurement
   }
 
   /* (non-Javadoc)
-   * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+   * @see com.yahoo.ycsb.OneMeasurement#measure(long)
    */
-  public synchronized void measure(int latency)
+  public synchronized void measure(long latency)
   {
-      //latency reported in us and collected in bucket by ms.
-    if (latency/1000>=_buckets)
+      //latency reported in us (or ns) and collected in bucket by ms.
+    if (latency/_perBucket>=_buckets)
     {
       histogramoverflow++;
     }
     else
     {
-      histogram[latency/1000]++;
+      histogram[(int)(latency/_perBucket)]++;
     }
     operations++;
     totallatency += latency;
@@ -125,16 +134,72 @@ public class OneMeasurementHistogram extends OneMeasurement
     }
   }
 
+  /**
+   * Each thread recorder is a histogram of its own, locked only by its thread
+   * and by the merges that drain it into this one.
+   */
+  @Override
+  protected OneMeasurement createThreadRecorder()
+  {
+    return new OneMeasurementHistogram(getName(), _props);
+  }
+
+  /**
+   * Move everything the thread recorders have measured into this histogram.
+   */
+  private synchronized void mergeThreadRecorders()
+  {
+    for (OneMeasurement m : getThreadRecorders())
+    {
+      OneMeasurementHistogram recorder=(OneMeasurementHistogram)m;
+      synchronized (recorder)
+      {
+        if (recorder.operations==0)
+        {
+          continue;
+        }
+        for (int i=0; i<_buckets; i++)
+        {
+          histogram[i]+=recorder.histogram[i];
+          recorder.histogram[i]=0;
+        }
+        histogramoverflow+=recorder.histogramoverflow;
+        operations+=recorder.operations;
+        totallatency+=recorder.totallatency;
+        totalsquaredlatency+=recorder.totalsquaredlatency;
+        windowoperations+=recorder.windowoperations;
+        windowtotallatency+=recorder.windowtotallatency;
+        if ( (min<0) || (recorder.min<min) )
+        {
+          min=recorder.min;
+        }
+        if ( (max<0) || (recorder.max>max) )
+        {
+          max=recorder.max;
+        }
+        recorder.histogramoverflow=0;
+        recorder.operations=0;
+        recorder.totallatency=0;
+        recorder.totalsquaredlatency=0;
+        recorder.windowoperations=0;
+        recorder.windowtotallatency=0;
+        recorder.min=-1;
+        recorder.max=-1;
+      }
+    }
+  }
+
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException
   {
+    mergeThreadRecorders();
     double mean = totallatency/((double)operations);
     double variance = totalsquaredlatency/((double)operations) - (mean * mean);
     exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", mean);
-    exporter.write(getName(), "LatencyVariance(us)", variance);
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    exporter.write(getName(), "AverageLatency("+_unit+")", mean);
+    exporter.write(getName(), "LatencyVariance("+_unit+")", variance);
+    exportLatency(exporter, "MinLatency("+_unit+")", min);
+    exportLatency(exporter, "MaxLatency("+_unit+")", max);
 
     int opcounter=0;
     boolean done95th=false;
@@ -143,12 +208,12 @@ public class OneMeasurementHistogram extends OneMeasurement
       opcounter+=histogram[i];
       if ( (!done95th) && (((double)opcounter)/((double)operations)>=0.95) )
       {
-        exporter.write(getName(), "95thPercentileLatency(us)", i*1000);
+        exportLatency(exporter, "95thPercentileLatency("+_unit+")", i*_perBucket);
         done95th=true;
       }
       if (((double)opcounter)/((double)operations)>=0.99)
       {
-        exporter.write(getName(), "99thPercentileLatency(us)", i*1000);
+        exportLatency(exporter, "99thPercentileLatency("+_unit+")", i*_perBucket);
         break;
       }
     }
@@ -164,6 +229,7 @@ public class OneMeasurementHistogram extends OneMeasurement
 
   @Override
   public String getSummary() {
+    mergeThreadRecorders();
     if (windowoperations==0)
     {
       return "";
@@ -172,6 +238,6 @@ public class OneMeasurementHistogram extends OneMeasurement
     double report=((double)windowtotallatency)/((double)windowoperations);
     windowtotallatency=0;
     windowoperations=0;
-    return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
+    return "["+getName()+" AverageLatency("+_unit+")="+d.format(report)+"]";
   }
 }
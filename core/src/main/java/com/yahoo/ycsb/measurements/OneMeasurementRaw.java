@@ -41,9 +41,9 @@ public class OneMeasurementRaw extends OneMeasurement {
    */
   class RawDataPoint {
     private final long timestamp;
-    private final int value;
+    private final long value;
 
-    public RawDataPoint(int value) {
+    public RawDataPoint(long value) {
       this.timestamp = System.currentTimeMillis();
       this.value = value;
     }
@@ -52,7 +52,7 @@ public class OneMeasurementRaw extends OneMeasurement {
       return timestamp;
     }
 
-    public int value() {
+    public long value() {
       return value;
     }
   }
@@ -94,6 +94,9 @@ public class OneMeasurementRaw extends OneMeasurement {
 
   private boolean noSummaryStats = false;
 
+  /** The unit of the latencies, "us" or "ns". */
+  private final String unit;
+
   private LinkedList<RawDataPoint> measurements;
   private long totalLatency = 0;
 
@@ -128,12 +131,49 @@ public class OneMeasurementRaw extends OneMeasurement {
 
    noSummaryStats = Boolean.parseBoolean(props.getProperty(NO_SUMMARY_STATS,
         NO_SUMMARY_STATS_DEFAULT));
+   unit = Measurements.getLatencyUnit(props);
 
    measurements = new LinkedList<RawDataPoint>();
   }
 
+  /**
+   * A thread recorder, which only collects data points for the measurement
+   * that created it to output.
+   */
+  private OneMeasurementRaw(String name, String unit) {
+    super(name);
+    this.unit = unit;
+    outputStream = null;
+    measurements = new LinkedList<RawDataPoint>();
+  }
+
+  @Override
+  protected OneMeasurement createThreadRecorder() {
+    return new OneMeasurementRaw(getName(), unit);
+  }
+
+  /**
+   * Move the data points collected by the thread recorders into this
+   * measurement.
+   */
+  private synchronized void mergeThreadRecorders() {
+    for (OneMeasurement m : getThreadRecorders()) {
+      OneMeasurementRaw recorder = (OneMeasurementRaw) m;
+      synchronized (recorder) {
+        measurements.addAll(recorder.measurements);
+        recorder.measurements.clear();
+        totalLatency += recorder.totalLatency;
+        windowTotalLatency += recorder.windowTotalLatency;
+        windowOperations += recorder.windowOperations;
+        recorder.totalLatency = 0;
+        recorder.windowTotalLatency = 0;
+        recorder.windowOperations = 0;
+      }
+    }
+  }
+
   @Override
-  public synchronized void measure(int latency) {
+  public synchronized void measure(long latency) {
     totalLatency += latency;
     windowTotalLatency += latency;
     windowOperations++;
@@ -146,9 +186,19 @@ public class OneMeasurementRaw extends OneMeasurement {
       throws IOException {
     // Output raw data points first then print out a summary of percentiles to
     // stdout.
+    mergeThreadRecorders();
+    if (!getThreadRecorders().isEmpty()) {
+      // the points of different threads were merged in batches
+      Collections.sort(measurements, new Comparator<RawDataPoint>() {
+        @Override
+        public int compare(RawDataPoint p1, RawDataPoint p2) {
+          return p1.timeStamp() < p2.timeStamp() ? -1 : (p1.timeStamp() == p2.timeStamp() ? 0 : 1);
+        }
+      });
+    }
 
     outputStream.println(getName() +
-        " latency raw data: op, timestamp(ms), latency(us)");
+        " latency raw data: op, timestamp(ms), latency(" + unit + ")");
     for (RawDataPoint point : measurements) {
       outputStream.println(
           String.format("%s,%d,%d", getName(), point.timeStamp(),
@@ -162,30 +212,32 @@ public class OneMeasurementRaw extends OneMeasurement {
     exporter.write(getName(), "Total Operations", totalOps);
     if (totalOps > 0 && !noSummaryStats) {
       exporter.write(getName(),
-          "Below is a summary of latency in microseconds:", -1);
+          "Below is a summary of latency in " +
+          (unit.equals("ns") ? "nanoseconds:" : "microseconds:"), -1);
       exporter.write(getName(), "Average",
           (double)totalLatency / (double)totalOps);
 
       Collections.sort(measurements, new RawDataPointComparator());
 
-      exporter.write(getName(), "Min", measurements.get(0).value());
-      exporter.write(
-          getName(), "Max", measurements.get(totalOps - 1).value());
-      exporter.write(
-          getName(), "p1", measurements.get((int)(totalOps*0.01)).value());
-      exporter.write(
-          getName(), "p5", measurements.get((int)(totalOps*0.05)).value());
-      exporter.write(
-          getName(), "p50", measurements.get((int)(totalOps*0.5)).value());
-      exporter.write(
-          getName(), "p90", measurements.get((int)(totalOps*0.9)).value());
-      exporter.write(
-          getName(), "p95", measurements.get((int)(totalOps*0.95)).value());
-      exporter.write(
-          getName(), "p99", measurements.get((int)(totalOps*0.99)).value());
-      exporter.write(getName(), "p99.9",
+      exportLatency(exporter, "Min",
+          measurements.get(0).value());
+      exportLatency(exporter, "Max",
+          measurements.get(totalOps - 1).value());
+      exportLatency(exporter, "p1",
+          measurements.get((int)(totalOps*0.01)).value());
+      exportLatency(exporter, "p5",
+          measurements.get((int)(totalOps*0.05)).value());
+      exportLatency(exporter, "p50",
+          measurements.get((int)(totalOps*0.5)).value());
+      exportLatency(exporter, "p90",
+          measurements.get((int)(totalOps*0.9)).value());
+      exportLatency(exporter, "p95",
+          measurements.get((int)(totalOps*0.95)).value());
+      exportLatency(exporter, "p99",
+          measurements.get((int)(totalOps*0.99)).value());
+      exportLatency(exporter, "p99.9",
           measurements.get((int)(totalOps*0.999)).value());
-      exporter.write(getName(), "p99.99",
+      exportLatency(exporter, "p99.99",
           measurements.get((int)(totalOps*0.9999)).value());
     }
 
@@ -194,12 +246,13 @@ public class OneMeasurementRaw extends OneMeasurement {
 
   @Override
   public synchronized String getSummary() {
+    mergeThreadRecorders();
     if (windowOperations == 0) {
       return "";
     }
 
-    String toReturn = String.format("%s count: %d, average latency(us): %.2f",
-        getName(), windowOperations,
+    String toReturn = String.format("%s count: %d, average latency(%s): %.2f",
+        getName(), windowOperations, unit,
         (double)windowTotalLatency / (double)windowOperations);
 
     windowTotalLatency=0;
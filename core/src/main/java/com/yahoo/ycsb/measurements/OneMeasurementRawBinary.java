@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.DecimalFormat;
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Record every measurement as a binary record in a {@link RawBinaryLog},
+ * streaming them out as the run progresses instead of keeping them in memory
+ * until the end like {@link OneMeasurementRaw}. Only the summary statistics
+ * are kept; {@link RawBinaryConverter} turns the file into CSV or HdrHistogram
+ * logs afterwards.
+ */
+public class OneMeasurementRawBinary extends OneMeasurement
+{
+  /**
+   * The size of the buffer in which each thread collects records before they
+   * are written out, in bytes.
+   */
+  public static final String BUFFER_SIZE = "measurement.raw.buffer_size";
+  public static final String BUFFER_SIZE_DEFAULT = "65536";
+
+  private final RawBinaryLog _log;
+  private final Properties _props;
+  private final int _operation;
+  private final int _status;
+  private final ByteBuffer _buffer;
+  private final String _unit;
+
+  private long operations;
+  private long totallatency;
+  private long min = -1;
+  private long max = -1;
+
+  //keep a windowed version of these stats for printing status
+  private long windowoperations;
+  private long windowtotallatency;
+
+  public OneMeasurementRawBinary(String name, RawBinaryLog log, Properties props)
+  {
+    super(name);
+    _log = log;
+    _props = props;
+    _unit = Measurements.getLatencyUnit(props);
+    String[] split = RawBinaryLog.splitStatus(name);
+    _operation = log.getId(split[0]);
+    _status = log.getId(split[1]);
+    int size = Integer.parseInt(props.getProperty(BUFFER_SIZE, BUFFER_SIZE_DEFAULT));
+    _buffer = ByteBuffer.allocate(Math.max(size / RawBinaryLog.RECORD_SIZE, 1) * RawBinaryLog.RECORD_SIZE);
+  }
+
+  @Override
+  protected OneMeasurement createThreadRecorder()
+  {
+    return new OneMeasurementRawBinary(getName(), _log, _props);
+  }
+
+  @Override
+  public synchronized void measure(long latency)
+  {
+    if (!_buffer.hasRemaining())
+    {
+      flush();
+    }
+    _buffer.putLong(System.currentTimeMillis());
+    _buffer.putInt(_operation);
+    _buffer.putInt(_status);
+    _buffer.putLong(latency);
+
+    operations++;
+    totallatency += latency;
+    windowoperations++;
+    windowtotallatency += latency;
+    if ((min < 0) || (latency < min))
+    {
+      min = latency;
+    }
+    if ((max < 0) || (latency > max))
+    {
+      max = latency;
+    }
+  }
+
+  private void flush()
+  {
+    _buffer.flip();
+    try
+    {
+      _log.write(_buffer);
+    }
+    catch (IOException e)
+    {
+      throw new RuntimeException("Failed to write raw data output file " + _log.getPath(), e);
+    }
+    _buffer.clear();
+  }
+
+  /**
+   * Move the statistics of the thread recorders into this measurement and,
+   * if asked, write out the records they have buffered.
+   */
+  private synchronized void mergeThreadRecorders(boolean flush)
+  {
+    for (OneMeasurement m : getThreadRecorders())
+    {
+      OneMeasurementRawBinary recorder = (OneMeasurementRawBinary) m;
+      synchronized (recorder)
+      {
+        if (flush)
+        {
+          recorder.flush();
+        }
+        operations += recorder.operations;
+        totallatency += recorder.totallatency;
+        windowoperations += recorder.windowoperations;
+        windowtotallatency += recorder.windowtotallatency;
+        if ((min < 0) || (recorder.min >= 0 && recorder.min < min))
+        {
+          min = recorder.min;
+        }
+        if (recorder.max > max)
+        {
+          max = recorder.max;
+        }
+        recorder.operations = 0;
+        recorder.totallatency = 0;
+        recorder.windowoperations = 0;
+        recorder.windowtotallatency = 0;
+        recorder.min = -1;
+        recorder.max = -1;
+      }
+    }
+    if (flush)
+    {
+      flush();
+    }
+  }
+
+  @Override
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    mergeThreadRecorders(true);
+    exporter.write(getName(), "Operations", operations);
+    exporter.write(getName(), "AverageLatency(" + _unit + ")", operations == 0 ? 0 : (double) totallatency / operations);
+    exportLatency(exporter, "MinLatency(" + _unit + ")", min);
+    exportLatency(exporter, "MaxLatency(" + _unit + ")", max);
+    exportStatusCounts(exporter);
+  }
+
+  @Override
+  public String getSummary()
+  {
+    mergeThreadRecorders(false);
+    synchronized (this)
+    {
+      if (windowoperations == 0)
+      {
+        return "";
+      }
+      DecimalFormat d = new DecimalFormat("#.##");
+      double report = ((double) windowtotallatency) / ((double) windowoperations);
+      windowtotallatency = 0;
+      windowoperations = 0;
+      return "[" + getName() + " AverageLatency(" + _unit + ")=" + d.format(report) + "]";
+    }
+  }
+}
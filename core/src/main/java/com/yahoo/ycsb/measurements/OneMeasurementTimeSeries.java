@@ -18,140 +18,250 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.text.DecimalFormat;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
-import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
 
-class SeriesUnit
-{
-  /**
-   * @param time
-   * @param average
-   */
-  public SeriesUnit(long time, double average) {
-    this.time = time;
-    this.average = average;
-  }
-  public long time;
-  public double average;
-}
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
- * A time series measurement of a metric, such as READ LATENCY.
+ * A time series measurement of a metric, such as READ LATENCY. The latencies
+ * of each interval of timeseries.granularity milliseconds are recorded in an
+ * HdrHistogram of their own, so the export shows the tail of every interval,
+ * e.g. a spike of the 99.9th percentile during a compaction, and not just its
+ * average. Once an interval is over its histogram is reduced to the
+ * statistics that are exported, so memory does not grow with the length of
+ * the run beyond a few numbers per interval.
+ *
+ * Each thread records the interval it is in through a recorder of its own and
+ * hands the histogram over when it moves on to the next one.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement
 {
 
   /**
-   * Granularity for time series; measurements will be averaged in chunks of this granularity. Units are milliseconds.
+   * Granularity for time series; measurements will be aggregated in chunks of this granularity. Units are milliseconds.
    */
   public static final String GRANULARITY="timeseries.granularity";
   public static final String GRANULARITY_DEFAULT="1000";
 
-  int _granularity;
-  Vector<SeriesUnit> _measurements;
+  /**
+   * The statistics of one interval.
+   */
+  static class SeriesUnit
+  {
+    /** When the interval started, in milliseconds since the start of the series. */
+    final long time;
+    final long count;
+    final double average;
+    final long p50;
+    final long p99;
+    final long p999;
+    final long max;
 
-  long start=-1;
-  long currentunit=-1;
-  int count=0;
-  int sum=0;
-  int operations=0;
-  long totallatency=0;
+    SeriesUnit(long time, Histogram histogram)
+    {
+      this.time = time;
+      count = histogram.getTotalCount();
+      average = histogram.getMean();
+      p50 = histogram.getValueAtPercentile(50);
+      p99 = histogram.getValueAtPercentile(99);
+      p999 = histogram.getValueAtPercentile(99.9);
+      max = histogram.getMaxValue();
+    }
+  }
+
+  final int _granularity;
+  final long _start;
+  private final Properties _props;
+  private final String _unit;
+  private final OneMeasurementTimeSeries _parent;
+
+  // the interval being recorded into by this recorder
+  private long currentunit=-1;
+  private Histogram current;
 
   //keep a windowed version of these stats for printing status
-  int windowoperations=0;
-  long windowtotallatency=0;
+  private long windowoperations=0;
+  private long windowtotallatency=0;
 
-  int min=-1;
-  int max=-1;
+  // only used by the measurement that exports the series: intervals handed over but not yet reduced, the
+  // reduced ones, and everything merged so far
+  private final TreeMap<Long,Histogram> _pending=new TreeMap<Long,Histogram>();
+  private final List<SeriesUnit> _measurements=new ArrayList<SeriesUnit>();
+  private Histogram _total;
 
   public OneMeasurementTimeSeries(String name, Properties props)
+  {
+    this(name, props, System.currentTimeMillis());
+  }
+
+  /**
+   * @param start When the series starts, in milliseconds since the epoch. Measurements with the same start
+   *        have their intervals aligned, so they can be compared side by side.
+   */
+  public OneMeasurementTimeSeries(String name, Properties props, long start)
+  {
+    this(name, props, start, null);
+  }
+
+  private OneMeasurementTimeSeries(String name, Properties props, long start, OneMeasurementTimeSeries parent)
   {
     super(name);
     _granularity=Integer.parseInt(props.getProperty(GRANULARITY,GRANULARITY_DEFAULT));
-    _measurements=new Vector<SeriesUnit>();
+    _start=start;
+    _props=props;
+    _unit=Measurements.getLatencyUnit(props);
+    _parent=parent;
   }
 
-  void checkEndOfUnit(boolean forceend)
+  @Override
+  protected OneMeasurement createThreadRecorder()
   {
-    long now=System.currentTimeMillis();
-
-    if (start<0)
-    {
-      currentunit=0;
-      start=now;
-    }
+    return new OneMeasurementTimeSeries(getName(), _props, _start, this);
+  }
 
-    long unit=((now-start)/_granularity)*_granularity;
+  private long unitAt(long now)
+  {
+    return Math.max(now-_start, 0)/_granularity;
+  }
 
-    if ( (unit>currentunit) || (forceend) )
+  @Override
+  public synchronized void measure(long latency)
+  {
+    long unit=unitAt(System.currentTimeMillis());
+    if (unit!=currentunit)
     {
-      double avg=((double)sum)/((double)count);
-      _measurements.add(new SeriesUnit(currentunit,avg));
-
+      handOver();
       currentunit=unit;
-
-      count=0;
-      sum=0;
+      current=new Histogram(3);
     }
+    current.recordValue(latency);
+    windowoperations++;
+    windowtotallatency+=latency;
   }
 
-  @Override
-  public void measure(int latency)
+  /**
+   * Pass the histogram of the current interval on to the measurement that exports the series.
+   */
+  private void handOver()
   {
-    checkEndOfUnit(false);
+    if (current!=null)
+    {
+      (_parent==null ? this : _parent).addInterval(currentunit, current);
+      current=null;
+    }
+  }
 
-    count++;
-    sum+=latency;
-    totallatency+=latency;
-    operations++;
-    windowoperations++;
-    windowtotallatency+=latency;
+  private synchronized void addInterval(long unit, Histogram histogram)
+  {
+    Histogram pending=_pending.get(unit);
+    if (pending==null)
+    {
+      _pending.put(unit, histogram);
+    }
+    else
+    {
+      pending.add(histogram);
+    }
+  }
 
-    if (latency>max)
+  /**
+   * Collect the intervals the recorders have finished, or, at the end of the run, all of them, and reduce the
+   * ones that are over. An interval is only reduced once the one after it is over too, in case a thread was
+   * still recording into it.
+   */
+  private void collect(boolean all)
+  {
+    long now=unitAt(System.currentTimeMillis());
+    List<OneMeasurement> recorders=new ArrayList<OneMeasurement>(getThreadRecorders());
+    recorders.add(this);
+    for (OneMeasurement m : recorders)
     {
-      max=latency;
+      OneMeasurementTimeSeries recorder=(OneMeasurementTimeSeries)m;
+      long operations;
+      long totallatency;
+      synchronized (recorder)
+      {
+        if (all || recorder.currentunit<now)
+        {
+          recorder.handOver();
+        }
+        operations=recorder.windowoperations;
+        totallatency=recorder.windowtotallatency;
+        recorder.windowoperations=0;
+        recorder.windowtotallatency=0;
+      }
+      synchronized (this)
+      {
+        windowoperations+=operations;
+        windowtotallatency+=totallatency;
+      }
     }
 
-    if ( (latency<min) || (min<0) )
+    synchronized (this)
     {
-      min=latency;
+      while (!_pending.isEmpty() && (all || _pending.firstKey()<now-1))
+      {
+        Map.Entry<Long,Histogram> entry=_pending.pollFirstEntry();
+        _measurements.add(new SeriesUnit(entry.getKey()*_granularity, entry.getValue()));
+        if (_total==null)
+        {
+          _total=entry.getValue();
+        }
+        else
+        {
+          _total.add(entry.getValue());
+        }
+      }
     }
   }
 
-
   @Override
   public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-    checkEndOfUnit(true);
-
-    exporter.write(getName(), "Operations", operations);
-    exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
-    exporter.write(getName(), "MinLatency(us)", min);
-    exporter.write(getName(), "MaxLatency(us)", max);
+    collect(true);
 
-    // TODO: 95th and 99th percentile latency
+    Histogram total=_total==null ? new Histogram(3) : _total;
+    exporter.write(getName(), "Operations", total.getTotalCount());
+    exporter.write(getName(), "AverageLatency("+_unit+")", total.getMean());
+    exporter.write(getName(), "MinLatency("+_unit+")", total.getTotalCount()==0 ? -1 : total.getMinValue());
+    exporter.write(getName(), "MaxLatency("+_unit+")", total.getTotalCount()==0 ? -1 : total.getMaxValue());
+    exporter.write(getName(), "95thPercentileLatency("+_unit+")", total.getValueAtPercentile(95));
+    exporter.write(getName(), "99thPercentileLatency("+_unit+")", total.getValueAtPercentile(99));
 
     exportStatusCounts(exporter);
+    // the bare time keeps the average, as it always has; the rest of the interval's statistics follow it
     for (SeriesUnit unit : _measurements) {
-      exporter.write(getName(), Long.toString(unit.time), unit.average);
+      String time=Long.toString(unit.time);
+      exporter.write(getName(), time, unit.average);
+      exporter.write(getName(), time+":Count", unit.count);
+      exporter.write(getName(), time+":50thPercentileLatency("+_unit+")", unit.p50);
+      exporter.write(getName(), time+":99thPercentileLatency("+_unit+")", unit.p99);
+      exporter.write(getName(), time+":99.9thPercentileLatency("+_unit+")", unit.p999);
+      exporter.write(getName(), time+":MaxLatency("+_unit+")", unit.max);
     }
   }
 
   @Override
   public String getSummary() {
-    if (windowoperations==0)
+    collect(false);
+    synchronized (this)
     {
-      return "";
+      if (windowoperations==0)
+      {
+        return "";
+      }
+      DecimalFormat d = new DecimalFormat("#.##");
+      double report=((double)windowtotallatency)/((double)windowoperations);
+      windowtotallatency=0;
+      windowoperations=0;
+      return "["+getName()+" AverageLatency("+_unit+")="+d.format(report)+"]";
     }
-    DecimalFormat d = new DecimalFormat("#.##");
-    double report=((double)windowtotallatency)/((double)windowoperations);
-    windowtotallatency=0;
-    windowoperations=0;
-    return "["+getName()+" AverageLatency(us)="+d.format(report)+"]";
   }
 
 }
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Splits the client-side time of each operation into the time spent
+ * generating it (choosing the operation and key, building values), the time
+ * spent in the DB, and the time spent recording its measurements. Enabled
+ * with measurement.overhead=true; a client whose generation and measurement
+ * shares are small is not what limits the throughput.
+ *
+ * <p>Each transaction or insert is attributed to the DB operations it made,
+ * e.g. "READ" or "READ+UPDATE" for a read-modify-write. Each thread adds up
+ * its own operations, and the threads' totals are merged at export.
+ *
+ * <p>Only operations run against a blocking DB are accounted. An asynchronous
+ * operation's DB time overlaps the generation of the operations its thread
+ * issues meanwhile, so a thread's time can't be split among them.
+ */
+public class OperationOverhead
+{
+  public static final String OVERHEAD_PROPERTY = "measurement.overhead";
+  public static final String OVERHEAD_PROPERTY_DEFAULT = "false";
+
+  /** The accumulated times of one kind of operation. */
+  static class Totals
+  {
+    long count;
+    long totalNs;
+    long dbNs;
+    long measurementNs;
+
+    void add(long total, long db, long measurement)
+    {
+      count++;
+      totalNs += total;
+      dbNs += db;
+      measurementNs += measurement;
+    }
+
+    void add(Totals other)
+    {
+      count += other.count;
+      totalNs += other.totalNs;
+      dbNs += other.dbNs;
+      measurementNs += other.measurementNs;
+    }
+  }
+
+  /**
+   * What one thread's current operation has spent so far, and the totals of
+   * its finished operations. The totals are guarded by the recorder's lock,
+   * which only export and reset contend for.
+   */
+  static class Recorder
+  {
+    long startNs;
+    String firstOp;
+    String lastOp;
+    long dbNs;
+    long measurementNs;
+    final Map<String,Totals> totals = new HashMap<String,Totals>();
+  }
+
+  private final CopyOnWriteArrayList<Recorder> _recorders = new CopyOnWriteArrayList<Recorder>();
+
+  private final ThreadLocal<Recorder> _recorder = new ThreadLocal<Recorder>()
+  {
+    @Override
+    protected Recorder initialValue()
+    {
+      Recorder recorder = new Recorder();
+      _recorders.add(recorder);
+      return recorder;
+    }
+  };
+
+  /**
+   * Start accounting for an operation of the calling thread.
+   */
+  public void begin()
+  {
+    Recorder span = _recorder.get();
+    span.firstOp = null;
+    span.lastOp = null;
+    span.dbNs = 0;
+    span.measurementNs = 0;
+    span.startNs = System.nanoTime();
+  }
+
+  /**
+   * Account for one DB call made by the calling thread's current operation.
+   *
+   * @param op The DB operation, e.g. "READ".
+   * @param dbNs The time spent in the DB.
+   * @param measurementNs The time spent recording its latency and status.
+   */
+  public void recordDbCall(String op, long dbNs, long measurementNs)
+  {
+    Recorder span = _recorder.get();
+    if (span.firstOp == null)
+    {
+      span.firstOp = op;
+    }
+    span.lastOp = op;
+    span.dbNs += dbNs;
+    span.measurementNs += measurementNs;
+  }
+
+  /**
+   * Finish accounting for the calling thread's current operation.
+   */
+  public void end()
+  {
+    Recorder span = _recorder.get();
+    long total = System.nanoTime() - span.startNs;
+    if (span.firstOp == null)
+    {
+      // the workload made no DB call
+      return;
+    }
+    String label = span.firstOp.equals(span.lastOp) ? span.firstOp : span.firstOp + "+" + span.lastOp;
+    synchronized (span)
+    {
+      Totals t = span.totals.get(label);
+      if (t == null)
+      {
+        t = new Totals();
+        span.totals.put(label, t);
+      }
+      t.add(total, span.dbNs, span.measurementNs);
+    }
+  }
+
+  /**
+   * Discard everything accounted so far.
+   */
+  public void reset()
+  {
+    for (Recorder recorder : _recorders)
+    {
+      synchronized (recorder)
+      {
+        recorder.totals.clear();
+      }
+    }
+  }
+
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    Map<String,Totals> merged = new TreeMap<String,Totals>();
+    Totals all = new Totals();
+    for (Recorder recorder : _recorders)
+    {
+      synchronized (recorder)
+      {
+        for (Map.Entry<String,Totals> entry : recorder.totals.entrySet())
+        {
+          Totals t = merged.get(entry.getKey());
+          if (t == null)
+          {
+            t = new Totals();
+            merged.put(entry.getKey(), t);
+          }
+          t.add(entry.getValue());
+          all.add(entry.getValue());
+        }
+      }
+    }
+    for (Map.Entry<String,Totals> entry : merged.entrySet())
+    {
+      export(exporter, "OVERHEAD-" + entry.getKey(), entry.getValue());
+    }
+    if (all.count > 0)
+    {
+      export(exporter, "OVERHEAD", all);
+    }
+  }
+
+  private static void export(MeasurementsExporter exporter, String name, Totals t) throws IOException
+  {
+    long generation = t.totalNs - t.dbNs - t.measurementNs;
+    exporter.write(name, "Operations", t.count);
+    exporter.write(name, "AverageTotal(us)", t.totalNs / 1000.0 / t.count);
+    exporter.write(name, "AverageGeneration(us)", generation / 1000.0 / t.count);
+    exporter.write(name, "AverageDB(us)", t.dbNs / 1000.0 / t.count);
+    exporter.write(name, "AverageMeasurement(us)", t.measurementNs / 1000.0 / t.count);
+    exporter.write(name, "Generation(%)", t.totalNs > 0 ? 100.0 * generation / t.totalNs : 0);
+    exporter.write(name, "Measurement(%)", t.totalNs > 0 ? 100.0 * t.measurementNs / t.totalNs : 0);
+  }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Convert a {@link RawBinaryLog} written by the rawbinary measurement types,
+ * after the run, to either
+ * <ul>
+ * <li>CSV, one "operation,status,timestamp(ms),latency(us)" line per record,
+ * or latency(ns) if the run measured nanoseconds, or
+ * <li>HdrHistogram interval logs, one file per operation and status, like the
+ * ones written with hdrhistogram.fileoutput=true.
+ * </ul>
+ * Usage:
+ * <pre>
+ * java com.yahoo.ycsb.measurements.RawBinaryConverter [-csv FILE | -hdr PREFIX [-interval SECONDS]] RAWFILE
+ * </pre>
+ * Without -csv or -hdr the CSV is written to standard output. The HdrHistogram
+ * logs are named PREFIX, the operation, "-" and the status if it is not OK, and
+ * ".hdr", e.g. results/READ.hdr; intervals default to one second.
+ */
+public class RawBinaryConverter
+{
+  /**
+   * Receives the records of a raw file.
+   */
+  interface RecordHandler
+  {
+    void record(long timestamp, String operation, String status, long latency) throws IOException;
+  }
+
+  public static void usage()
+  {
+    System.out.println("Usage: java com.yahoo.ycsb.measurements.RawBinaryConverter "
+        + "[-csv FILE | -hdr PREFIX [-interval SECONDS]] RAWFILE");
+    System.exit(1);
+  }
+
+  public static void main(String[] args) throws IOException
+  {
+    String csv = null;
+    String hdr = null;
+    double interval = 1;
+    String raw = null;
+    for (int i = 0; i < args.length; i++)
+    {
+      if (args[i].equals("-csv") && i + 1 < args.length)
+      {
+        csv = args[++i];
+      }
+      else if (args[i].equals("-hdr") && i + 1 < args.length)
+      {
+        hdr = args[++i];
+      }
+      else if (args[i].equals("-interval") && i + 1 < args.length)
+      {
+        interval = Double.parseDouble(args[++i]);
+      }
+      else if (raw == null && !args[i].startsWith("-"))
+      {
+        raw = args[i];
+      }
+      else
+      {
+        usage();
+      }
+    }
+    if (raw == null || (csv != null && hdr != null) || !(interval > 0))
+    {
+      usage();
+    }
+
+    if (hdr != null)
+    {
+      toHdr(raw, hdr, (long) (interval * 1000));
+    }
+    else
+    {
+      PrintStream out = csv == null ? System.out : new PrintStream(new FileOutputStream(csv));
+      toCsv(raw, out);
+      out.close();
+    }
+  }
+
+  /**
+   * Write every record as a line of CSV.
+   */
+  public static void toCsv(String raw, final PrintStream out) throws IOException
+  {
+    out.println("operation,status,timestamp(ms),latency(" + readUnit(raw) + ")");
+    read(raw, new RecordHandler()
+    {
+      @Override
+      public void record(long timestamp, String operation, String status, long latency)
+      {
+        out.println(operation + "," + status + "," + timestamp + "," + latency);
+      }
+    });
+  }
+
+  /**
+   * Write a HdrHistogram interval log for each operation and status.
+   *
+   * @param intervalMs The length of each interval, in milliseconds.
+   */
+  public static void toHdr(String raw, String prefix, final long intervalMs) throws IOException
+  {
+    // the records are only roughly in order, so every interval is kept until the end
+    final Map<String,TreeMap<Long,Histogram>> intervals = new HashMap<String,TreeMap<Long,Histogram>>();
+    final long[] start = {Long.MAX_VALUE};
+    read(raw, new RecordHandler()
+    {
+      @Override
+      public void record(long timestamp, String operation, String status, long latency)
+      {
+        String name = status.equals("OK") ? operation : operation + "-" + status;
+        TreeMap<Long,Histogram> histograms = intervals.get(name);
+        if (histograms == null)
+        {
+          histograms = new TreeMap<Long,Histogram>();
+          intervals.put(name, histograms);
+        }
+        Long index = timestamp / intervalMs;
+        Histogram histogram = histograms.get(index);
+        if (histogram == null)
+        {
+          histogram = new Histogram(3);
+          histogram.setStartTimeStamp(index * intervalMs);
+          histogram.setEndTimeStamp((index + 1) * intervalMs);
+          histograms.put(index, histogram);
+        }
+        histogram.recordValue(latency);
+        start[0] = Math.min(start[0], index * intervalMs);
+      }
+    });
+
+    for (Map.Entry<String,TreeMap<Long,Histogram>> entry : intervals.entrySet())
+    {
+      PrintStream log = new PrintStream(new FileOutputStream(prefix + entry.getKey() + ".hdr"), false);
+      HistogramLogWriter writer = new HistogramLogWriter(log);
+      writer.outputComment("[Logging for: " + entry.getKey() + "]");
+      writer.outputLogFormatVersion();
+      writer.outputStartTime(start[0]);
+      writer.setBaseTime(start[0]);
+      writer.outputLegend();
+      for (Histogram histogram : entry.getValue().values())
+      {
+        writer.outputIntervalHistogram(histogram);
+      }
+      log.close();
+    }
+  }
+
+  /**
+   * @return The unit of the latencies of a raw file, from the first line of its names file.
+   */
+  static String readUnit(String raw) throws IOException
+  {
+    BufferedReader in = new BufferedReader(new InputStreamReader(
+        new FileInputStream(raw + RawBinaryLog.NAMES_SUFFIX), "UTF-8"));
+    try
+    {
+      String line = in.readLine();
+      return line != null && line.startsWith(RawBinaryLog.UNIT_PREFIX)
+          ? line.substring(RawBinaryLog.UNIT_PREFIX.length()) : "us";
+    }
+    finally
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Read every record of a raw file and its names file.
+   */
+  static void read(String raw, RecordHandler handler) throws IOException
+  {
+    Map<Integer,String> names = new HashMap<Integer,String>();
+    BufferedReader in = new BufferedReader(new InputStreamReader(
+        new FileInputStream(raw + RawBinaryLog.NAMES_SUFFIX), "UTF-8"));
+    try
+    {
+      String line;
+      while ((line = in.readLine()) != null)
+      {
+        if (line.startsWith(RawBinaryLog.UNIT_PREFIX))
+        {
+          continue;
+        }
+        int comma = line.indexOf(',');
+        names.put(Integer.parseInt(line.substring(0, comma)), line.substring(comma + 1));
+      }
+    }
+    finally
+    {
+      in.close();
+    }
+
+    DataInputStream records = new DataInputStream(new BufferedInputStream(new FileInputStream(raw), 1 << 16));
+    try
+    {
+      byte[] magic = new byte[RawBinaryLog.MAGIC.length];
+      records.readFully(magic);
+      if (!Arrays.equals(magic, RawBinaryLog.MAGIC))
+      {
+        throw new IOException(raw + " is not a raw binary measurement file");
+      }
+      while (true)
+      {
+        long timestamp;
+        String operation;
+        String status;
+        long latency;
+        try
+        {
+          timestamp = records.readLong();
+          operation = names.get(records.readInt());
+          status = names.get(records.readInt());
+          latency = records.readLong();
+        }
+        catch (EOFException e)
+        {
+          // the end of the file, or of the last record written before the client stopped
+          break;
+        }
+        handler.record(timestamp, operation, status, latency);
+      }
+    }
+    finally
+    {
+      records.close();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.yahoo.ycsb.Status;
+
+/**
+ * A file of fixed-width binary latency records, written to as the run
+ * progresses so that the client keeps only small buffers of them in memory.
+ * All the measurements of a client share one file.
+ *
+ * The file starts with the 8 bytes of {@link #MAGIC}, followed by records of
+ * {@link #RECORD_SIZE} bytes, big-endian:
+ * <ul>
+ * <li>long: when the operation completed, in milliseconds since the epoch
+ * <li>int: the operation, an index into the names file
+ * <li>int: the status, an index into the names file
+ * <li>long: the latency, in the unit of measurement.latency.unit
+ * </ul>
+ * Records are grouped in batches by the thread that measured them, so they are
+ * only roughly in time order. The names file, the same path with
+ * {@link #NAMES_SUFFIX} appended, has a line "index,name" for each operation and
+ * status, written before the first record that uses it, after a first line
+ * {@link #UNIT_PREFIX} followed by the unit of the latencies.
+ *
+ * @see RawBinaryConverter
+ */
+public class RawBinaryLog
+{
+  public static final byte[] MAGIC = "YCSBRAW1".getBytes(Charset.forName("US-ASCII"));
+
+  public static final int RECORD_SIZE = 24;
+
+  public static final String NAMES_SUFFIX = ".names";
+
+  public static final String UNIT_PREFIX = "#unit=";
+
+  /** Suffixes the DB wrappers add to an operation's name to report a status apart from it. */
+  private static final String[] STATUS_SUFFIXES = {
+    "FAILED", Status.ERROR.getName(), Status.NOT_FOUND.getName(), Status.NOT_IMPLEMENTED.getName(),
+    Status.UNEXPECTED_STATE.getName()
+  };
+
+  private final String _path;
+  private final FileChannel _channel;
+  private final PrintWriter _names;
+  private final Map<String,Integer> _ids = new HashMap<String,Integer>();
+
+  /**
+   * Create the file, replacing any existing one.
+   *
+   * @param unit The unit of the latencies that will be written, "us" or "ns".
+   */
+  public RawBinaryLog(String path, String unit) throws IOException
+  {
+    _path = path;
+    _channel = new FileOutputStream(path).getChannel();
+    _names = new PrintWriter(new OutputStreamWriter(new FileOutputStream(path + NAMES_SUFFIX), "UTF-8"));
+    _names.println(UNIT_PREFIX + unit);
+    _names.flush();
+    write(ByteBuffer.wrap(MAGIC));
+  }
+
+  public String getPath()
+  {
+    return _path;
+  }
+
+  /**
+   * @return The index of the given operation or status name, adding it to the names file if it is new.
+   */
+  public synchronized int getId(String name)
+  {
+    Integer id = _ids.get(name);
+    if (id == null)
+    {
+      id = _ids.size();
+      _ids.put(name, id);
+      _names.println(id + "," + name);
+      _names.flush();
+    }
+    return id;
+  }
+
+  /**
+   * Split a measurement name into the operation and the status it reports, e.g. "READ-NOT_FOUND" into "READ"
+   * and "NOT_FOUND". Names without a status suffix report OK.
+   */
+  static String[] splitStatus(String measurementName)
+  {
+    for (String status : STATUS_SUFFIXES)
+    {
+      if (measurementName.endsWith("-" + status))
+      {
+        return new String[] {measurementName.substring(0, measurementName.length() - status.length() - 1), status};
+      }
+    }
+    return new String[] {measurementName, Status.OK.getName()};
+  }
+
+  /**
+   * Append a batch of records.
+   */
+  public void write(ByteBuffer records) throws IOException
+  {
+    synchronized (_channel)
+    {
+      while (records.hasRemaining())
+      {
+        _channel.write(records);
+      }
+    }
+  }
+
+  /**
+   * Close the file and the names file. Nothing can be written afterwards.
+   */
+  public void close() throws IOException
+  {
+    try
+    {
+      synchronized (_channel)
+      {
+        _channel.close();
+      }
+    }
+    finally
+    {
+      synchronized (this)
+      {
+        _names.close();
+      }
+    }
+  }
+}
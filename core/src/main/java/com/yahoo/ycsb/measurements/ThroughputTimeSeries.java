@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Counts the operations completed in each interval of the run, by operation
+ * and return code, so that dips in throughput can be charted against the
+ * latencies of the same interval. Enabled with
+ * measurement.throughput.timeseries=true; the intervals are
+ * timeseries.granularity milliseconds long and start with those of the
+ * timeseries measurement type.
+ *
+ * <p>Each operation is exported as [THROUGHPUT-&lt;operation&gt;], with the
+ * start of each interval giving its throughput in ops/sec, followed by
+ * &lt;time&gt;:Return=&lt;code&gt; giving how many of its operations returned
+ * each code. Every interval from the operation's first to the last of the
+ * run is exported, those in which none completed as 0, and the last one,
+ * if still running, is divided by the time it has lasted so far. Operations
+ * measured apart from their failures, e.g. "READ" and "READ-NOT_FOUND", are
+ * counted together.
+ */
+public class ThroughputTimeSeries
+{
+  public static final String THROUGHPUT_TIMESERIES_PROPERTY = "measurement.throughput.timeseries";
+  public static final String THROUGHPUT_TIMESERIES_PROPERTY_DEFAULT = "false";
+
+  /**
+   * Counts the operations of one thread, handing each interval over to the
+   * series when the next one starts.
+   */
+  final class Recorder
+  {
+    private long currentunit = -1;
+    /** The counts of the current interval, by operation, then by return code. */
+    private Map<String,Map<String,long[]>> counts;
+
+    /**
+     * @param operation The operation, without any status suffix, e.g. "READ".
+     * @param status The name of the return code.
+     */
+    void count(String operation, String status)
+    {
+      count(operation, status, System.currentTimeMillis());
+    }
+
+    /**
+     * @param now When the operation completed, in milliseconds since the epoch.
+     */
+    synchronized void count(String operation, String status, long now)
+    {
+      long unit = unitAt(now);
+      if (unit != currentunit)
+      {
+        handOver();
+        currentunit = unit;
+        counts = new HashMap<String,Map<String,long[]>>();
+      }
+      add(counts, operation, status, 1);
+    }
+
+    private void handOver()
+    {
+      if (counts != null)
+      {
+        addInterval(currentunit, counts);
+        counts = null;
+      }
+    }
+  }
+
+  private final int _granularity;
+  private final long _start;
+  private final CopyOnWriteArrayList<Recorder> _recorders = new CopyOnWriteArrayList<Recorder>();
+  /** Counts the operations reported by name rather than through a handle. */
+  private final Recorder _shared = newRecorder();
+  private final TreeMap<Long,Map<String,Map<String,long[]>>> _intervals =
+      new TreeMap<Long,Map<String,Map<String,long[]>>>();
+
+  /**
+   * @param start When the series starts, in milliseconds since the epoch.
+   */
+  public ThroughputTimeSeries(Properties props, long start)
+  {
+    _granularity = Integer.parseInt(props.getProperty(OneMeasurementTimeSeries.GRANULARITY,
+        OneMeasurementTimeSeries.GRANULARITY_DEFAULT));
+    _start = start;
+  }
+
+  private long unitAt(long now)
+  {
+    return Math.max(now - _start, 0) / _granularity;
+  }
+
+  /**
+   * Create a recorder for a single thread to count into.
+   */
+  Recorder newRecorder()
+  {
+    Recorder recorder = new Recorder();
+    _recorders.add(recorder);
+    return recorder;
+  }
+
+  /**
+   * Count an operation reported by its measurement name, e.g. "READ-NOT_FOUND".
+   */
+  void count(String measurementName, String status)
+  {
+    _shared.count(RawBinaryLog.splitStatus(measurementName)[0], status);
+  }
+
+  private static void add(Map<String,Map<String,long[]>> counts, String operation, String status, long n)
+  {
+    Map<String,long[]> byStatus = counts.get(operation);
+    if (byStatus == null)
+    {
+      byStatus = new HashMap<String,long[]>();
+      counts.put(operation, byStatus);
+    }
+    long[] count = byStatus.get(status);
+    if (count == null)
+    {
+      count = new long[1];
+      byStatus.put(status, count);
+    }
+    count[0] += n;
+  }
+
+  private synchronized void addInterval(long unit, Map<String,Map<String,long[]>> counts)
+  {
+    Map<String,Map<String,long[]>> interval = _intervals.get(unit);
+    if (interval == null)
+    {
+      _intervals.put(unit, counts);
+      return;
+    }
+    for (Map.Entry<String,Map<String,long[]>> operation : counts.entrySet())
+    {
+      for (Map.Entry<String,long[]> status : operation.getValue().entrySet())
+      {
+        add(interval, operation.getKey(), status.getKey(), status.getValue()[0]);
+      }
+    }
+  }
+
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    exportMeasurements(exporter, System.currentTimeMillis());
+  }
+
+  /**
+   * @param now When the export happens, in milliseconds since the epoch.
+   */
+  void exportMeasurements(MeasurementsExporter exporter, long now) throws IOException
+  {
+    for (Recorder recorder : _recorders)
+    {
+      synchronized (recorder)
+      {
+        recorder.handOver();
+      }
+    }
+
+    // regroup by operation, keeping the intervals and return codes in order
+    Map<String,TreeMap<Long,TreeMap<String,long[]>>> series =
+        new TreeMap<String,TreeMap<Long,TreeMap<String,long[]>>>();
+    long last;
+    synchronized (this)
+    {
+      if (_intervals.isEmpty())
+      {
+        return;
+      }
+      last = _intervals.lastKey();
+      for (Map.Entry<Long,Map<String,Map<String,long[]>>> interval : _intervals.entrySet())
+      {
+        for (Map.Entry<String,Map<String,long[]>> operation : interval.getValue().entrySet())
+        {
+          TreeMap<Long,TreeMap<String,long[]>> units = series.get(operation.getKey());
+          if (units == null)
+          {
+            units = new TreeMap<Long,TreeMap<String,long[]>>();
+            series.put(operation.getKey(), units);
+          }
+          units.put(interval.getKey(), new TreeMap<String,long[]>(operation.getValue()));
+        }
+      }
+    }
+
+    // the last interval may not have run its full length yet
+    long lastLength = Math.min(Math.max(now - _start - last * _granularity, 1), _granularity);
+
+    for (Map.Entry<String,TreeMap<Long,TreeMap<String,long[]>>> operation : series.entrySet())
+    {
+      String name = "THROUGHPUT-" + operation.getKey();
+      TreeMap<Long,TreeMap<String,long[]>> units = operation.getValue();
+      for (long unit = units.firstKey(); unit <= last; unit++)
+      {
+        String time = Long.toString(unit * _granularity);
+        long length = unit == last ? lastLength : _granularity;
+        TreeMap<String,long[]> statuses = units.get(unit);
+        if (statuses == null)
+        {
+          exporter.write(name, time, 0.0);
+          continue;
+        }
+        long total = 0;
+        for (long[] count : statuses.values())
+        {
+          total += count[0];
+        }
+        exporter.write(name, time, total * 1000.0 / length);
+        for (Map.Entry<String,long[]> status : statuses.entrySet())
+        {
+          exporter.write(name, time + ":Return=" + status.getKey(), status.getValue()[0]);
+        }
+      }
+    }
+  }
+}
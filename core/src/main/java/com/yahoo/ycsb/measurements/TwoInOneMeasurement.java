@@ -49,15 +49,28 @@ public class TwoInOneMeasurement extends OneMeasurement {
   }
 
   /**
-   * It appears latency is reported in micros.
+   * Latency is reported in micros, or nanos if that is the configured unit.
    * Using {@link Recorder} to support concurrent updates to histogram.
    *
-   * @see com.yahoo.ycsb.OneMeasurement#measure(int)
+   * @see com.yahoo.ycsb.OneMeasurement#measure(long)
    */
   @Override
-  public void measure(int latencyInMicros) {
-    thing1.measure(latencyInMicros);
-    thing2.measure(latencyInMicros);
+  public void measure(long latency) {
+    thing1.measure(latency);
+    thing2.measure(latency);
+  }
+
+  /**
+   * Pairs a thread recorder of each measurement, which merge into them.
+   */
+  @Override
+  protected OneMeasurement createThreadRecorder() {
+    OneMeasurement recorder1 = thing1.newThreadRecorder();
+    OneMeasurement recorder2 = thing2.newThreadRecorder();
+    if (recorder1 == thing1 && recorder2 == thing2) {
+      return this;
+    }
+    return new TwoInOneMeasurement(getName(), recorder1, recorder2);
   }
 
   /**
@@ -22,13 +22,14 @@ import java.util.Properties;
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.generator.AcknowledgedCounterGenerator;
 import com.yahoo.ycsb.generator.CounterGenerator;
-import com.yahoo.ycsb.generator.DiscreteGenerator;
 import com.yahoo.ycsb.generator.ExponentialGenerator;
-import com.yahoo.ycsb.generator.Generator;
 import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.HistogramGenerator;
 import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.MovingHotspotGenerator;
+import com.yahoo.ycsb.generator.OperationChooser;
+import com.yahoo.ycsb.generator.RejectionInversionZipfianGenerator;
 import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
@@ -36,12 +37,17 @@ import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Vector;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * The core benchmark scenario. Represents a set of clients doing simple CRUD operations. The relative 
@@ -59,7 +65,11 @@ import java.util.ArrayList;
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record, modify it, write it back (default: 0)
+ * <LI><b>deleteproportion</b>: what proportion of operations should be deletes (default: 0)
+ * <LI><b>deletechurn</b>: should inserts re-insert deleted records, oldest first, before adding new ones (default: false)
  * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, or latest (default: uniform)
+ * <LI><b>read.requestdistribution</b>, <b>update.requestdistribution</b>, ...: the distribution for one type of operation, if it
+ * differs; the distribution's other settings can be overridden with the same prefix, e.g. <b>scan.zipfian.constant</b>
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
@@ -67,6 +77,13 @@ import java.util.ArrayList;
  */
 public class CoreWorkload extends Workload
 {
+	/**
+	 * The operations a transaction can perform.
+	 */
+	public enum Operation
+	{
+		READ, UPDATE, INSERT, SCAN, READMODIFYWRITE, DELETE
+	}
 
 	/**
 	 * The name of the database table to run queries against.
@@ -95,6 +112,11 @@ public class CoreWorkload extends Workload
 
 	private List<String> fieldnames;
 
+	/**
+	 * The index of each field in fieldnames, for looking up the fields of rows read back.
+	 */
+	private Map<String,Integer> fieldindexes;
+
 	/**
 	 * The name of the property for the field length distribution. Options are "uniform", "zipfian" (favoring short records), "constant", and "histogram".
 	 * 
@@ -125,10 +147,32 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY_DEFAULT = "hist.txt";
 
+	/**
+	 * The name of the property for the distribution of the field read or written by operations that access a single
+	 * field. Options are "uniform" and "zipfian" (favoring the first fields).
+	 */
+	public static final String FIELD_ACCESS_DISTRIBUTION_PROPERTY="fieldaccessdistribution";
+
+	/**
+	 * The default field access distribution.
+	 */
+	public static final String FIELD_ACCESS_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
+
+	/**
+	 * The name of the property for the zipfian constant of the "zipfian" field access distribution. Any value above 0 may be used.
+	 */
+	public static final String FIELD_ACCESS_ZIPFIAN_CONSTANT_PROPERTY="fieldaccess.zipfian.constant";
+
 	/**
 	 * Generator object that produces field lengths.  The value of this depends on the properties that start with "FIELD_LENGTH_".
 	 */
 	IntegerGenerator fieldlengthgenerator;
+
+	/**
+	 * The field length generator of each field. The length settings can be overridden for a single field by prefixing
+	 * them with the field's name, e.g. "field0.fieldlength"; fields without overrides share fieldlengthgenerator.
+	 */
+	List<IntegerGenerator> fieldlengthgenerators;
 	
 	/**
 	 * The name of the property for deciding whether to read one field (false) or all fields (true) of a record.
@@ -221,9 +265,37 @@ public class CoreWorkload extends Workload
 	 * The default proportion of transactions that are scans.
 	 */
 	public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY="deleteproportion";
+
+	/**
+	 * The default proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property that turns on churn: inserts re-insert deleted records, oldest first, before
+	 * they add new ones, so with equal insert and delete proportions the table keeps a steady size.
+	 */
+	public static final String DELETE_CHURN_PROPERTY="deletechurn";
+
+	/**
+	 * By default deleted records stay deleted.
+	 */
+	public static final String DELETE_CHURN_PROPERTY_DEFAULT="false";
+
+	/**
+	 * How many times a key chooser is asked again when it picks a deleted key, before the deleted key is used
+	 * anyway. Only matters once most of the keys the chooser favors have been deleted.
+	 */
+	private static final int DELETED_KEY_RETRIES=100;
 	
 	/**
-	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian" and "latest"
+	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian",
+	 * "latest", "hotspot" and "movinghotspot"
 	 */
 	public static final String REQUEST_DISTRIBUTION_PROPERTY="requestdistribution";
 	
@@ -232,6 +304,17 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String REQUEST_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
 
+	/**
+	 * The name of the property for the zipfian constant used by the "zipfian" and "latest" request distributions. Larger
+	 * values are more skewed; any value above 0 is supported.
+	 */
+	public static final String ZIPFIAN_CONSTANT_PROPERTY="zipfian.constant";
+
+	/**
+	 * Default zipfian constant.
+	 */
+	public static final String ZIPFIAN_CONSTANT_PROPERTY_DEFAULT=Double.toString(ZipfianGenerator.ZIPFIAN_CONSTANT);
+
 	/**
 	 * The name of the property for the max scan length (number of records)
 	 */
@@ -261,6 +344,38 @@ public class CoreWorkload extends Workload
 	 * Default insert order.
 	 */
 	public static final String INSERT_ORDER_PROPERTY_DEFAULT="hashed";
+
+	/**
+	 * The name of the property for the format of record keys: "string" for the prefix followed by the key
+	 * number in decimal, or "binary" for the prefix followed by the key number as 8 big-endian bytes.
+	 */
+	public static final String KEY_FORMAT_PROPERTY="keyformat";
+
+	/**
+	 * Default key format.
+	 */
+	public static final String KEY_FORMAT_PROPERTY_DEFAULT=KeyEncoder.STRING;
+
+	/**
+	 * The name of the property for the prefix of record keys.
+	 */
+	public static final String KEY_PREFIX_PROPERTY="keyprefix";
+
+	/**
+	 * Default key prefix.
+	 */
+	public static final String KEY_PREFIX_PROPERTY_DEFAULT="user";
+
+	/**
+	 * The name of the property for the size in bytes of a pool of pre-generated random data that field values are
+	 * sliced from. 0 generates every value from scratch.
+	 */
+	public static final String VALUE_POOL_SIZE_PROPERTY="valuepool.size";
+
+	/**
+	 * Default value pool size.
+	 */
+	public static final String VALUE_POOL_SIZE_PROPERTY_DEFAULT="0";
 	
 	/**
    * Percentage data items that constitute the hot set.
@@ -281,30 +396,91 @@ public class CoreWorkload extends Workload
    * Default value of the percentage operations accessing the hot set.
    */
   public static final String HOTSPOT_OPN_FRACTION_DEFAULT = "0.8";
+
+  /**
+   * How the hot set of the "movinghotspot" request distribution moves: "step", "slide" or "random".
+   */
+  public static final String HOTSPOT_MOVE_PROPERTY = "hotspot.move";
+
+  /**
+   * Default hot set movement.
+   */
+  public static final String HOTSPOT_MOVE_PROPERTY_DEFAULT = "step";
+
+  /**
+   * How often, in seconds, the hot set of the "movinghotspot" request distribution moves.
+   */
+  public static final String HOTSPOT_MOVE_PERIOD_PROPERTY = "hotspot.move.period";
+
+  /**
+   * Default hot set move period.
+   */
+  public static final String HOTSPOT_MOVE_PERIOD_PROPERTY_DEFAULT = "60";
+
+  /**
+   * How far the hot set moves each period, as a fraction of the key space. Defaults to the hot set size, so each
+   * step lands on a fresh, adjacent hot set.
+   */
+  public static final String HOTSPOT_MOVE_DISTANCE_PROPERTY = "hotspot.move.distance";
+
+  /**
+   * The name of the event series in which moves of the hot set are recorded, with the key number the hot set
+   * moved to, so they show up in the status and exported output next to the latencies they affect.
+   */
+  public static final String HOTSPOT_SHIFT_MEASUREMENT = "HOTSPOT-SHIFT";
 	
 	IntegerGenerator keysequence;
 
-	DiscreteGenerator operationchooser;
+	OperationChooser<Operation> operationchooser;
 
 	IntegerGenerator keychooser;
 
-	Generator fieldchooser;
+	/** The key chooser of each operation, by ordinal; the default keychooser unless the operation overrides it. */
+	IntegerGenerator[] opkeychoosers=new IntegerGenerator[Operation.values().length];
+
+	/** Every key chooser in use, by the settings it was built from, so a later phase can tell which it can keep. */
+	Map<String,IntegerGenerator> keychoosers=new HashMap<String,IntegerGenerator>();
+
+	IntegerGenerator fieldchooser;
 
 	AcknowledgedCounterGenerator transactioninsertkeysequence;
+
+	/**
+	 * Keys below the insert limit that have been deleted, or are being deleted, and not re-inserted since. Takes at
+	 * most one bit per key of the key space, whether or not churn re-inserts them.
+	 */
+	KeyBitSet deletedkeys=new KeyBitSet();
+
+	/** With churn, the deleted keys waiting to be re-inserted, oldest first. */
+	Queue<Long> reinsertkeys=new ConcurrentLinkedQueue<Long>();
+
+	boolean deletechurn;
 	
 	IntegerGenerator scanlength;
 	
 	boolean orderedinserts;
 
-	int recordcount;
+	KeyEncoder keyencoder;
+
+	RandomValuePool valuepool;
+
+
+	long recordcount;
 
     private Measurements _measurements = Measurements.getMeasurements();
 	
 	protected static IntegerGenerator getFieldLengthGenerator(Properties p) throws WorkloadException{
+		return getFieldLengthGenerator(p, "");
+	}
+
+	/**
+	 * Build a field length generator from the settings with the given prefix, falling back to the plain settings.
+	 */
+	protected static IntegerGenerator getFieldLengthGenerator(Properties p, String prefix) throws WorkloadException{
 		IntegerGenerator fieldlengthgenerator;
-		String fieldlengthdistribution = p.getProperty(FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
-		int fieldlength=Integer.parseInt(p.getProperty(FIELD_LENGTH_PROPERTY,FIELD_LENGTH_PROPERTY_DEFAULT));
-		String fieldlengthhistogram = p.getProperty(FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY, FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY_DEFAULT);
+		String fieldlengthdistribution = getProperty(p, prefix, FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
+		int fieldlength=Integer.parseInt(getProperty(p, prefix, FIELD_LENGTH_PROPERTY,FIELD_LENGTH_PROPERTY_DEFAULT));
+		String fieldlengthhistogram = getProperty(p, prefix, FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY, FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY_DEFAULT);
 		if(fieldlengthdistribution.compareTo("constant") == 0) {
 			fieldlengthgenerator = new ConstantIntegerGenerator(fieldlength);
 		} else if(fieldlengthdistribution.compareTo("uniform") == 0) {
@@ -329,28 +505,55 @@ public class CoreWorkload extends Workload
 	 */
 	public void init(Properties p) throws WorkloadException
 	{
+		init(p,false);
+	}
+
+	/**
+	 * Prepare for another phase. The keys inserted by earlier phases stay inserted and, if the record count
+	 * and request distribution settings are unchanged, so does the key chooser; everything else follows the
+	 * new properties.
+	 */
+	@Override
+	public void initPhase(Properties p) throws WorkloadException
+	{
+		init(p,true);
+	}
+
+	private void init(Properties p, boolean nextphase) throws WorkloadException
+	{
+		long previousrecordcount=recordcount;
 		table = p.getProperty(TABLENAME_PROPERTY,TABLENAME_PROPERTY_DEFAULT);
 		
 		fieldcount=Integer.parseInt(p.getProperty(FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT));
     fieldnames = new ArrayList<String>();
+    fieldindexes = new HashMap<String,Integer>();
     for (int i = 0; i < fieldcount; i++) {
         fieldnames.add("field" + i);
+        fieldindexes.put("field" + i, i);
     }
 		fieldlengthgenerator = CoreWorkload.getFieldLengthGenerator(p);
+		fieldlengthgenerators = new ArrayList<IntegerGenerator>(fieldcount);
+		for (String fieldname : fieldnames)
+		{
+			fieldlengthgenerators.add(hasFieldLengthOverride(p, fieldname+".") ?
+					CoreWorkload.getFieldLengthGenerator(p, fieldname+".") : fieldlengthgenerator);
+		}
 		
 		double readproportion=Double.parseDouble(p.getProperty(READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
 		double updateproportion=Double.parseDouble(p.getProperty(UPDATE_PROPORTION_PROPERTY,UPDATE_PROPORTION_PROPERTY_DEFAULT));
 		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
 		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
 		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
-		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
+		double deleteproportion=Double.parseDouble(p.getProperty(DELETE_PROPORTION_PROPERTY,DELETE_PROPORTION_PROPERTY_DEFAULT));
+		deletechurn=Boolean.parseBoolean(p.getProperty(DELETE_CHURN_PROPERTY,DELETE_CHURN_PROPERTY_DEFAULT));
+		recordcount=Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
 		if(recordcount == 0)
 		    recordcount = Integer.MAX_VALUE;
 		String requestdistrib=p.getProperty(REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
 		int maxscanlength=Integer.parseInt(p.getProperty(MAX_SCAN_LENGTH_PROPERTY,MAX_SCAN_LENGTH_PROPERTY_DEFAULT));
 		String scanlengthdistrib=p.getProperty(SCAN_LENGTH_DISTRIBUTION_PROPERTY,SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT);
 		
-		int insertstart=Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
+		long insertstart=Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT));
 		
 		readallfields=Boolean.parseBoolean(p.getProperty(READ_ALL_FIELDS_PROPERTY,READ_ALL_FIELDS_PROPERTY_DEFAULT));
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
@@ -358,60 +561,187 @@ public class CoreWorkload extends Workload
     dataintegrity = Boolean.parseBoolean(p.getProperty(DATA_INTEGRITY_PROPERTY, DATA_INTEGRITY_PROPERTY_DEFAULT));
     //Confirm that fieldlengthgenerator returns a constant if data
     //integrity check requested.
-    if (dataintegrity && !(p.getProperty(FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT)).equals("constant"))
+    for (String fieldname : fieldnames)
     {
-      System.err.println("Must have constant field size to check data integrity.");
-      System.exit(-1);
+      if (dataintegrity && !getProperty(p, fieldname+".", FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT).equals("constant"))
+      {
+        System.err.println("Must have constant field size to check data integrity.");
+        System.exit(-1);
+      }
     }
 
-		if (p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")==0)
+		// the exponential distribution chooses keys counting back from the latest insert, so its inserts are hashed
+		orderedinserts=p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")!=0
+				&& requestdistrib.compareTo("exponential")!=0;
+
+		try
 		{
-			orderedinserts=false;
+			keyencoder=new KeyEncoder(p.getProperty(KEY_PREFIX_PROPERTY,KEY_PREFIX_PROPERTY_DEFAULT),
+					p.getProperty(KEY_FORMAT_PROPERTY,KEY_FORMAT_PROPERTY_DEFAULT),!orderedinserts);
 		}
-		else if (requestdistrib.compareTo("exponential")==0)
+		catch (IllegalArgumentException e)
 		{
-                    double percentile = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_PERCENTILE_PROPERTY,
-                                                                         ExponentialGenerator.EXPONENTIAL_PERCENTILE_DEFAULT));
-                    double frac       = Double.parseDouble(p.getProperty(ExponentialGenerator.EXPONENTIAL_FRAC_PROPERTY,
-                                                                         ExponentialGenerator.EXPONENTIAL_FRAC_DEFAULT));
-                    keychooser = new ExponentialGenerator(percentile, recordcount*frac);
+			throw new WorkloadException(e.getMessage(), e);
 		}
-		else
+
+		int valuepoolsize=Integer.parseInt(p.getProperty(VALUE_POOL_SIZE_PROPERTY,VALUE_POOL_SIZE_PROPERTY_DEFAULT));
+		if (valuepoolsize<=0)
+		{
+			valuepool=null;
+		}
+		else if (valuepool==null || valuepool.size()!=valuepoolsize)
 		{
-			orderedinserts=true;
+			valuepool=new RandomValuePool(valuepoolsize);
 		}
 
 		keysequence=new CounterGenerator(insertstart);
-		operationchooser=new DiscreteGenerator();
+		operationchooser=new OperationChooser<Operation>(Operation.class);
 		if (readproportion>0)
 		{
-			operationchooser.addValue(readproportion,"READ");
+			operationchooser.setWeight(Operation.READ,readproportion);
 		}
 
 		if (updateproportion>0)
 		{
-			operationchooser.addValue(updateproportion,"UPDATE");
+			operationchooser.setWeight(Operation.UPDATE,updateproportion);
 		}
 
 		if (insertproportion>0)
 		{
-			operationchooser.addValue(insertproportion,"INSERT");
+			operationchooser.setWeight(Operation.INSERT,insertproportion);
 		}
 		
 		if (scanproportion>0)
 		{
-			operationchooser.addValue(scanproportion,"SCAN");
+			operationchooser.setWeight(Operation.SCAN,scanproportion);
 		}
 		
 		if (readmodifywriteproportion>0)
 		{
-			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
+			operationchooser.setWeight(Operation.READMODIFYWRITE,readmodifywriteproportion);
+		}
+
+		if (deleteproportion>0)
+		{
+			operationchooser.setWeight(Operation.DELETE,deleteproportion);
+		}
+
+		boolean samekeyspace=nextphase && recordcount==previousrecordcount;
+		if (!samekeyspace)
+		{
+			transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount);
+			deletedkeys.clear();
+			reinsertkeys.clear();
+		}
+		else if (!deletechurn)
+		{
+			// keys left waiting by a churn phase stay deleted
+			reinsertkeys.clear();
+		}
+
+		// choosers whose settings are unchanged are kept, and with them e.g. the zeta constant of the "latest" distribution
+		Map<String,IntegerGenerator> previouschoosers=samekeyspace ? keychoosers : new HashMap<String,IntegerGenerator>();
+		keychoosers=new HashMap<String,IntegerGenerator>();
+		keychooser=buildKeyChooser(p,"",previouschoosers,insertproportion);
+		for (Operation op : Operation.values())
+		{
+			opkeychoosers[op.ordinal()]=buildKeyChooser(p,op.name().toLowerCase()+".",previouschoosers,insertproportion);
+		}
+
+		String fieldaccessdistrib=p.getProperty(FIELD_ACCESS_DISTRIBUTION_PROPERTY,FIELD_ACCESS_DISTRIBUTION_PROPERTY_DEFAULT);
+		if (fieldaccessdistrib.equals("uniform"))
+		{
+			fieldchooser=new UniformIntegerGenerator(0,fieldcount-1);
+		}
+		else if (fieldaccessdistrib.equals("zipfian"))
+		{
+			double fieldzipfianconstant=Double.parseDouble(p.getProperty(FIELD_ACCESS_ZIPFIAN_CONSTANT_PROPERTY,ZIPFIAN_CONSTANT_PROPERTY_DEFAULT));
+			if (!(fieldzipfianconstant>0))
+			{
+				throw new WorkloadException("Field access zipfian constant must be positive, got "+fieldzipfianconstant);
+			}
+			fieldchooser=new RejectionInversionZipfianGenerator(0,fieldcount-1,fieldzipfianconstant);
+		}
+		else
+		{
+			throw new WorkloadException("Unknown field access distribution \""+fieldaccessdistrib+"\"");
+		}
+		
+		if (scanlengthdistrib.compareTo("uniform")==0)
+		{
+			scanlength=new UniformIntegerGenerator(1,maxscanlength);
+		}
+		else if (scanlengthdistrib.compareTo("zipfian")==0)
+		{
+			scanlength=new ZipfianGenerator(1,maxscanlength);
+		}
+		else
+		{
+			throw new WorkloadException("Distribution \""+scanlengthdistrib+"\" not allowed for scan length");
+		}
+	}
+
+	/**
+	 * The chooser that picks each transaction's operation. Its weights can be changed while the workload runs,
+	 * to shift the operation mix without restarting.
+	 */
+	public OperationChooser<Operation> getOperationChooser() {
+		return operationchooser;
+	}
+
+	/**
+	 * Look up a key chooser setting, preferring the one specific to an operation.
+	 *
+	 * @param prefix The operation's property prefix, e.g. "read.", or "" for the default.
+	 */
+	private static String getProperty(Properties p, String prefix, String name, String defaultvalue)
+	{
+		return p.getProperty(prefix+name, p.getProperty(name, defaultvalue));
+	}
+
+	/**
+	 * Build the key chooser for the operations with the given property prefix. Each setting is taken from the prefixed
+	 * property if there is one, e.g. "read.requestdistribution", and otherwise from the plain one, so operations
+	 * without overrides share the default chooser.
+	 *
+	 * @param previous Choosers of the previous phase that can be kept, by their settings.
+	 */
+	private IntegerGenerator buildKeyChooser(Properties p, String prefix, Map<String,IntegerGenerator> previous,
+			double insertproportion) throws WorkloadException
+	{
+		String requestdistrib=getProperty(p,prefix,REQUEST_DISTRIBUTION_PROPERTY,REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
+		double zipfianconstant=Double.parseDouble(getProperty(p,prefix,ZIPFIAN_CONSTANT_PROPERTY,ZIPFIAN_CONSTANT_PROPERTY_DEFAULT));
+		if (!(zipfianconstant>0))
+		{
+			throw new WorkloadException("Zipfian constant must be positive, got "+zipfianconstant);
+		}
+		double hotsetfraction=Double.parseDouble(getProperty(p,prefix,HOTSPOT_DATA_FRACTION,HOTSPOT_DATA_FRACTION_DEFAULT));
+		double hotopnfraction=Double.parseDouble(getProperty(p,prefix,HOTSPOT_OPN_FRACTION,HOTSPOT_OPN_FRACTION_DEFAULT));
+		String move=getProperty(p,prefix,HOTSPOT_MOVE_PROPERTY,HOTSPOT_MOVE_PROPERTY_DEFAULT);
+		double period=Double.parseDouble(getProperty(p,prefix,HOTSPOT_MOVE_PERIOD_PROPERTY,HOTSPOT_MOVE_PERIOD_PROPERTY_DEFAULT));
+		double distance=Double.parseDouble(getProperty(p,prefix,HOTSPOT_MOVE_DISTANCE_PROPERTY,Double.toString(hotsetfraction)));
+		double percentile=Double.parseDouble(getProperty(p,prefix,ExponentialGenerator.EXPONENTIAL_PERCENTILE_PROPERTY,
+				ExponentialGenerator.EXPONENTIAL_PERCENTILE_DEFAULT));
+		double frac=Double.parseDouble(getProperty(p,prefix,ExponentialGenerator.EXPONENTIAL_FRAC_PROPERTY,
+				ExponentialGenerator.EXPONENTIAL_FRAC_DEFAULT));
+
+		String spec=requestdistrib+":"+zipfianconstant+":"+hotsetfraction+":"+hotopnfraction+":"+move+":"+period+":"+distance
+				+":"+percentile+":"+frac;
+		IntegerGenerator chooser=keychoosers.get(spec);
+		if (chooser==null)
+		{
+			// keep the previous phase's chooser
+			chooser=previous.get(spec);
+		}
+		if (chooser!=null)
+		{
+			keychoosers.put(spec, chooser);
+			return chooser;
 		}
 
-		transactioninsertkeysequence=new AcknowledgedCounterGenerator(recordcount);
 		if (requestdistrib.compareTo("uniform")==0)
 		{
-			keychooser=new UniformIntegerGenerator(0,recordcount-1);
+			chooser=new UniformIntegerGenerator(0,recordcount-1);
 		}
 		else if (requestdistrib.compareTo("zipfian")==0)
 		{
@@ -422,66 +752,105 @@ public class CoreWorkload extends Workload
 			//plus the number of predicted keys as the total keyspace. then, if the generator picks a key that hasn't been inserted yet, will
 			//just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
 			
-			int opcount=Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-			int expectednewkeys=(int)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
+			long opcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
+			long expectednewkeys=(long)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
 			
-			keychooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys);
+			chooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys,zipfianconstant);
 		}
 		else if (requestdistrib.compareTo("latest")==0)
 		{
-			keychooser=new SkewedLatestGenerator(transactioninsertkeysequence);
+			chooser=new SkewedLatestGenerator(transactioninsertkeysequence,zipfianconstant);
+		}
+		else if (requestdistrib.compareTo("exponential")==0)
+		{
+			chooser=new ExponentialGenerator(percentile, recordcount*frac);
 		}
 		else if (requestdistrib.equals("hotspot")) 
 		{
-      double hotsetfraction = Double.parseDouble(p.getProperty(
-          HOTSPOT_DATA_FRACTION, HOTSPOT_DATA_FRACTION_DEFAULT));
-      double hotopnfraction = Double.parseDouble(p.getProperty(
-          HOTSPOT_OPN_FRACTION, HOTSPOT_OPN_FRACTION_DEFAULT));
-      keychooser = new HotspotIntegerGenerator(0, recordcount - 1, 
-          hotsetfraction, hotopnfraction);
-    }
+			chooser=new HotspotIntegerGenerator(0, recordcount - 1, hotsetfraction, hotopnfraction);
+		}
+		else if (requestdistrib.equals("movinghotspot"))
+		{
+			chooser=buildMovingHotspot(hotsetfraction, hotopnfraction, move, period, distance);
+		}
 		else
 		{
 			throw new WorkloadException("Unknown request distribution \""+requestdistrib+"\"");
 		}
+		keychoosers.put(spec, chooser);
+		return chooser;
+	}
 
-		fieldchooser=new UniformIntegerGenerator(0,fieldcount-1);
-		
-		if (scanlengthdistrib.compareTo("uniform")==0)
+	/**
+	 * Build the key chooser of the "movinghotspot" request distribution. The hot set's starting place and each move
+	 * are recorded as HOTSPOT-SHIFT events and logged, so latency changes can be lined up against them.
+	 */
+	private IntegerGenerator buildMovingHotspot(double hotsetfraction, double hotopnfraction, String move,
+			double period, double distance) throws WorkloadException
+	{
+		MovingHotspotGenerator.Movement movement;
+		try
 		{
-			scanlength=new UniformIntegerGenerator(1,maxscanlength);
+			movement = MovingHotspotGenerator.Movement.valueOf(move.toUpperCase());
 		}
-		else if (scanlengthdistrib.compareTo("zipfian")==0)
+		catch (IllegalArgumentException e)
 		{
-			scanlength=new ZipfianGenerator(1,maxscanlength);
+			throw new WorkloadException("Unknown hotspot movement \""+move+"\"");
 		}
-		else
+		try
 		{
-			throw new WorkloadException("Distribution \""+scanlengthdistrib+"\" not allowed for scan length");
+			return new MovingHotspotGenerator(0, recordcount - 1, hotsetfraction, hotopnfraction, movement, period, distance)
+			{
+				@Override
+				protected void shifted(long shift, long offset)
+				{
+					String now = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss:SSS").format(new Date());
+					System.err.println(now+" hot set "+(shift==0 ? "starts at" : "moved to")+" key number "+offset+" (period "+shift+")");
+					_measurements.recordEvent(HOTSPOT_SHIFT_MEASUREMENT, offset);
+				}
+			};
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new WorkloadException(e.getMessage(), e);
 		}
 	}
 
 	public String buildKeyName(long keynum) {
- 		if (!orderedinserts)
- 		{
- 			keynum=Utils.hash(keynum);
- 		}
-		return "user"+keynum;
+		return keyencoder.encode(keynum);
 	}
 	
+  /**
+   * @return Whether any field length setting is overridden with the given prefix.
+   */
+  private static boolean hasFieldLengthOverride(Properties p, String prefix) {
+    return p.getProperty(prefix + FIELD_LENGTH_DISTRIBUTION_PROPERTY) != null
+        || p.getProperty(prefix + FIELD_LENGTH_PROPERTY) != null
+        || p.getProperty(prefix + FIELD_LENGTH_HISTOGRAM_FILE_PROPERTY) != null;
+  }
+
+  /**
+   * Builds a random value for the given field, sliced from the value pool if there is one.
+   */
+  private ByteIterator buildRandomValue(int field) {
+    int len = fieldlengthgenerators.get(field).nextInt();
+    return valuepool != null ? valuepool.next(len) : new RandomByteIterator(len);
+  }
+
   /**
    * Builds a value for a randomly chosen field.
    */
   private HashMap<String, ByteIterator> buildSingleValue(String key) {
     HashMap<String,ByteIterator> value = new HashMap<String,ByteIterator>();
 
-    String fieldkey = fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+    int field = fieldchooser.nextInt();
+    String fieldkey = fieldnames.get(field);
     ByteIterator data;
     if (dataintegrity) {
-      data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
+      data = new StringByteIterator(buildDeterministicValue(key, field));
     } else {
       //fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextInt());
+      data = buildRandomValue(field);
     }
     value.put(fieldkey,data);
 
@@ -494,13 +863,14 @@ public class CoreWorkload extends Workload
   private HashMap<String, ByteIterator> buildValues(String key) {        
     HashMap<String,ByteIterator> values = new HashMap<String,ByteIterator>();
 
-    for (String fieldkey : fieldnames) {
+    for (int field = 0; field < fieldcount; field++) {
+      String fieldkey = fieldnames.get(field);
       ByteIterator data;
       if (dataintegrity) {
-        data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
+        data = new StringByteIterator(buildDeterministicValue(key, field));
       } else {
         //fill with random data
-        data = new RandomByteIterator(fieldlengthgenerator.nextInt());
+        data = buildRandomValue(field);
       }
       values.put(fieldkey,data);
     }
@@ -510,12 +880,12 @@ public class CoreWorkload extends Workload
   /**
    * Build a deterministic value given the key information.
    */
-  private String buildDeterministicValue(String key, String fieldkey) {
-    int size = fieldlengthgenerator.nextInt();
+  private String buildDeterministicValue(String key, int field) {
+    int size = fieldlengthgenerators.get(field).nextInt();
     StringBuilder sb = new StringBuilder(size);
     sb.append(key);
     sb.append(':');
-    sb.append(fieldkey);
+    sb.append(fieldnames.get(field));
     while (sb.length() < size) {
       sb.append(':');
       sb.append(sb.toString().hashCode());
@@ -533,7 +903,7 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doInsert(DB db, Object threadstate)
 	{
-		int keynum=keysequence.nextInt();
+		long keynum=keysequence.nextLong();
 		String dbkey = buildKeyName(keynum);
 		HashMap<String, ByteIterator> values = buildValues(dbkey);
 		if (db.insert(table,dbkey,values).equals(Status.OK))
@@ -550,29 +920,83 @@ public class CoreWorkload extends Workload
 	 */
 	public boolean doTransaction(DB db, Object threadstate)
 	{
-		String op=operationchooser.nextString();
-
-		if (op.compareTo("READ")==0)
+		Operation op=operationchooser.next();
+		if (op==null)
 		{
-			doTransactionRead(db);
+			return false;
 		}
-		else if (op.compareTo("UPDATE")==0)
+
+		switch (op)
 		{
+		case READ:
+			doTransactionRead(db);
+			break;
+		case UPDATE:
 			doTransactionUpdate(db);
-		}
-		else if (op.compareTo("INSERT")==0)
-		{
+			break;
+		case INSERT:
 			doTransactionInsert(db);
+			break;
+		case SCAN:
+			doTransactionScan(db);
+			break;
+		case DELETE:
+			doTransactionDelete(db);
+			break;
+		default:
+			doTransactionReadModifyWrite(db);
 		}
-		else if (op.compareTo("SCAN")==0)
+
+		return true;
+	}
+
+	/**
+	 * Do one insert operation against an asynchronous DB. The callback is notified with the status of the insert.
+	 */
+	public boolean doInsertAsync(AsyncDB db, Object threadstate, AsyncCallback callback)
+	{
+		long keynum=keysequence.nextLong();
+		String dbkey = buildKeyName(keynum);
+		HashMap<String, ByteIterator> values = buildValues(dbkey);
+		db.insert(table,dbkey,values,callback);
+		return true;
+	}
+
+	/**
+	 * Do one transaction operation against an asynchronous DB. The callback is notified once every DB operation
+	 * of the transaction has completed, so a read-modify-write counts as a single outstanding operation.
+	 */
+	public boolean doTransactionAsync(AsyncDB db, Object threadstate, AsyncCallback callback)
+	{
+		Operation op=operationchooser.next();
+		if (op==null)
 		{
-			doTransactionScan(db);
+			// nothing was issued, but the callback is still owed its completion
+			callback.completed(Status.ERROR);
+			return false;
 		}
-		else
+
+		switch (op)
 		{
-			doTransactionReadModifyWrite(db);
+		case READ:
+			doTransactionReadAsync(db, callback);
+			break;
+		case UPDATE:
+			doTransactionUpdateAsync(db, callback);
+			break;
+		case INSERT:
+			doTransactionInsertAsync(db, callback);
+			break;
+		case SCAN:
+			doTransactionScanAsync(db, callback);
+			break;
+		case DELETE:
+			doTransactionDeleteAsync(db, callback);
+			break;
+		default:
+			doTransactionReadModifyWriteAsync(db, callback);
 		}
-		
+
 		return true;
 	}
 
@@ -588,8 +1012,9 @@ public class CoreWorkload extends Workload
     long startTime = System.nanoTime();
     if (!cells.isEmpty()) {
       for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
-        if (!entry.getValue().toString().equals(
-            buildDeterministicValue(key, entry.getKey()))) {
+        Integer field = fieldindexes.get(entry.getKey());
+        if (field == null || !entry.getValue().toString().equals(
+            buildDeterministicValue(key, field))) {
           verifyStatus = Status.UNEXPECTED_STATE;
           break;
         }
@@ -599,24 +1024,38 @@ public class CoreWorkload extends Workload
       verifyStatus = Status.ERROR;
     }
     long endTime = System.nanoTime();
-    _measurements.measure("VERIFY", (int) (endTime - startTime) / 1000);
+    _measurements.measureNanos("VERIFY", endTime - startTime);
     _measurements.reportStatus("VERIFY",verifyStatus);
   }
 
-    int nextKeynum() {
-        int keynum;
-        if(keychooser instanceof ExponentialGenerator) {
+    /**
+     * Choose the key for an operation. Deleted keys are skipped, so reads and updates only go to keys that exist
+     * unless nearly every key the chooser favors has been deleted.
+     */
+    long nextKeynum(Operation op) {
+        long keynum=chooseKeynum(op);
+        for (int i=0; i<DELETED_KEY_RETRIES && deletedkeys.contains(keynum); i++)
+        {
+            keynum=chooseKeynum(op);
+        }
+        return keynum;
+    }
+
+    private long chooseKeynum(Operation op) {
+        IntegerGenerator chooser = opkeychoosers[op.ordinal()];
+        long keynum;
+        if(chooser instanceof ExponentialGenerator) {
             do
                 {
-                    keynum=transactioninsertkeysequence.lastInt() - keychooser.nextInt();
+                    keynum=transactioninsertkeysequence.lastLong() - chooser.nextLong();
                 }
             while(keynum < 0);
         } else {
             do
                 {
-                    keynum=keychooser.nextInt();
+                    keynum=chooser.nextLong();
                 }
-            while (keynum > transactioninsertkeysequence.lastInt());
+            while (keynum > transactioninsertkeysequence.lastLong());
         }
         return keynum;
     }
@@ -624,7 +1063,7 @@ public class CoreWorkload extends Workload
 	public void doTransactionRead(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(Operation.READ);
 		
 		String keyname = buildKeyName(keynum);
 		
@@ -633,7 +1072,7 @@ public class CoreWorkload extends Workload
 		if (!readallfields)
 		{
 			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+			String fieldname=fieldnames.get(fieldchooser.nextInt());
 
 			fields=new HashSet<String>();
 			fields.add(fieldname);
@@ -654,7 +1093,7 @@ public class CoreWorkload extends Workload
 	public void doTransactionReadModifyWrite(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(Operation.READMODIFYWRITE);
 
 		String keyname = buildKeyName(keynum);
 
@@ -663,7 +1102,7 @@ public class CoreWorkload extends Workload
 		if (!readallfields)
 		{
 			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+			String fieldname=fieldnames.get(fieldchooser.nextInt());
 
 			fields=new HashSet<String>();
 			fields.add(fieldname);
@@ -700,14 +1139,14 @@ public class CoreWorkload extends Workload
       verifyRow(keyname, cells);
     }
 
-		_measurements .measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
-		_measurements .measureIntended("READ-MODIFY-WRITE", (int)((en-ist)/1000));
+		_measurements .measureNanos("READ-MODIFY-WRITE", en-st);
+		_measurements .measureIntendedNanos("READ-MODIFY-WRITE", en-ist);
 	}
 	
 	public void doTransactionScan(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(Operation.SCAN);
 
 		String startkeyname = buildKeyName(keynum);
 		
@@ -719,7 +1158,7 @@ public class CoreWorkload extends Workload
 		if (!readallfields)
 		{
 			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+			String fieldname=fieldnames.get(fieldchooser.nextInt());
 
 			fields=new HashSet<String>();
 			fields.add(fieldname);
@@ -731,7 +1170,7 @@ public class CoreWorkload extends Workload
 	public void doTransactionUpdate(DB db)
 	{
 		//choose a random key
-		int keynum = nextKeynum();
+		long keynum = nextKeynum(Operation.UPDATE);
 
 		String keyname=buildKeyName(keynum);
 
@@ -751,10 +1190,108 @@ public class CoreWorkload extends Workload
 		db.update(table,keyname,values);
 	}
 
+	/**
+	 * Claim a key to delete. The key is marked deleted before the delete is issued, so no other operation picks
+	 * it from then on.
+	 *
+	 * @return The key, or -1 if every key tried was already deleted.
+	 */
+	long nextDeleteKeynum()
+	{
+		for (int i=0; i<DELETED_KEY_RETRIES; i++)
+		{
+			long keynum=nextKeynum(Operation.DELETE);
+			if (deletedkeys.add(keynum))
+			{
+				return keynum;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Record the outcome of a delete. If the record may still be there the key is usable again; otherwise, with
+	 * churn, it waits to be re-inserted.
+	 */
+	void deleted(long keynum, Status status)
+	{
+		if (!status.equals(Status.OK) && !status.equals(Status.NOT_FOUND))
+		{
+			deletedkeys.remove(keynum);
+		}
+		else if (deletechurn)
+		{
+			reinsertkeys.add(keynum);
+		}
+	}
+
+	public void doTransactionDelete(DB db)
+	{
+		//choose a random key that exists
+		long keynum=nextDeleteKeynum();
+		if (keynum<0)
+		{
+			return;
+		}
+
+		Status status=Status.ERROR;
+		try {
+			status=db.delete(table,buildKeyName(keynum));
+		} finally {
+			deleted(keynum,status);
+		}
+	}
+
+	/**
+	 * Record the outcome of a re-insert. Once the record is back the key is usable again; otherwise it waits to be
+	 * re-inserted once more.
+	 */
+	void reinserted(long keynum, Status status)
+	{
+		if (status.equals(Status.OK))
+		{
+			deletedkeys.remove(keynum);
+		}
+		else
+		{
+			reinsertkeys.add(keynum);
+		}
+	}
+
+	/**
+	 * Re-insert the oldest deleted key, if churn is on and one is waiting.
+	 *
+	 * @return True if a re-insert was issued.
+	 */
+	boolean doTransactionReinsert(DB db)
+	{
+		Long keynum=deletechurn ? reinsertkeys.poll() : null;
+		if (keynum==null)
+		{
+			return false;
+		}
+
+		Status status=Status.ERROR;
+		try {
+			String dbkey = buildKeyName(keynum);
+
+			HashMap<String, ByteIterator> values = buildValues(dbkey);
+			status=db.insert(table,dbkey,values);
+		} finally {
+			reinserted(keynum,status);
+		}
+		return true;
+	}
+
 	public void doTransactionInsert(DB db)
 	{
+		if (doTransactionReinsert(db))
+		{
+			return;
+		}
+
 		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
+		long keynum=transactioninsertkeysequence.nextLong();
 
 		try {
 			String dbkey = buildKeyName(keynum);
@@ -765,4 +1302,252 @@ public class CoreWorkload extends Workload
 			transactioninsertkeysequence.acknowledge(keynum);
 		}
 	}
+
+	public void doTransactionReadAsync(AsyncDB db, final AsyncCallback callback)
+	{
+		//choose a random key
+		long keynum = nextKeynum(Operation.READ);
+
+		final String keyname = buildKeyName(keynum);
+
+		HashSet<String> fields=null;
+
+		if (!readallfields)
+		{
+			//read a random field
+			String fieldname=fieldnames.get(fieldchooser.nextInt());
+
+			fields=new HashSet<String>();
+			fields.add(fieldname);
+		} else if (dataintegrity) {
+			// pass the full field list if dataintegrity is on for verification
+			fields = new HashSet<String>(fieldnames);
+		}
+
+		final HashMap<String,ByteIterator> cells =
+		    new HashMap<String,ByteIterator>();
+
+		if (!dataintegrity)
+		{
+			db.read(table,keyname,fields,cells,callback);
+			return;
+		}
+
+		db.read(table,keyname,fields,cells,new AsyncCallback()
+		{
+			@Override
+			public void completed(Status status)
+			{
+				verifyRow(keyname, cells);
+				callback.completed(status);
+			}
+		});
+	}
+
+	public void doTransactionReadModifyWriteAsync(final AsyncDB db, final AsyncCallback callback)
+	{
+		//choose a random key
+		long keynum = nextKeynum(Operation.READMODIFYWRITE);
+
+		final String keyname = buildKeyName(keynum);
+
+		HashSet<String> fields=null;
+
+		if (!readallfields)
+		{
+			//read a random field
+			String fieldname=fieldnames.get(fieldchooser.nextInt());
+
+			fields=new HashSet<String>();
+			fields.add(fieldname);
+		}
+
+		final HashMap<String,ByteIterator> values;
+
+		if (writeallfields)
+		{
+		   //new data for all the fields
+		   values = buildValues(keyname);
+		}
+		else
+		{
+		   //update a random field
+		   values = buildSingleValue(keyname);
+		}
+
+		//do the transaction: issue the update once the read has completed
+
+		final HashMap<String,ByteIterator> cells =
+		    new HashMap<String,ByteIterator>();
+
+		final long ist=_measurements.getIntendedtartTimeNs();
+		final long st = System.nanoTime();
+		db.read(table,keyname,fields,cells,new AsyncCallback()
+		{
+			@Override
+			public void completed(Status readstatus)
+			{
+				db.update(table,keyname,values,new AsyncCallback()
+				{
+					@Override
+					public void completed(Status updatestatus)
+					{
+						long en=System.nanoTime();
+
+						if (dataintegrity) {
+							verifyRow(keyname, cells);
+						}
+
+						_measurements .measureNanos("READ-MODIFY-WRITE", en-st);
+						_measurements .measureIntendedNanos("READ-MODIFY-WRITE", en-ist);
+						callback.completed(updatestatus);
+					}
+				});
+			}
+		});
+	}
+
+	public void doTransactionScanAsync(AsyncDB db, AsyncCallback callback)
+	{
+		//choose a random key
+		long keynum = nextKeynum(Operation.SCAN);
+
+		String startkeyname = buildKeyName(keynum);
+
+		//choose a random scan length
+		int len=scanlength.nextInt();
+
+		HashSet<String> fields=null;
+
+		if (!readallfields)
+		{
+			//read a random field
+			String fieldname=fieldnames.get(fieldchooser.nextInt());
+
+			fields=new HashSet<String>();
+			fields.add(fieldname);
+		}
+
+		db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,ByteIterator>>(),callback);
+	}
+
+	public void doTransactionUpdateAsync(AsyncDB db, AsyncCallback callback)
+	{
+		//choose a random key
+		long keynum = nextKeynum(Operation.UPDATE);
+
+		String keyname=buildKeyName(keynum);
+
+		HashMap<String,ByteIterator> values;
+
+		if (writeallfields)
+		{
+		   //new data for all the fields
+		   values = buildValues(keyname);
+		}
+		else
+		{
+		   //update a random field
+		   values = buildSingleValue(keyname);
+		}
+
+		db.update(table,keyname,values,callback);
+	}
+
+	public void doTransactionDeleteAsync(AsyncDB db, final AsyncCallback callback)
+	{
+		//choose a random key that exists
+		final long keynum=nextDeleteKeynum();
+		if (keynum<0)
+		{
+			callback.completed(Status.OK);
+			return;
+		}
+
+		boolean issued=false;
+		try {
+			db.delete(table,buildKeyName(keynum),new AsyncCallback()
+			{
+				@Override
+				public void completed(Status status)
+				{
+					deleted(keynum,status);
+					callback.completed(status);
+				}
+			});
+			issued=true;
+		} finally {
+			if (!issued) {
+				deleted(keynum,Status.ERROR);
+			}
+		}
+	}
+
+	/**
+	 * Re-insert the oldest deleted key against an asynchronous DB, if churn is on and one is waiting.
+	 *
+	 * @return True if a re-insert was issued.
+	 */
+	boolean doTransactionReinsertAsync(AsyncDB db, final AsyncCallback callback)
+	{
+		final Long keynum=deletechurn ? reinsertkeys.poll() : null;
+		if (keynum==null)
+		{
+			return false;
+		}
+
+		boolean issued=false;
+		try {
+			String dbkey = buildKeyName(keynum);
+
+			HashMap<String, ByteIterator> values = buildValues(dbkey);
+			db.insert(table,dbkey,values,new AsyncCallback()
+			{
+				@Override
+				public void completed(Status status)
+				{
+					reinserted(keynum,status);
+					callback.completed(status);
+				}
+			});
+			issued=true;
+		} finally {
+			if (!issued) {
+				reinserted(keynum,Status.ERROR);
+			}
+		}
+		return true;
+	}
+
+	public void doTransactionInsertAsync(AsyncDB db, final AsyncCallback callback)
+	{
+		if (doTransactionReinsertAsync(db, callback))
+		{
+			return;
+		}
+
+		//choose the next key
+		final long keynum=transactioninsertkeysequence.nextLong();
+
+		boolean issued=false;
+		try {
+			String dbkey = buildKeyName(keynum);
+
+			HashMap<String, ByteIterator> values = buildValues(dbkey);
+			db.insert(table,dbkey,values,new AsyncCallback()
+			{
+				@Override
+				public void completed(Status status)
+				{
+					transactioninsertkeysequence.acknowledge(keynum);
+					callback.completed(status);
+				}
+			});
+			issued=true;
+		} finally {
+			if (!issued) {
+				transactioninsertkeysequence.acknowledge(keynum);
+			}
+		}
+	}
 }
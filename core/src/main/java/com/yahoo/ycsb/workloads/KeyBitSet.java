@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of key numbers, kept as bits in pages that are created as keys are
+ * added. It takes at most one bit per key of the key space, however many keys
+ * are added, and adding, removing and looking up keys are lock-free.
+ *
+ * Pages are kept once created, so the memory used follows the spread of the
+ * keys that were ever added rather than how many are in the set now.
+ */
+final class KeyBitSet
+{
+	/** The number of keys covered by one page of bits. 2^16 = {@value} */
+	static final int PAGE_SIZE = 1 << 16;
+
+	private static final int PAGE_SHIFT = 16;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+	/** Pages of bits, by page number. */
+	private final ConcurrentMap<Long, AtomicLongArray> pages = new ConcurrentHashMap<Long, AtomicLongArray>();
+
+	/**
+	 * @return True if the key was not in the set.
+	 */
+	boolean add(long key)
+	{
+		AtomicLongArray page = pages.get(key >> PAGE_SHIFT);
+		if (page == null) {
+			AtomicLongArray created = new AtomicLongArray(PAGE_SIZE / 64);
+			page = pages.putIfAbsent(key >> PAGE_SHIFT, created);
+			if (page == null) {
+				page = created;
+			}
+		}
+		int bit = (int) (key & PAGE_MASK);
+		long mask = 1L << bit;
+		while (true) {
+			long word = page.get(bit >> 6);
+			if ((word & mask) != 0) {
+				return false;
+			}
+			if (page.compareAndSet(bit >> 6, word, word | mask)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return True if the key was in the set.
+	 */
+	boolean remove(long key)
+	{
+		AtomicLongArray page = pages.get(key >> PAGE_SHIFT);
+		if (page == null) {
+			return false;
+		}
+		int bit = (int) (key & PAGE_MASK);
+		long mask = 1L << bit;
+		while (true) {
+			long word = page.get(bit >> 6);
+			if ((word & mask) == 0) {
+				return false;
+			}
+			if (page.compareAndSet(bit >> 6, word, word & ~mask)) {
+				return true;
+			}
+		}
+	}
+
+	boolean contains(long key)
+	{
+		AtomicLongArray page = pages.get(key >> PAGE_SHIFT);
+		if (page == null) {
+			return false;
+		}
+		int bit = (int) (key & PAGE_MASK);
+		return (page.get(bit >> 6) & (1L << bit)) != 0;
+	}
+
+	/**
+	 * Empty the set. Not safe to call while other threads use it.
+	 */
+	void clear()
+	{
+		pages.clear();
+	}
+}
@@ -36,4 +36,24 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  @Test
+  public void testRandomValuePool() {
+    RandomValuePool pool = new RandomValuePool(1000);
+    ByteIterator itor = pool.next(100);
+    assertEquals(100, itor.bytesLeft());
+    byte[] bytes = itor.toArray();
+    assertEquals(100, bytes.length);
+    for (byte b : bytes) {
+      assertTrue(b >= ' ' && b <= ' ' + 95);
+    }
+    assertFalse(itor.hasNext());
+
+    itor = pool.next(10);
+    itor.nextByte();
+    assertEquals(9, ((ByteBufferByteIterator) itor).toByteBuffer().remaining());
+    assertEquals(0, itor.bytesLeft());
+
+    assertEquals(2000, pool.next(2000).toArray().length);
+  }
 }
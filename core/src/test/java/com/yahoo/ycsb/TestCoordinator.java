@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.measurements.Measurements;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestCoordinator {
+  private static final int WORKERS = 3;
+
+  @Test
+  public void testSplit() {
+    assertTrue(Arrays.equals(new long[] {0, 333, 666, 1000}, Coordinator.split(0, 1000, 3)));
+    assertTrue(Arrays.equals(new long[] {10, 10, 11, 12}, Coordinator.split(10, 2, 3)));
+  }
+
+  private static Properties hdrProperties() {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    return props;
+  }
+
+  /**
+   * A worker recording into measurements of its own, as a separate process would.
+   */
+  private static class Worker extends Thread {
+    final int port;
+    final int reads;
+    final Measurements measurements = new Measurements(hdrProperties());
+    volatile Properties assignment;
+    volatile Exception failure;
+
+    Worker(int port, int reads) {
+      this.port = port;
+      this.reads = reads;
+    }
+
+    @Override
+    public void run() {
+      try {
+        CoordinatorConnection connection = CoordinatorConnection.connect("localhost:" + port, measurements);
+        assignment = connection.receiveAssignment();
+        connection.awaitStart();
+
+        // latencies discarded before the first report are never sent
+        measurements.measure("READ", 1);
+        measurements.reset();
+        for (int i = 0; i < reads; i++) {
+          measurements.measure("READ", 100 + i);
+        }
+        connection.report(Coordinator.INTERVAL);
+        for (int i = 0; i < reads; i++) {
+          measurements.measure("READ", 200 + i);
+        }
+        connection.report(Coordinator.INTERVAL);
+        // a reset after reports were sent, e.g. the end of a warm-up, starts the diffs over
+        measurements.reset();
+        for (int i = 0; i < 2 * reads; i++) {
+          measurements.measure("READ", 300 + i);
+        }
+        connection.finish(1000);
+      } catch (Exception e) {
+        failure = e;
+      }
+    }
+  }
+
+  @Test(timeOut = 30000)
+  public void testCoordinatesWorkersOverLocalhost() throws Exception {
+    Properties props = hdrProperties();
+    props.setProperty(Coordinator.WORKERS_PROPERTY, String.valueOf(WORKERS));
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "10");
+    props.setProperty(Client.TARGET_PROPERTY, "100");
+    Measurements merged = new Measurements(props);
+
+    ServerSocket server = new ServerSocket(0);
+    List<Worker> workers = new ArrayList<Worker>();
+    for (int i = 0; i < WORKERS; i++) {
+      Worker worker = new Worker(server.getLocalPort(), 10 * (i + 1));
+      workers.add(worker);
+      worker.start();
+    }
+    List<Coordinator.Worker> coordinated = Coordinator.coordinate(props, server, merged);
+    assertTrue(server.isClosed());
+
+    long recorded = 0;
+    long discarded = 0;
+    for (Worker worker : workers) {
+      worker.join();
+      assertNull(worker.failure);
+      recorded += worker.measurements.getHdrHistogramSnapshots().get("READ").getTotalCount();
+      discarded += 2 * worker.reads;
+    }
+    for (Coordinator.Worker worker : coordinated) {
+      assertFalse(worker._failed);
+      assertEquals(1000, worker._runtime);
+    }
+
+    // the sum of the workers' histograms, plus what they had reported before their last reset
+    assertEquals(2 * (10 + 20 + 30), recorded);
+    assertEquals(recorded + discarded, merged.getHdrHistogramSnapshots().get("READ").getTotalCount());
+
+    // the slices of the key space cover it once, in order of the workers
+    Collections.sort(workers, new Comparator<Worker>() {
+      @Override
+      public int compare(Worker a, Worker b) {
+        return Long.compare(Long.parseLong(a.assignment.getProperty(Workload.INSERT_START_PROPERTY)),
+            Long.parseLong(b.assignment.getProperty(Workload.INSERT_START_PROPERTY)));
+      }
+    });
+    long[] starts = {0, 333, 666};
+    long[] counts = {333, 333, 334};
+    long operations = 0;
+    long target = 0;
+    for (int i = 0; i < WORKERS; i++) {
+      Properties assignment = workers.get(i).assignment;
+      assertEquals(starts[i], Long.parseLong(assignment.getProperty(Workload.INSERT_START_PROPERTY)));
+      assertEquals(counts[i], Long.parseLong(assignment.getProperty(Client.INSERT_COUNT_PROPERTY)));
+      operations += Long.parseLong(assignment.getProperty(Client.OPERATION_COUNT_PROPERTY));
+      target += Long.parseLong(assignment.getProperty(Client.TARGET_PROPERTY));
+    }
+    assertEquals(10, operations);
+    assertEquals(100, target);
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestKeyEncoder {
+
+  @Test
+  public void stringKeysMatchTheTraditionalFormat() {
+    KeyEncoder hashed = new KeyEncoder("user", KeyEncoder.STRING, true);
+    KeyEncoder ordered = new KeyEncoder("user", KeyEncoder.STRING, false);
+    long[] keynums = {0, 1, 9, 10, 99, 12345, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE};
+    for (long keynum : keynums) {
+      assertEquals("user" + Utils.hash(keynum), hashed.encode(keynum));
+      assertEquals("user" + keynum, ordered.encode(keynum));
+    }
+  }
+
+  @Test
+  public void bytesMatchTheString() {
+    KeyEncoder encoder = new KeyEncoder("user", KeyEncoder.STRING, true);
+    byte[] dest = new byte[encoder.maxLength() + 3];
+    int length = encoder.encode(42, dest, 3);
+    assertEquals(encoder.encode(42), new String(dest, 3, length));
+  }
+
+  @Test
+  public void binaryKeysAreFixedWidthAndOrdered() {
+    KeyEncoder encoder = new KeyEncoder("k", KeyEncoder.BINARY, false);
+    String low = encoder.encode(255);
+    String high = encoder.encode(256);
+    assertEquals(9, low.length());
+    assertEquals(9, high.length());
+    assertTrue(low.compareTo(high) < 0);
+
+    byte[] dest = new byte[encoder.maxLength()];
+    assertEquals(9, encoder.encode(0x0102030405060708L, dest, 0));
+    assertEquals('k', dest[0]);
+    for (int i = 1; i <= 8; i++) {
+      assertEquals(i, dest[i]);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestRateLimiter {
+  private static final long MS = 1000000L;
+
+  @Test
+  public void testPermitsFollowTheRate() {
+    RateLimiter limiter = new RateLimiter(TargetProfile.constant(1000), 0);
+    long first = limiter.acquire();
+    // claimed well ahead of their time, so spaced exactly by the rate
+    for (int i = 1; i <= 100; i++) {
+      assertEquals(first + i * MS, limiter.acquire());
+    }
+    assertEquals(101, limiter.getIssuedPermits());
+    assertEquals(0, limiter.getLatePermits());
+  }
+
+  @Test
+  public void testUnusedCapacityIsForfeitedBeyondTheBurst() throws InterruptedException {
+    RateLimiter limiter = new RateLimiter(TargetProfile.constant(1000), 10);
+    limiter.acquire();
+    Thread.sleep(100);
+    long before = System.nanoTime();
+    long permit = limiter.acquire();
+    // caught up on at most 10 permits of the capacity left unused
+    assertTrue(permit >= before - 10 * MS);
+    assertTrue(permit < before);
+    assertEquals(1, limiter.getLatePermits());
+  }
+
+  @Test
+  public void testThreadsShareOneSchedule() throws InterruptedException {
+    final RateLimiter limiter = new RateLimiter(TargetProfile.constant(1000), 0);
+    final List<Long> permits = Collections.synchronizedList(new ArrayList<Long>());
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 250; i++) {
+            permits.add(limiter.acquire());
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(1000, limiter.getIssuedPermits());
+    Collections.sort(permits);
+    for (int i = 1; i < permits.size(); i++) {
+      assertEquals(MS, permits.get(i) - permits.get(i - 1));
+    }
+  }
+}
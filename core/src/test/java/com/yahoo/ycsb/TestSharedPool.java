@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestSharedPool {
+
+  static class CountingFactory implements SharedPool.Factory<Integer> {
+    final AtomicInteger created = new AtomicInteger();
+    final AtomicInteger closed = new AtomicInteger();
+
+    @Override
+    public Integer create() {
+      return created.incrementAndGet();
+    }
+
+    @Override
+    public void close(Integer resource) {
+      closed.incrementAndGet();
+    }
+  }
+
+  @Test
+  public void testSharedAndReusedUntilLastRelease() throws DBException {
+    Properties props = new Properties();
+    props.setProperty(SharedPool.POOL_SIZE_PROPERTY, "2");
+    CountingFactory factory = new CountingFactory();
+
+    SharedPool<Integer> first = SharedPool.acquire("test", props, factory);
+    SharedPool<Integer> second = SharedPool.acquire("test", props, new CountingFactory());
+    assertSame(first, second);
+
+    Integer a = first.borrow();
+    first.giveBack(a);
+    assertEquals(a, second.borrow());
+    Integer b = first.borrow();
+    first.giveBack(a);
+    second.giveBack(b);
+    assertEquals(2, factory.created.get());
+
+    first.release();
+    assertEquals(0, factory.closed.get());
+    second.release();
+    assertEquals(2, factory.closed.get());
+
+    SharedPool<Integer> third = SharedPool.acquire("test", props, factory);
+    assertNotSame(first, third);
+    third.release();
+  }
+}
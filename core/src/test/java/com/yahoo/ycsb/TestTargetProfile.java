@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestTargetProfile {
+  private static final long SEC = 1000000000L;
+
+  @Test
+  public void testSegmentsRunInSequenceAndHoldFinalRate() {
+    TargetProfile profile = TargetProfile.parse(
+        "ramp:1000:2000:10; step:100:100:1:3; sine:500:200:4:4; burst:10:90:2:0.5:2");
+    profile.start(0);
+
+    assertEquals(1000.0, profile.rateAt(0), 1e-9);
+    assertEquals(1500.0, profile.rateAt(5 * SEC), 1e-9);
+    assertEquals(100.0, profile.rateAt(10 * SEC), 1e-9);
+    assertEquals(300.0, profile.rateAt(12 * SEC + SEC / 2), 1e-9);
+    assertEquals(700.0, profile.rateAt(14 * SEC), 1e-6);
+    assertEquals(90.0, profile.rateAt(17 * SEC + SEC / 4), 1e-9);
+    assertEquals(10.0, profile.rateAt(17 * SEC + SEC), 1e-9);
+    assertEquals(10.0, profile.rateAt(100 * SEC), 1e-9);
+  }
+
+  @Test
+  public void testNextArrivalSkipsIdleSegments() {
+    TargetProfile profile = TargetProfile.parse("constant:0:1;constant:1000:1");
+    profile.start(0);
+
+    long next = profile.nextArrival(0, 1.0, false);
+    assertTrue(next >= SEC);
+    assertTrue(next <= SEC + SEC / 1000 + 1000000);
+    assertEquals(next + SEC / 500, profile.nextArrival(next, 0.5, false));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRejectsUnknownSegment() {
+    TargetProfile.parse("square:1:2:3");
+  }
+}
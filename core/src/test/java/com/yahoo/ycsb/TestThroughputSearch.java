@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestThroughputSearch {
+  /**
+   * Run a search whose trials pass up to the given throughput, without running any clients.
+   */
+  private static ThroughputSearch search(Properties props, final double sustainable, Workload workload) {
+    props.setProperty(ThroughputSearch.LATENCY_PROPERTY, "1000");
+    Properties mprops = new Properties();
+    mprops.setProperty(Measurements.MEASUREMENT_TYPE_PROPERTY, "hdrhistogram");
+    ThroughputSearch search = new ThroughputSearch(new AdjustableTargetProfile(1), props,
+        new ArrayList<ClientThread>(), new CountDownLatch(1), workload, new Measurements(mprops)) {
+      @Override
+      Trial runTrial(double target) {
+        boolean passed = target <= sustainable;
+        return new Trial(target, target, passed ? 500 : 2000, passed);
+      }
+    };
+    search.run();
+    return search;
+  }
+
+  private static Workload idle() {
+    return new Workload() {
+      @Override
+      public boolean doInsert(DB db, Object threadstate) {
+        return false;
+      }
+
+      @Override
+      public boolean doTransaction(DB db, Object threadstate) {
+        return false;
+      }
+    };
+  }
+
+  private static List<Double> targets(ThroughputSearch search) {
+    List<Double> targets = new ArrayList<Double>();
+    for (ThroughputSearch.Trial trial : search.getTrials()) {
+      targets.add(trial.target);
+    }
+    return targets;
+  }
+
+  @Test
+  public void testDoublesThenBisects() {
+    Workload workload = idle();
+    ThroughputSearch search = search(new Properties(), 3000, workload);
+
+    List<Double> expected = new ArrayList<Double>();
+    for (double target : new double[] {1000, 2000, 4000, 3000, 3500, 3250, 3125}) {
+      expected.add(target);
+    }
+    assertEquals(expected, targets(search));
+    assertEquals(3000.0, search.getSustainableThroughput(), 0);
+    assertTrue(workload.isStopRequested());
+  }
+
+  @Test
+  public void testStopsAtMax() {
+    Properties props = new Properties();
+    props.setProperty(ThroughputSearch.MAX_PROPERTY, "1500");
+    ThroughputSearch search = search(props, 10000, idle());
+
+    assertEquals(2, search.getTrials().size());
+    assertEquals(1500.0, search.getSustainableThroughput(), 0);
+  }
+
+  @Test
+  public void testStopsAfterMaxTrials() {
+    Properties props = new Properties();
+    props.setProperty(ThroughputSearch.MAX_TRIALS_PROPERTY, "3");
+    props.setProperty(ThroughputSearch.TOLERANCE_PROPERTY, "0");
+    ThroughputSearch search = search(props, 1700, idle());
+
+    assertEquals(3, search.getTrials().size());
+    assertEquals(1500.0, search.getSustainableThroughput(), 0);
+  }
+
+  @Test
+  public void testBisectsDownFromFailingStart() {
+    Properties props = new Properties();
+    props.setProperty(ThroughputSearch.TOLERANCE_PROPERTY, "0.5");
+    ThroughputSearch search = search(props, 10, idle());
+
+    // halved from 1000 until 7.8125 passes, which is within the tolerance of 15.625
+    assertEquals(8, search.getTrials().size());
+    assertFalse(search.getTrials().get(0).passed);
+    assertEquals(7.8125, search.getSustainableThroughput(), 0);
+  }
+}
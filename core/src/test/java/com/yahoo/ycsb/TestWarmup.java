@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+
+import com.yahoo.ycsb.measurements.MeasurementHandle;
+import com.yahoo.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.exported;
+import static org.testng.AssertJUnit.*;
+
+public class TestWarmup {
+  @Test
+  public void testEndsAfterOps() {
+    Measurements mm = new Measurements(new Properties());
+    Warmup warmup = new Warmup(0, 2, mm);
+    warmup.start();
+    assertTrue(warmup.isActive());
+    assertTrue(mm.isWarmingUp());
+    warmup.opDone();
+    assertTrue(warmup.isActive());
+    warmup.opDone();
+    assertFalse(warmup.isActive());
+    assertFalse(mm.isWarmingUp());
+    assertTrue(warmup.getEndTimeMillis() > 0);
+  }
+
+  @Test
+  public void testOperationsCountTowardsWhenTheyWereIssued() throws Exception {
+    Measurements mm = new Measurements(new Properties());
+    OperationReporter reporter = new OperationReporter(mm);
+    reporter.init(new Properties(), "TestWarmup");
+    MeasurementHandle read = mm.getHandle("READ");
+
+    Warmup warmup = new Warmup(0, 1, mm);
+    warmup.start();
+    boolean issuedInWarmup = mm.isWarmingUp();
+    reporter.report(read, Status.OK, issuedInWarmup, 0, 0, 1000);
+    warmup.opDone();
+    // issued during the warm-up, completed after it
+    reporter.report(read, Status.OK, issuedInWarmup, 0, 0, 2000);
+    reporter.report(read, Status.NOT_FOUND, issuedInWarmup, 0, 0, 3000);
+    // issued after it
+    reporter.report(read, Status.OK, mm.isWarmingUp(), 0, 0, 5000);
+
+    assertEquals(2.0, exported(mm, "WARMUP-READ", "Operations"), 0);
+    assertEquals(2.0, exported(mm, "WARMUP-READ", "Return=OK"), 0);
+    assertEquals(1.0, exported(mm, "WARMUP-READ", "Return=NOT_FOUND"), 0);
+    assertEquals(1.0, exported(mm, "WARMUP-READ-NOT_FOUND", "Operations"), 0);
+    assertEquals(1.0, exported(mm, "READ", "Operations"), 0);
+    assertEquals(5.0, exported(mm, "READ", "MaxLatency(us)"), 0);
+    assertEquals(0.0, exported(mm, "READ", "Return=NOT_FOUND"), 0);
+  }
+}
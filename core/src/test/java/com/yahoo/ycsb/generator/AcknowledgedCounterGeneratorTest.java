@@ -16,6 +16,8 @@
  */
 package com.yahoo.ycsb.generator;
 
+import static org.testng.Assert.assertEquals;
+
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -32,7 +34,7 @@ public class AcknowledgedCounterGeneratorTest {
    */
   @Test
   public void testIncrementPastIntegerMaxValue() {
-    final long toTry = AcknowledgedCounterGenerator.WINDOW_SIZE * 3;
+    final long toTry = AcknowledgedCounterGenerator.PAGE_SIZE * 3;
 
     AcknowledgedCounterGenerator generator =
         new AcknowledgedCounterGenerator(Integer.MAX_VALUE - 1000);
@@ -58,4 +60,64 @@ public class AcknowledgedCounterGeneratorTest {
     }
 
   }
+
+  /**
+   * Test that more values than the old fixed window can be outstanding at once.
+   */
+  @Test
+  public void testManyUnacknowledged() {
+    int count = (1 << 20) + 1000;
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+    for (int i = 0; i < count; i++) {
+      generator.nextInt();
+    }
+    for (int i = count - 1; i > 0; i--) {
+      generator.acknowledge(i);
+    }
+    assertEquals(generator.lastInt(), -1);
+    generator.acknowledge(0);
+    assertEquals(generator.lastInt(), count - 1);
+  }
+
+  /**
+   * Test that lastInt() reaches the last value when threads acknowledge concurrently.
+   */
+  @Test
+  public void testConcurrentAcknowledgement() throws InterruptedException {
+    final int perThread = 200000;
+    final AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(0);
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perThread; i++) {
+            generator.acknowledge(generator.nextInt());
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(generator.lastInt(), threads.length * perThread - 1);
+  }
+
+  /**
+   * Test that values beyond the int range are generated and acknowledged as longs.
+   */
+  @Test
+  public void testLongValues() {
+    long start = 3L * Integer.MAX_VALUE;
+    AcknowledgedCounterGenerator generator = new AcknowledgedCounterGenerator(start);
+    assertEquals(generator.lastLong(), start - 1);
+    long first = generator.nextLong();
+    long second = generator.nextLong();
+    assertEquals(first, start);
+    generator.acknowledge(second);
+    assertEquals(generator.lastLong(), start - 1);
+    generator.acknowledge(first);
+    assertEquals(generator.lastLong(), second);
+  }
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the MovingHotspotGenerator class.
+ */
+public class MovingHotspotGeneratorTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void testStepAndSlideOffsets() {
+    MovingHotspotGenerator step = new MovingHotspotGenerator(0, 999, 0.2, 0.8,
+        MovingHotspotGenerator.Movement.STEP, 10, 0.3);
+    assertEquals(step.offsetAt(0), 0);
+    assertEquals(step.offsetAt(9 * SECOND), 0);
+    assertEquals(step.offsetAt(10 * SECOND), 300);
+    assertEquals(step.offsetAt(40 * SECOND), 200);
+
+    MovingHotspotGenerator slide = new MovingHotspotGenerator(0, 999, 0.2, 0.8,
+        MovingHotspotGenerator.Movement.SLIDE, 10, 0.3);
+    assertEquals(slide.offsetAt(5 * SECOND), 150);
+    assertEquals(slide.offsetAt(40 * SECOND), 200);
+  }
+
+  @Test
+  public void testValuesStayInRange() {
+    MovingHotspotGenerator gen = new MovingHotspotGenerator(100, 199, 0.1, 1.0,
+        MovingHotspotGenerator.Movement.RANDOM, 1, 0);
+    for (int i = 0; i < 10000; i++) {
+      long value = gen.nextLong();
+      // all operations go to the hot set, which starts at the bottom of the range
+      assertTrue(value >= 100 && value < 110, "out of hot set: " + value);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the OperationChooser class.
+ */
+public class OperationChooserTest {
+
+  enum Op { A, B, C, D }
+
+  private static int[] counts(OperationChooser<Op> chooser, int samples) {
+    int[] counts = new int[Op.values().length];
+    for (int i = 0; i < samples; i++) {
+      counts[chooser.next().ordinal()]++;
+    }
+    return counts;
+  }
+
+  @Test
+  public void testEmptyChooserReturnsNull() {
+    assertNull(new OperationChooser<Op>(Op.class).next());
+  }
+
+  @Test
+  public void testFrequenciesFollowWeights() {
+    OperationChooser<Op> chooser = new OperationChooser<Op>(Op.class);
+    chooser.setWeight(Op.A, 0.5);
+    chooser.setWeight(Op.B, 0.3);
+    chooser.setWeight(Op.D, 0.2);
+
+    int samples = 200000;
+    int[] counts = counts(chooser, samples);
+    assertEquals(counts[Op.A.ordinal()] / (double) samples, 0.5, 0.01);
+    assertEquals(counts[Op.B.ordinal()] / (double) samples, 0.3, 0.01);
+    assertEquals(counts[Op.C.ordinal()], 0);
+    assertEquals(counts[Op.D.ordinal()] / (double) samples, 0.2, 0.01);
+  }
+
+  @Test
+  public void testWeightChange() {
+    OperationChooser<Op> chooser = new OperationChooser<Op>(Op.class);
+    chooser.setWeight(Op.A, 1);
+    chooser.setWeight(Op.C, 1);
+    chooser.setWeight(Op.A, 0);
+
+    assertEquals(chooser.getProbability(Op.C), 1.0);
+    int[] counts = counts(chooser, 1000);
+    assertEquals(counts[Op.C.ordinal()], 1000);
+  }
+}
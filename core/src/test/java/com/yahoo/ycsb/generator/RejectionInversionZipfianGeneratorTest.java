@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the RejectionInversionZipfianGenerator class.
+ */
+public class RejectionInversionZipfianGeneratorTest {
+
+  private static void checkFrequencies(double exponent) {
+    int items = 10;
+    RejectionInversionZipfianGenerator gen = new RejectionInversionZipfianGenerator(items, exponent);
+    double norm = 0;
+    for (int i = 1; i <= items; i++) {
+      norm += 1 / Math.pow(i, exponent);
+    }
+
+    int samples = 200000;
+    int[] counts = new int[items];
+    for (int i = 0; i < samples; i++) {
+      counts[gen.nextInt()]++;
+    }
+    for (int i = 0; i < items; i++) {
+      double expected = 1 / Math.pow(i + 1, exponent) / norm;
+      assertEquals(counts[i] / (double) samples, expected, 0.01, "item " + i + " with exponent " + exponent);
+    }
+  }
+
+  @Test
+  public void testFrequenciesMatchZipfLaw() {
+    checkFrequencies(0.5);
+    checkFrequencies(0.99);
+    checkFrequencies(1.0);
+    checkFrequencies(2.0);
+  }
+
+  private static double exactMean(long items, double exponent) {
+    double weights = 0;
+    double weighted = 0;
+    for (long i = items; i >= 1; i--) {
+      double w = Math.pow(i, -exponent);
+      weights += w;
+      weighted += (i - 1) * w;
+    }
+    return weighted / weights;
+  }
+
+  @Test
+  public void testMean() {
+    assertEquals(new RejectionInversionZipfianGenerator(1, 0.99).mean(), 0.0, 1e-12);
+    assertEquals(new RejectionInversionZipfianGenerator(5, 15, 1.0).mean(), 5 + exactMean(11, 1.0), 1e-9);
+    // large enough for the approximated tail of the harmonic numbers
+    long items = 3 * RejectionInversionZipfianGenerator.HARMONIC_TERMS;
+    for (double exponent : new double[] {0.5, 0.99, 1.0, 2.0}) {
+      double exact = exactMean(items, exponent);
+      assertEquals(new RejectionInversionZipfianGenerator(items, exponent).mean(), exact, exact * 1e-9,
+          "exponent " + exponent);
+    }
+  }
+
+  @Test
+  public void testHugeKeySpaceAndGrowingItemCount() {
+    long items = 100L * 1000 * 1000 * 1000;
+    RejectionInversionZipfianGenerator gen = new RejectionInversionZipfianGenerator(10, 20, 0.8);
+    for (int i = 0; i < 1000; i++) {
+      long next = gen.nextLong(items);
+      assertTrue(next >= 10 && next < 10 + items, "out of range: " + next);
+    }
+    for (int i = 0; i < 1000; i++) {
+      long next = gen.nextLong();
+      assertTrue(next >= 10 && next <= 20, "out of range: " + next);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Reads back what measurements export, for tests.
+ */
+public final class ExportedMeasurements {
+  private ExportedMeasurements() {
+  }
+
+  /**
+   * @return Everything the measurements export, in the text format.
+   */
+  public static String export(Measurements mm) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(out);
+    mm.exportMeasurements(exporter);
+    exporter.close();
+    return out.toString("UTF-8");
+  }
+
+  /**
+   * @return The exported value of one measurement of a metric, or 0 if it wasn't exported.
+   */
+  public static double exported(Measurements mm, String metric, String measurement) throws IOException {
+    String prefix = "[" + metric + "], " + measurement + ", ";
+    for (String line : export(mm).split("\n")) {
+      if (line.startsWith(prefix)) {
+        return Double.parseDouble(line.substring(prefix.length()).trim());
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.export;
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.exported;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestEventSeries {
+  @Test
+  public void testEventsAreKeptApartFromLatencies() throws Exception {
+    for (String interval : new String[] {"op", "intended", "both"}) {
+      Properties props = new Properties();
+      props.put(Measurements.MEASUREMENT_INTERVAL, interval);
+      Measurements mm = new Measurements(props);
+      mm.startWarmup();
+      mm.recordEvent("SHIFT", 0);
+      mm.endWarmup();
+      mm.recordEvent("SHIFT", 5000);
+
+      String out = export(mm);
+      assertEquals(out, 2, exported(mm, "SHIFT", "Events"), 0);
+      assertTrue(out, out.contains(", 5000.0\n"));
+      // no latencies or warm-up measurements were recorded for them
+      assertFalse(out, out.contains("Operations"));
+      assertFalse(out, out.contains(Measurements.WARMUP_PREFIX));
+      assertTrue(mm.getSummary(), mm.getSummary().contains("[SHIFT Events=2]"));
+
+      mm.reset();
+      assertFalse(export(mm).contains("SHIFT"));
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+
+import com.yahoo.ycsb.Status;
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.exported;
+import static org.testng.AssertJUnit.assertEquals;
+
+public class TestMeasurementHandle {
+  private static final int THREADS = 4;
+  private static final int OPS = 10000;
+
+  private static void measureConcurrently(final Measurements mm) throws InterruptedException {
+    Thread[] threads = new Thread[THREADS];
+    for (int t = 0; t < THREADS; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          MeasurementHandle handle = mm.getHandle("READ");
+          for (int i = 0; i < OPS; i++) {
+            handle.measureNanos((i % 100) * 1000L);
+            handle.reportStatus(Status.OK);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  private static void checkMerged(String measurementtype) throws Exception {
+    Properties props = new Properties();
+    props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, measurementtype);
+    Measurements mm = new Measurements(props);
+
+    measureConcurrently(mm);
+    // measured alongside by name and by a thread that doesn't own the handle
+    mm.measure("READ", 1);
+    mm.reportStatus("READ", Status.OK);
+    final MeasurementHandle handle = mm.getHandle("READ");
+    handle.measureNanos(1000);
+    Thread other = new Thread() {
+      @Override
+      public void run() {
+        handle.measureNanos(1000);
+        handle.reportStatus(Status.OK);
+      }
+    };
+    other.start();
+    other.join();
+    handle.reportStatus(Status.OK);
+
+    String name = measurementtype.startsWith("hdrhistogram+") ? "HdrREAD" : "READ";
+    assertEquals((double) THREADS * OPS + 3, exported(mm, name, "Operations"));
+    assertEquals((double) THREADS * OPS + 3, exported(mm, name, "Return=OK"));
+    assertEquals(99.0, exported(mm, name, "MaxLatency(us)"));
+
+    // a handle resolves its recorders again after a reset
+    mm.reset();
+    handle.measureNanos(5000);
+    assertEquals(1.0, exported(mm, name, "Operations"));
+  }
+
+  @Test
+  public void testHdrHistogram() throws Exception {
+    checkMerged("hdrhistogram");
+  }
+
+  @Test
+  public void testHistogram() throws Exception {
+    checkMerged("histogram");
+  }
+
+  @Test
+  public void testHdrHistogramAndHistogram() throws Exception {
+    checkMerged("hdrhistogram+histogram");
+  }
+
+  @Test
+  public void testTimeSeries() throws Exception {
+    checkMerged("timeseries");
+  }
+
+  @Test
+  public void testNanoseconds() throws Exception {
+    for (String measurementtype : new String[] {"hdrhistogram", "histogram", "timeseries"}) {
+      Properties props = new Properties();
+      props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, measurementtype);
+      props.put(Measurements.LATENCY_UNIT_PROPERTY, "ns");
+      Measurements mm = new Measurements(props);
+      mm.getHandle("READ").measureNanos(1234);
+      mm.measure("READ", 2);
+      assertEquals(measurementtype, 2000.0, exported(mm, "READ", "MaxLatency(ns)"), 0);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.export;
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.exported;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestOperationOverhead {
+  @Test
+  public void testMergesTheThreadsTotals() throws Exception {
+    Properties props = new Properties();
+    props.put(OperationOverhead.OVERHEAD_PROPERTY, "true");
+    final Measurements mm = new Measurements(props);
+    final OperationOverhead overhead = mm.getOverhead();
+
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 100; i++) {
+            overhead.begin();
+            overhead.recordDbCall("READ", 1000, 10);
+            overhead.end();
+
+            overhead.begin();
+            overhead.recordDbCall("READ", 1000, 10);
+            overhead.recordDbCall("UPDATE", 2000, 20);
+            overhead.end();
+
+            // made no DB call, so not accounted
+            overhead.begin();
+            overhead.end();
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(400, exported(mm, "OVERHEAD-READ", "Operations"), 0);
+    assertEquals(400, exported(mm, "OVERHEAD-READ+UPDATE", "Operations"), 0);
+    assertEquals(800, exported(mm, "OVERHEAD", "Operations"), 0);
+    assertEquals(3.0, exported(mm, "OVERHEAD-READ+UPDATE", "AverageDB(us)"), 1e-9);
+    assertEquals(0.03, exported(mm, "OVERHEAD-READ+UPDATE", "AverageMeasurement(us)"), 1e-9);
+    assertTrue(exported(mm, "OVERHEAD-READ", "AverageTotal(us)") > 0);
+
+    overhead.reset();
+    assertFalse(export(mm).contains("OVERHEAD"));
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+public class TestRawBinaryConverter {
+  @Test
+  public void testRoundTrip() throws IOException {
+    File raw = File.createTempFile("ycsb", ".bin");
+    File names = new File(raw.getPath() + RawBinaryLog.NAMES_SUFFIX);
+    try {
+      Properties props = new Properties();
+      props.put(Measurements.MEASUREMENT_TYPE_PROPERTY, "rawbinary");
+      props.put(OneMeasurementRaw.OUTPUT_FILE_PATH, raw.getPath());
+      // small buffers, so records are written out while measuring too
+      props.put(OneMeasurementRawBinary.BUFFER_SIZE, "100");
+      Measurements mm = new Measurements(props);
+      MeasurementHandle read = mm.getHandle("READ");
+      for (int i = 0; i < 1000; i++) {
+        read.measureNanos(i * 1000L);
+      }
+      mm.measure("READ-MODIFY-WRITE", 7);
+      mm.getHandle("UPDATE-NOT_FOUND").measureNanos(3000);
+      mm.exportMeasurements(new TextMeasurementsExporter(new ByteArrayOutputStream()));
+
+      final Map<String, Long> latencies = new HashMap<String, Long>();
+      final int[] records = {0};
+      RawBinaryConverter.read(raw.getPath(), new RawBinaryConverter.RecordHandler() {
+        @Override
+        public void record(long timestamp, String operation, String status, long latency) {
+          records[0]++;
+          Long sum = latencies.get(operation + "/" + status);
+          latencies.put(operation + "/" + status, (sum == null ? 0 : sum) + latency);
+        }
+      });
+      assertEquals(1002, records[0]);
+      assertEquals(Long.valueOf(999 * 1000 / 2), latencies.get("READ/" + Status.OK.getName()));
+      assertEquals(Long.valueOf(7), latencies.get("READ-MODIFY-WRITE/" + Status.OK.getName()));
+      assertEquals(Long.valueOf(3), latencies.get("UPDATE/" + Status.NOT_FOUND.getName()));
+    } finally {
+      raw.delete();
+      names.delete();
+    }
+  }
+}
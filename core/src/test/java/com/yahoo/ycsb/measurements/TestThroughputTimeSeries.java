@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.export;
+import static com.yahoo.ycsb.measurements.ExportedMeasurements.exported;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestThroughputTimeSeries {
+  @Test
+  public void testCountsByOperationAndStatus() throws Exception {
+    Properties props = new Properties();
+    props.put(ThroughputTimeSeries.THROUGHPUT_TIMESERIES_PROPERTY, "true");
+    // one interval for the whole test
+    props.put(OneMeasurementTimeSeries.GRANULARITY, "3600000");
+    Measurements mm = new Measurements(props);
+
+    MeasurementHandle read = mm.getHandle("READ");
+    for (int i = 0; i < 10; i++) {
+      read.measureNanos(1000);
+      read.reportStatus(Status.OK);
+    }
+    MeasurementHandle notFound = mm.getHandle("READ-NOT_FOUND");
+    for (int i = 0; i < 3; i++) {
+      notFound.measureNanos(1000);
+      notFound.reportStatus(Status.NOT_FOUND);
+    }
+    mm.measure("UPDATE", 1);
+    mm.reportStatus("UPDATE", Status.OK);
+
+    String out = export(mm);
+    // the interval is still running, so its rate is over the time it has lasted
+    assertTrue(out, exported(mm, "THROUGHPUT-READ", "0") > 13 * 1000.0 / 3600000);
+    assertTrue(out, out.contains("[THROUGHPUT-READ], 0:Return=OK, 10.0\n"));
+    assertTrue(out, out.contains("[THROUGHPUT-READ], 0:Return=NOT_FOUND, 3.0\n"));
+    assertTrue(out, out.contains("[THROUGHPUT-UPDATE], 0:Return=OK, 1.0\n"));
+    assertFalse(out, out.contains("THROUGHPUT-READ-NOT_FOUND"));
+
+    // the warm-up is not counted
+    mm.reset();
+    mm.startWarmup();
+    read.reportStatus(Status.OK);
+    mm.endWarmup();
+    assertFalse(export(mm).contains("THROUGHPUT"));
+  }
+
+  @Test
+  public void testExportsEveryIntervalUpToTheLast() throws Exception {
+    Properties props = new Properties();
+    props.put(OneMeasurementTimeSeries.GRANULARITY, "1000");
+    ThroughputTimeSeries series = new ThroughputTimeSeries(props, 0);
+    ThroughputTimeSeries.Recorder recorder = series.newRecorder();
+    recorder.count("READ", "OK", 500);
+    recorder.count("READ", "OK", 600);
+    recorder.count("UPDATE", "OK", 1200);
+    recorder.count("READ", "ERROR", 2500);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    TextMeasurementsExporter exporter = new TextMeasurementsExporter(bytes);
+    series.exportMeasurements(exporter, 2750);
+    exporter.close();
+
+    assertEquals("[THROUGHPUT-READ], 0, 2.0\n"
+        + "[THROUGHPUT-READ], 0:Return=OK, 2.0\n"
+        + "[THROUGHPUT-READ], 1000, 0.0\n"
+        + "[THROUGHPUT-READ], 2000, " + (1000.0 / 750) + "\n"
+        + "[THROUGHPUT-READ], 2000:Return=ERROR, 1.0\n"
+        + "[THROUGHPUT-UPDATE], 1000, 1.0\n"
+        + "[THROUGHPUT-UPDATE], 1000:Return=OK, 1.0\n"
+        + "[THROUGHPUT-UPDATE], 2000, 0.0\n", bytes.toString("UTF-8"));
+  }
+
+  @Test
+  public void testDisabledByDefault() throws Exception {
+    Measurements mm = new Measurements(new Properties());
+    mm.getHandle("READ").reportStatus(Status.OK);
+    mm.reportStatus("UPDATE", Status.OK);
+    assertFalse(export(mm).contains("THROUGHPUT"));
+  }
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2015 YCSB contributors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Status;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.workloads.CoreWorkload.Operation;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkload {
+  @BeforeClass
+  public void setUpMeasurements() {
+    Measurements.setProperties(new Properties());
+  }
+
+  static Properties props(String... keyvalues) {
+    Properties p = new Properties();
+    p.setProperty("recordcount", "1000");
+    p.setProperty("operationcount", "1000");
+    for (int i = 0; i < keyvalues.length; i += 2) {
+      p.setProperty(keyvalues[i], keyvalues[i + 1]);
+    }
+    return p;
+  }
+
+  /**
+   * Answers every operation with a fixed status, keeping the keys inserted and deleted.
+   */
+  static class FixedStatusDB extends DB {
+    Status status = Status.OK;
+    final List<String> inserted = new ArrayList<String>();
+    final List<String> deleted = new ArrayList<String>();
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return status;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+        Vector<HashMap<String, ByteIterator>> result) {
+      return status;
+    }
+
+    @Override
+    public Status update(String table, String key, HashMap<String, ByteIterator> values) {
+      return status;
+    }
+
+    @Override
+    public Status insert(String table, String key, HashMap<String, ByteIterator> values) {
+      inserted.add(key);
+      return status;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      deleted.add(key);
+      return status;
+    }
+  }
+
+  private static IntegerGenerator chooser(CoreWorkload workload, Operation op) {
+    return workload.opkeychoosers[op.ordinal()];
+  }
+
+  @Test
+  public void testOperationsResolveTheirOwnChooser() throws Exception {
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props("requestdistribution", "uniform",
+        "read.requestdistribution", "zipfian",
+        "update.requestdistribution", "uniform",
+        "scan.zipfian.constant", "0.5"));
+
+    assertTrue(workload.keychooser instanceof UniformIntegerGenerator);
+    assertTrue(chooser(workload, Operation.READ) instanceof ScrambledZipfianGenerator);
+    // an override that resolves to the default settings shares the default chooser
+    assertSame(workload.keychooser, chooser(workload, Operation.UPDATE));
+    // any overridden setting makes a chooser of its own
+    assertNotSame(workload.keychooser, chooser(workload, Operation.SCAN));
+    assertSame(workload.keychooser, chooser(workload, Operation.DELETE));
+    assertSame(workload.keychooser, chooser(workload, Operation.INSERT));
+  }
+
+  @Test
+  public void testChoosersAreKeptAcrossPhases() throws Exception {
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props("requestdistribution", "zipfian", "read.requestdistribution", "uniform"));
+    IntegerGenerator defaultchooser = workload.keychooser;
+    IntegerGenerator readchooser = chooser(workload, Operation.READ);
+
+    // same settings: every chooser is kept
+    workload.initPhase(props("requestdistribution", "zipfian", "read.requestdistribution", "uniform"));
+    assertSame(defaultchooser, workload.keychooser);
+    assertSame(readchooser, chooser(workload, Operation.READ));
+
+    // only the operation whose settings changed gets a new chooser
+    workload.initPhase(props("requestdistribution", "zipfian", "read.requestdistribution", "latest"));
+    assertSame(defaultchooser, workload.keychooser);
+    assertNotSame(readchooser, chooser(workload, Operation.READ));
+
+    // a chooser dropped for a phase is not brought back
+    workload.initPhase(props("requestdistribution", "zipfian", "read.requestdistribution", "uniform"));
+    assertNotSame(readchooser, chooser(workload, Operation.READ));
+
+    // a new key space needs new choosers
+    workload.initPhase(props("recordcount", "2000", "requestdistribution", "zipfian"));
+    assertNotSame(defaultchooser, workload.keychooser);
+    assertSame(workload.keychooser, chooser(workload, Operation.READ));
+  }
+
+  @Test
+  public void testDeletedKeysAreNotChosen() throws Exception {
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props("requestdistribution", "uniform"));
+    for (long keynum = 0; keynum < 1000; keynum += 2) {
+      workload.deletedkeys.add(keynum);
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(1, workload.nextKeynum(Operation.READ) % 2);
+    }
+
+    // with every key deleted the retries run out rather than spin
+    for (long keynum = 1; keynum < 1000; keynum += 2) {
+      workload.deletedkeys.add(keynum);
+    }
+    long keynum = workload.nextKeynum(Operation.READ);
+    assertTrue(keynum >= 0 && keynum < 1000);
+    assertEquals(-1, workload.nextDeleteKeynum());
+  }
+
+  @Test
+  public void testDeleteOutcomes() throws Exception {
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props("requestdistribution", "uniform"));
+    FixedStatusDB db = new FixedStatusDB();
+
+    // the record may still be there: the key can be chosen again
+    db.status = Status.ERROR;
+    workload.doTransactionDelete(db);
+    assertEquals(1, db.deleted.size());
+    for (long keynum = 0; keynum < 1000; keynum++) {
+      assertFalse(workload.deletedkeys.contains(keynum));
+    }
+
+    db.status = Status.OK;
+    workload.doTransactionDelete(db);
+    db.status = Status.NOT_FOUND;
+    workload.doTransactionDelete(db);
+    int deleted = 0;
+    for (long keynum = 0; keynum < 1000; keynum++) {
+      if (workload.deletedkeys.contains(keynum)) {
+        deleted++;
+      }
+    }
+    assertEquals(2, deleted);
+    // without churn nothing waits to be re-inserted, and inserts add new keys
+    assertTrue(workload.reinsertkeys.isEmpty());
+    db.status = Status.OK;
+    workload.doTransactionInsert(db);
+    assertEquals(workload.buildKeyName(1000), db.inserted.get(0));
+  }
+
+  @Test
+  public void testChurnReinsertsOldestFirstUntilItSucceeds() throws Exception {
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props("requestdistribution", "uniform", "deletechurn", "true"));
+    FixedStatusDB db = new FixedStatusDB();
+    workload.doTransactionDelete(db);
+    workload.doTransactionDelete(db);
+    String first = db.deleted.get(0);
+    String second = db.deleted.get(1);
+
+    // a failed re-insert leaves the key deleted and waiting
+    db.status = Status.ERROR;
+    workload.doTransactionInsert(db);
+    assertEquals(first, db.inserted.get(0));
+    assertEquals(2, workload.reinsertkeys.size());
+
+    db.status = Status.OK;
+    workload.doTransactionInsert(db);
+    workload.doTransactionInsert(db);
+    assertEquals(second, db.inserted.get(1));
+    assertEquals(first, db.inserted.get(2));
+    assertTrue(workload.reinsertkeys.isEmpty());
+    for (long keynum = 0; keynum < 1000; keynum++) {
+      assertFalse(workload.deletedkeys.contains(keynum));
+    }
+
+    // with nothing left to re-insert, inserts add new keys
+    workload.doTransactionInsert(db);
+    assertEquals(workload.buildKeyName(1000), db.inserted.get(3));
+  }
+
+  @Test
+  public void testInsertSequenceIsKeptAcrossPhases() throws Exception {
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props("requestdistribution", "latest"));
+    FixedStatusDB db = new FixedStatusDB();
+    workload.doTransactionInsert(db);
+    workload.doTransactionInsert(db);
+    IntegerGenerator sequence = workload.transactioninsertkeysequence;
+    IntegerGenerator latest = workload.keychooser;
+
+    // later phases over the same key space carry on from the keys inserted so far
+    workload.initPhase(props("requestdistribution", "latest", "readproportion", "0.5"));
+    assertSame(sequence, workload.transactioninsertkeysequence);
+    assertSame(latest, workload.keychooser);
+    assertEquals(1001, workload.transactioninsertkeysequence.lastLong());
+    workload.doTransactionInsert(db);
+    assertEquals(workload.buildKeyName(1002), db.inserted.get(2));
+
+    // a new key space starts over
+    workload.initPhase(props("recordcount", "2000", "requestdistribution", "latest"));
+    assertNotSame(sequence, workload.transactioninsertkeysequence);
+    assertEquals(1999, workload.transactioninsertkeysequence.lastLong());
+  }
+}
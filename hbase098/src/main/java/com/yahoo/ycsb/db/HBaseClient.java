@@ -133,7 +133,7 @@ public class HBaseClient extends com.yahoo.ycsb.DB
                 _hTable.flushCommits();
             }
             long en=System.nanoTime();
-            _measurements.measure("UPDATE", (int)((en-st)/1000));
+            _measurements.measureNanos("UPDATE", en-st);
         } catch (IOException e) {
             throw new DBException(e);
         }
@@ -169,7 +169,7 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB {
       }
       long en = System.nanoTime();
       final String type = clientSideBuffering ? "UPDATE" : "CLEANUP";
-      measurements.measure(type, (int) ((en - st) / 1000));
+      measurements.measureNanos(type, en - st);
       connection.close();
     } catch (IOException e) {
       throw new DBException(e);